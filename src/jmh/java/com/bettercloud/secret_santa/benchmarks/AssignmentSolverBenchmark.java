@@ -0,0 +1,85 @@
+package com.bettercloud.secret_santa.benchmarks;
+
+import com.bettercloud.secret_santa.config.SecretSantaProperties;
+import com.bettercloud.secret_santa.solver.AssignmentSolver;
+import com.bettercloud.secret_santa.solver.BacktrackingSolver;
+import com.bettercloud.secret_santa.solver.DrawProblem;
+import com.bettercloud.secret_santa.solver.MatchingSolver;
+import com.bettercloud.secret_santa.solver.PortfolioSolver;
+import com.bettercloud.secret_santa.solver.SolveBudget;
+import com.bettercloud.secret_santa.solver.SolverStrategy;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Solves synthetic draws with every solver strategy.
+ * <p>
+ * Throughput mode gives draws per second; sample-time mode gives the latency distribution,
+ * including its maximum (p1.00) as the worst case. Run with {@code -prof gc} to get the
+ * allocation rate per draw. Each invocation gets a 60 second budget: combinations an
+ * exponential solver cannot finish fail with SolveBudgetExceededException instead of hanging.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms3g", "-Xmx3g"})
+public class AssignmentSolverBenchmark {
+
+    private static final Duration TIME_LIMIT = Duration.ofSeconds(60);
+    private static final long SEED = 20_241_225L;
+
+    @Param({"10", "100", "1000", "10000", "100000"})
+    private int participants;
+
+    @Param({"NONE", "COUPLES", "HOUSEHOLDS", "ONE_LARGE"})
+    private DrawDatasets.FamilyDistribution families;
+
+    @Param({"1", "3", "10"})
+    private int historyYears;
+
+    @Param({"MATCHING", "BACKTRACKING", "PORTFOLIO"})
+    private SolverStrategy strategy;
+
+    private DrawProblem problem;
+    private AssignmentSolver solver;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        problem = DrawDatasets.generate(participants, families, historyYears, SEED);
+        solver = switch (strategy) {
+            case MATCHING -> new MatchingSolver();
+            case BACKTRACKING -> new BacktrackingSolver();
+            case PORTFOLIO -> new PortfolioSolver(new BacktrackingSolver(), new SecretSantaProperties());
+        };
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        if (solver instanceof PortfolioSolver portfolioSolver) {
+            portfolioSolver.shutdown();
+        }
+    }
+
+    @Benchmark
+    public int[] solve() {
+        return solver.solve(problem, SolveBudget.start(TIME_LIMIT, 0))
+                .orElseThrow(() -> new IllegalStateException("Synthetic draw has no solution"));
+    }
+
+}
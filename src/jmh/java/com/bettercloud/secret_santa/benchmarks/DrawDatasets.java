@@ -0,0 +1,114 @@
+package com.bettercloud.secret_santa.benchmarks;
+
+import com.bettercloud.secret_santa.solver.DrawProblem;
+import com.bettercloud.secret_santa.solver.ExclusionMatrix;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Synthetic draws for the benchmarks, reproducible from a seed.
+ * <p>
+ * This class is not intended for instantiation.
+ */
+public final class DrawDatasets {
+
+    /**
+     * Share of the participants that belong to the family of {@link FamilyDistribution#ONE_LARGE}.
+     */
+    private static final double LARGE_FAMILY_SHARE = 0.4;
+
+    private static final int MAX_HOUSEHOLD_SIZE = 6;
+
+    private DrawDatasets() {
+        throw new IllegalStateException("This utility class cannot be instantiated.");
+    }
+
+    /**
+     * How participants are grouped into families.
+     */
+    public enum FamilyDistribution {
+        /** Nobody declares a family. */
+        NONE,
+        /** Families of exactly two members. */
+        COUPLES,
+        /** Families of 1 to 6 members, uniformly distributed. */
+        HOUSEHOLDS,
+        /** A single family holding 40% of the participants, nobody else has a family. */
+        ONE_LARGE
+    }
+
+    /**
+     * Builds a draw of the given size.
+     *
+     * @param participants number of participants
+     * @param families     how participants are grouped into families
+     * @param historyYears number of prior draws within the lookback window; each one is a
+     *                     random single-cycle draw, so every giver has that many forbidden receivers
+     * @param seed         seed of the generator
+     */
+    public static DrawProblem generate(int participants, FamilyDistribution families, int historyYears, long seed) {
+        Random random = new Random(seed);
+
+        int[] participantIds = new int[participants];
+        for (int i = 0; i < participants; i++) {
+            participantIds[i] = i + 1;
+        }
+
+        int[] familyIds = familyIds(participants, families, random);
+
+        ExclusionMatrix recentPairs = new ExclusionMatrix(participants);
+        int[] order = participantIds.clone();
+        for (int year = 0; year < historyYears; year++) {
+            shuffle(order, random);
+            for (int i = 0; i < participants; i++) {
+                recentPairs.exclude(order[i] - 1, order[(i + 1) % participants] - 1);
+            }
+        }
+
+        // what the family constraint compiles for real draws
+        recentPairs.excludeWithinGroups(familyIds);
+        return new DrawProblem(participantIds, familyIds, recentPairs);
+    }
+
+    private static int[] familyIds(int participants, FamilyDistribution families, Random random) {
+        int[] familyIds = new int[participants];
+        switch (families) {
+            case NONE -> Arrays.fill(familyIds, DrawProblem.NO_FAMILY);
+            case COUPLES -> {
+                for (int i = 0; i < participants; i++) {
+                    familyIds[i] = i / 2;
+                }
+            }
+            case HOUSEHOLDS -> {
+                int family = 0;
+                int remaining = 1 + random.nextInt(MAX_HOUSEHOLD_SIZE);
+                for (int i = 0; i < participants; i++) {
+                    if (remaining == 0) {
+                        family++;
+                        remaining = 1 + random.nextInt(MAX_HOUSEHOLD_SIZE);
+                    }
+                    familyIds[i] = family;
+                    remaining--;
+                }
+            }
+            case ONE_LARGE -> {
+                int largeFamilySize = (int) (participants * LARGE_FAMILY_SHARE);
+                for (int i = 0; i < participants; i++) {
+                    familyIds[i] = i < largeFamilySize ? 0 : DrawProblem.NO_FAMILY;
+                }
+            }
+        }
+        return familyIds;
+    }
+
+    private static void shuffle(int[] values, Random random) {
+        for (int i = values.length - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int tmp = values[i];
+            values[i] = values[j];
+            values[j] = tmp;
+        }
+    }
+
+}
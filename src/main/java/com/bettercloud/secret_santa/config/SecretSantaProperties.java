@@ -0,0 +1,260 @@
+package com.bettercloud.secret_santa.config;
+
+import com.bettercloud.secret_santa.solver.SolverStrategy;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Application settings bound from the {@code secret-santa} prefix of application.yml.
+ */
+@Data
+@ConfigurationProperties(prefix = "secret-santa")
+public class SecretSantaProperties {
+
+    private Solver solver = new Solver();
+
+    private Persistence persistence = new Persistence();
+
+    private Jobs jobs = new Jobs();
+
+    private Ingest ingest = new Ingest();
+
+    private Batch batch = new Batch();
+
+    private Idempotency idempotency = new Idempotency();
+
+    private AccessLog accessLog = new AccessLog();
+
+    private Lookup lookup = new Lookup();
+
+    private History history = new History();
+
+    private Constraints constraints = new Constraints();
+
+    @Data
+    public static class Solver {
+
+        /**
+         * Algorithm used by createAssignments.
+         */
+        private SolverStrategy strategy = SolverStrategy.MATCHING;
+
+        /**
+         * Wall-clock limit of the feasibility analysis and the search of a single draw.
+         */
+        private Duration timeLimit = Duration.ofSeconds(10);
+
+        /**
+         * Maximum number of search nodes explored for a single draw, 0 for no limit.
+         */
+        private long maxNodes = 0;
+
+        private Portfolio portfolio = new Portfolio();
+
+        /**
+         * When the draw is impossible only because of the history rule, allow repeated pairs
+         * and return the draw with the lowest total penalty instead of failing. The hard rules
+         * (self, family, attributes, do-not-pair lists) are never relaxed.
+         */
+        private boolean optimizeWhenInfeasible = false;
+
+    }
+
+    @Data
+    public static class Portfolio {
+
+        /**
+         * Number of independently seeded searches started for each draw.
+         */
+        private int copies = Runtime.getRuntime().availableProcessors();
+
+        /**
+         * Size of the thread pool shared by the searches of all draws.
+         */
+        private int threads = Runtime.getRuntime().availableProcessors();
+
+        /**
+         * Draws smaller than this are solved by a single search on the calling thread,
+         * where starting threads would cost more than it saves.
+         */
+        private int minParticipants = 200;
+
+    }
+
+    @Data
+    public static class Persistence {
+
+        /**
+         * Draws with at least this many assignments are written with PostgreSQL COPY
+         * instead of batched inserts.
+         */
+        private int copyThreshold = 5000;
+
+        /**
+         * Number of lock slots the participants of draws are spread over, which serialize the write
+         * phases of draws of the same year sharing a participant.
+         */
+        private int lockStripes = 1024;
+
+    }
+
+    @Data
+    public static class Jobs {
+
+        /**
+         * Number of draw jobs running at the same time on each instance.
+         */
+        private int threads = 2;
+
+        /**
+         * Jobs waiting for a thread beyond this are rejected with 429.
+         */
+        private int queueCapacity = 100;
+
+        /**
+         * How long shutdown waits for queued and running jobs to finish.
+         */
+        private Duration shutdownTimeout = Duration.ofSeconds(30);
+
+        /**
+         * A job still queued this long after it was submitted, or still running this long after
+         * it started, is taken for lost with the instance running it and failed when it is read.
+         */
+        private Duration staleAfter = Duration.ofMinutes(30);
+
+    }
+
+    @Data
+    public static class Ingest {
+
+        /**
+         * Participants of a streamed upload are parsed and upserted this many at a time.
+         */
+        private int chunkSize = 1000;
+
+    }
+
+    @Data
+    public static class Batch {
+
+        /**
+         * Number of groups of a batch draw solved at the same time, on a pool shared by all batches.
+         */
+        private int parallelism = Runtime.getRuntime().availableProcessors();
+
+        /**
+         * Batches with more groups than this are rejected with 400.
+         */
+        private int maxGroups = 1000;
+
+    }
+
+    @Data
+    public static class Idempotency {
+
+        /**
+         * Requests without an Idempotency-Key header are identified by a hash of their year and
+         * participants, so resending the same list for the same year returns the stored draw.
+         */
+        private boolean hashWhenNoKey = true;
+
+    }
+
+    @Data
+    public static class AccessLog {
+
+        /**
+         * Whether requests are written to the access log at all.
+         */
+        private boolean enabled = true;
+
+        /**
+         * Share of successful requests that are logged, between 0 and 1. Errors are always logged.
+         */
+        private double sampleRate = 1.0;
+
+        /**
+         * Request headers included in each entry, matched case-insensitively.
+         */
+        private List<String> headers = List.of("x-track-id", "user-agent", "host", "origin");
+
+        /**
+         * Whether request and response bodies are buffered and logged. Off by default:
+         * it keeps a copy of every body in memory until the request completes.
+         */
+        private boolean includeBodies = false;
+
+        /**
+         * Maximum number of bytes of each body that is buffered and logged.
+         */
+        private int maxBodyLength = 1000;
+
+        /**
+         * Entries waiting to be written beyond this are dropped.
+         */
+        private int queueCapacity = 10_000;
+
+    }
+
+    @Data
+    public static class Lookup {
+
+        /**
+         * Maximum number of (year, giver) entries kept by the recipient lookup cache.
+         */
+        private long cacheSize = 200_000;
+
+        /**
+         * How long a cached recipient is served before it is read again from the database.
+         */
+        private Duration ttl = Duration.ofMinutes(10);
+
+    }
+
+    @Data
+    public static class History {
+
+        /**
+         * Page size of the history API when the request does not give one.
+         */
+        private int defaultPageSize = 100;
+
+        /**
+         * Largest page size a request may ask for; whole years are read through the export instead.
+         */
+        private int maxPageSize = 1000;
+
+        /**
+         * Maximum number of givers whose recent receivers are kept in memory for the history checks of draws.
+         */
+        private long cacheSize = 200_000;
+
+        /**
+         * How long the recent receivers of a giver are served before they are read again, which bounds
+         * how long a draw committed by another instance can go unnoticed.
+         */
+        private Duration cacheTtl = Duration.ofMinutes(10);
+
+    }
+
+    @Data
+    public static class Constraints {
+
+        /**
+         * Number of years, including the draw year, during which a (giver, receiver) pair cannot repeat.
+         * 0 disables the rule.
+         */
+        private int lookbackYears = 3;
+
+        /**
+         * Participant attributes (e.g. location, department) whose values must differ between a giver
+         * and its receiver. Participants without the attribute are not affected.
+         */
+        private List<String> excludeSameAttributes = List.of();
+
+    }
+
+}
@@ -0,0 +1,46 @@
+package com.bettercloud.secret_santa.constraints;
+
+import com.bettercloud.secret_santa.solver.ExclusionMatrix;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Participants listed in each other's {@code doNotPairWith} cannot be paired, in either
+ * direction. Emails that are not part of the draw are ignored.
+ */
+@Component
+public class DoNotPairConstraint implements DrawConstraint {
+
+    @Override
+    public void compile(DrawContext draw, ExclusionMatrix exclusions) {
+        if (draw.doNotPairs().isEmpty()) {
+            return;
+        }
+
+        Set<String> listedEmails = new HashSet<>();
+        for (DrawContext.DoNotPair doNotPair : draw.doNotPairs()) {
+            listedEmails.add(doNotPair.email());
+        }
+        // Only the listed emails are indexed, not the whole draw
+        String[] emails = draw.emails();
+        Map<String, Integer> indexByEmail = new HashMap<>();
+        for (int i = 0; i < emails.length; i++) {
+            if (listedEmails.contains(emails[i])) {
+                indexByEmail.put(emails[i], i);
+            }
+        }
+
+        for (DrawContext.DoNotPair doNotPair : draw.doNotPairs()) {
+            Integer other = indexByEmail.get(doNotPair.email());
+            if (other != null && other != doNotPair.participant()) {
+                exclusions.exclude(doNotPair.participant(), other);
+                exclusions.exclude(other, doNotPair.participant());
+            }
+        }
+    }
+
+}
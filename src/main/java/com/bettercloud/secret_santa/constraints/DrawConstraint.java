@@ -0,0 +1,21 @@
+package com.bettercloud.secret_santa.constraints;
+
+import com.bettercloud.secret_santa.solver.ExclusionMatrix;
+
+/**
+ * A rule that forbids some (giver, receiver) pairs of a draw.
+ * <p>
+ * Every {@code DrawConstraint} bean is compiled once per draw, after the read phase and before
+ * the solver runs, into the same exclusion matrix that already holds the history of the
+ * lookback window. The solver then checks any pair with a single bit lookup, so adding a rule
+ * adds neither method calls nor queries to the search. Implementations must not access the
+ * database: everything they need is in the {@link DrawContext}.
+ */
+public interface DrawConstraint {
+
+    /**
+     * Marks the pairs this rule forbids. Indices are the positions of the participants in the draw.
+     */
+    void compile(DrawContext draw, ExclusionMatrix exclusions);
+
+}
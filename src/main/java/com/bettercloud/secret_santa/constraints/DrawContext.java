@@ -0,0 +1,172 @@
+package com.bettercloud.secret_santa.constraints;
+
+import com.bettercloud.secret_santa.dto.ParticipantRequestDTO;
+import com.bettercloud.secret_santa.solver.DrawProblem;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * What the {@link DrawConstraint}s know about a draw, indexed like the draw's participants.
+ * <p>
+ * Families and the attributes listed in {@code secret-santa.constraints.exclude-same-attributes}
+ * are mapped to dense group IDs, with {@link #NO_GROUP} for participants without one. The context
+ * is built while the participants are read, so streamed uploads never keep their DTOs.
+ */
+public final class DrawContext {
+
+    public static final int NO_GROUP = DrawProblem.NO_FAMILY;
+
+    private final int year;
+    private final int[] participantIds;
+    private final int[] familyIds;
+    private final String[] emails;
+    private final Map<String, int[]> attributeGroups;
+    private final List<DoNotPair> doNotPairs;
+
+    private DrawContext(int year, int[] participantIds, int[] familyIds, String[] emails,
+                        Map<String, int[]> attributeGroups, List<DoNotPair> doNotPairs) {
+        this.year = year;
+        this.participantIds = participantIds;
+        this.familyIds = familyIds;
+        this.emails = emails;
+        this.attributeGroups = attributeGroups;
+        this.doNotPairs = doNotPairs;
+    }
+
+    public int year() {
+        return year;
+    }
+
+    public int size() {
+        return participantIds.length;
+    }
+
+    /**
+     * @return the participant IDs indexed by position; must not be modified
+     */
+    public int[] participantIds() {
+        return participantIds;
+    }
+
+    /**
+     * @return the dense family ID of each index, {@link #NO_GROUP} if none; must not be modified
+     */
+    public int[] familyIds() {
+        return familyIds;
+    }
+
+    /**
+     * @return the email of each index; must not be modified
+     */
+    public String[] emails() {
+        return emails;
+    }
+
+    /**
+     * @return for each configured attribute, the dense group ID of each index, {@link #NO_GROUP}
+     * if the participant does not have it; must not be modified
+     */
+    public Map<String, int[]> attributeGroups() {
+        return attributeGroups;
+    }
+
+    /**
+     * @return the doNotPairWith entries of every participant, usually few
+     */
+    public List<DoNotPair> doNotPairs() {
+        return doNotPairs;
+    }
+
+    /**
+     * A participant (by index) that must not be paired with the participant with the given email.
+     */
+    public record DoNotPair(int participant, String email) {
+    }
+
+    /**
+     * Collects the context of a draw one participant at a time, in draw order, into growable
+     * primitive arrays.
+     */
+    public static final class Builder {
+
+        private int[] familyIds = new int[1024];
+        private String[] emails = new String[1024];
+        private final Map<Integer, Integer> familyIndexMap = new HashMap<>();
+        private final Map<String, int[]> attributeGroups = new LinkedHashMap<>();
+        private final Map<String, Map<String, Integer>> attributeIndexMaps = new HashMap<>();
+        private final List<DoNotPair> doNotPairs = new ArrayList<>();
+        private int size;
+
+        /**
+         * @param groupingAttributes the attributes mapped to groups; others are ignored
+         */
+        public Builder(Collection<String> groupingAttributes) {
+            for (String attribute : groupingAttributes) {
+                attributeGroups.put(attribute, new int[familyIds.length]);
+                attributeIndexMaps.put(attribute, new HashMap<>());
+            }
+        }
+
+        public Builder addAll(List<ParticipantRequestDTO> participants) {
+            participants.forEach(this::add);
+            return this;
+        }
+
+        public Builder add(ParticipantRequestDTO participant) {
+            if (size == familyIds.length) {
+                int capacity = size * 2;
+                familyIds = Arrays.copyOf(familyIds, capacity);
+                emails = Arrays.copyOf(emails, capacity);
+                attributeGroups.replaceAll((attribute, groupIds) -> Arrays.copyOf(groupIds, capacity));
+            }
+
+            Integer familyId = participant.getTempFamilyId();
+            familyIds[size] = familyId == null
+                    ? NO_GROUP
+                    : familyIndexMap.computeIfAbsent(familyId, id -> familyIndexMap.size());
+            emails[size] = participant.getEmail();
+
+            Map<String, String> attributes = participant.getAttributes();
+            for (Map.Entry<String, int[]> entry : attributeGroups.entrySet()) {
+                String value = attributes == null ? null : attributes.get(entry.getKey());
+                Map<String, Integer> indexMap = attributeIndexMaps.get(entry.getKey());
+                entry.getValue()[size] = value == null
+                        ? NO_GROUP
+                        : indexMap.computeIfAbsent(value, v -> indexMap.size());
+            }
+
+            if (participant.getDoNotPairWith() != null) {
+                for (String email : participant.getDoNotPairWith()) {
+                    doNotPairs.add(new DoNotPair(size, email));
+                }
+            }
+            size++;
+            return this;
+        }
+
+        public int size() {
+            return size;
+        }
+
+        /**
+         * @param participantIds the participant ID of each index, in the order participants were added
+         */
+        public DrawContext build(int[] participantIds, int year) {
+            if (participantIds.length != size) {
+                throw new IllegalArgumentException("Expected " + size + " participant IDs, got " + participantIds.length);
+            }
+            Map<String, int[]> groups = new LinkedHashMap<>();
+            attributeGroups.forEach((attribute, groupIds) -> groups.put(attribute, Arrays.copyOf(groupIds, size)));
+            return new DrawContext(year, participantIds, Arrays.copyOf(familyIds, size), Arrays.copyOf(emails, size),
+                    groups, List.copyOf(doNotPairs));
+        }
+
+    }
+
+}
@@ -0,0 +1,17 @@
+package com.bettercloud.secret_santa.constraints;
+
+import com.bettercloud.secret_santa.solver.ExclusionMatrix;
+import org.springframework.stereotype.Component;
+
+/**
+ * Participants of the same family ({@code tempFamilyId}) cannot be paired.
+ */
+@Component
+public class FamilyConstraint implements DrawConstraint {
+
+    @Override
+    public void compile(DrawContext draw, ExclusionMatrix exclusions) {
+        exclusions.excludeWithinGroups(draw.familyIds());
+    }
+
+}
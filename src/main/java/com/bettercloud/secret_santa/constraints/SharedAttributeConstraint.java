@@ -0,0 +1,21 @@
+package com.bettercloud.secret_santa.constraints;
+
+import com.bettercloud.secret_santa.solver.ExclusionMatrix;
+import org.springframework.stereotype.Component;
+
+/**
+ * Participants with the same value of an attribute listed in
+ * {@code secret-santa.constraints.exclude-same-attributes} (e.g. location or department)
+ * cannot be paired. Participants without the attribute are not affected.
+ */
+@Component
+public class SharedAttributeConstraint implements DrawConstraint {
+
+    @Override
+    public void compile(DrawContext draw, ExclusionMatrix exclusions) {
+        for (int[] groupIds : draw.attributeGroups().values()) {
+            exclusions.excludeWithinGroups(groupIds);
+        }
+    }
+
+}
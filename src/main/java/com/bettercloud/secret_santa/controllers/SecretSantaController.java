@@ -1,28 +1,261 @@
 package com.bettercloud.secret_santa.controllers;
 
 import com.bettercloud.secret_santa.dto.ApiResponseDTO;
+import com.bettercloud.secret_santa.dto.DrawJobDTO;
+import com.bettercloud.secret_santa.dto.GroupDrawRequestDTO;
 import com.bettercloud.secret_santa.dto.ParticipantRequestDTO;
+import com.bettercloud.secret_santa.mappers.LogAssignmentMapper;
+import com.bettercloud.secret_santa.dto.RecipientDTO;
+import com.bettercloud.secret_santa.exceptions.AppSecretSantaException;
+import com.bettercloud.secret_santa.services.DrawJobService;
+import com.bettercloud.secret_santa.services.DrawResult;
+import com.bettercloud.secret_santa.services.HistoryService;
+import com.bettercloud.secret_santa.services.IdempotentDraw;
+import com.bettercloud.secret_santa.services.IdempotentDrawService;
+import com.bettercloud.secret_santa.services.RecipientLookupService;
 import com.bettercloud.secret_santa.services.SecretSantaService;
+import com.bettercloud.secret_santa.util.Meta;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.util.DigestUtils;
+import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.net.URI;
 import java.util.List;
+import java.util.UUID;
 
 @RestController
 @RequestMapping("/api/v1/secret-santa")
 public class SecretSantaController {
+
+    static final String TOTAL_PENALTY_HEADER = "X-Draw-Total-Penalty";
+    static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
+    static final String REPLAYED_HEADER = "Idempotent-Replayed";
+
     private final SecretSantaService secretSantaService;
+    private final IdempotentDrawService idempotentDrawService;
+    private final DrawJobService drawJobService;
+    private final RecipientLookupService recipientLookupService;
+    private final HistoryService historyService;
+    private final ObjectMapper objectMapper;
 
-    public SecretSantaController(SecretSantaService secretSantaService) {
+    public SecretSantaController(SecretSantaService secretSantaService,
+                                 IdempotentDrawService idempotentDrawService,
+                                 DrawJobService drawJobService,
+                                 RecipientLookupService recipientLookupService,
+                                 HistoryService historyService,
+                                 ObjectMapper objectMapper) {
         this.secretSantaService = secretSantaService;
+        this.idempotentDrawService = idempotentDrawService;
+        this.drawJobService = drawJobService;
+        this.recipientLookupService = recipientLookupService;
+        this.historyService = historyService;
+        this.objectMapper = objectMapper;
     }
 
+    /**
+     * Safe to retry: a request with the Idempotency-Key of an earlier one, or with the same year
+     * and participants when it has none, gets the stored response back, marked with the
+     * Idempotent-Replayed header, instead of a second draw.
+     */
     @PostMapping("/generate/{year}")
-    public ApiResponseDTO generate(@PathVariable("year") int currentYear,
-                                   @RequestBody List<ParticipantRequestDTO> participantRequestDTOList) {
-        return this.secretSantaService.createAssignments(participantRequestDTOList, currentYear);
+    public ResponseEntity<ApiResponseDTO> generate(
+            @PathVariable("year") int currentYear,
+            @RequestHeader(value = IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey,
+            @RequestBody List<ParticipantRequestDTO> participantRequestDTOList) {
+        IdempotentDraw draw = this.idempotentDrawService.createAssignments(idempotencyKey,
+                participantRequestDTOList, currentYear);
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (draw.isReplayed()) {
+            response.header(REPLAYED_HEADER, "true");
+        }
+        return response.body(draw.getResponse());
+    }
+
+    /**
+     * Same draw as {@link #generate}, for participants uploaded as NDJSON or CSV. The body
+     * is parsed while it is read instead of being bound to a list first. Not idempotent, so a
+     * request with an Idempotency-Key is rejected rather than drawn again on every retry.
+     */
+    @PostMapping(value = "/generate/{year}", consumes = {MediaType.APPLICATION_NDJSON_VALUE, "text/csv"})
+    public ApiResponseDTO generateFromStream(@PathVariable("year") int currentYear,
+                                             @RequestHeader(HttpHeaders.CONTENT_TYPE) MediaType contentType,
+                                             @RequestHeader(value = IDEMPOTENCY_KEY_HEADER, required = false)
+                                             String idempotencyKey,
+                                             InputStream participantStream) {
+        rejectIdempotencyKey(idempotencyKey);
+        return this.secretSantaService.createAssignments(participantStream, contentType, currentYear);
+    }
+
+    /**
+     * Opt-in with {@code Accept: application/x-ndjson}: the assignments are written one per line
+     * as they are mapped, instead of being wrapped in an ApiResponseDTO. Errors happen before
+     * the first line is written, so they keep the usual ApiResponseDTO error body. Streamed
+     * responses are not stored, so an Idempotency-Key is rejected.
+     */
+    @PostMapping(value = "/generate/{year}", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> generateAsStream(
+            @PathVariable("year") int currentYear,
+            @RequestHeader(value = IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey,
+            @RequestBody List<ParticipantRequestDTO> participantRequestDTOList) {
+        rejectIdempotencyKey(idempotencyKey);
+        return streamed(this.secretSantaService.drawAssignments(participantRequestDTOList, currentYear));
+    }
+
+    @PostMapping(value = "/generate/{year}", consumes = {MediaType.APPLICATION_NDJSON_VALUE, "text/csv"},
+            produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> generateFromStreamAsStream(
+            @PathVariable("year") int currentYear,
+            @RequestHeader(HttpHeaders.CONTENT_TYPE) MediaType contentType,
+            @RequestHeader(value = IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey,
+            InputStream participantStream) {
+        rejectIdempotencyKey(idempotencyKey);
+        return streamed(this.secretSantaService.drawAssignments(participantStream, contentType, currentYear));
+    }
+
+    /**
+     * Streams the assignments as NDJSON; a draw that had to relax the history rule reports
+     * its total penalty in a header, since the body has no envelope.
+     */
+    private ResponseEntity<StreamingResponseBody> streamed(DrawResult result) {
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON);
+        if (result.isRelaxed()) {
+            response.header(TOTAL_PENALTY_HEADER, Long.toString(result.getTotalPenalty()));
+        }
+        return response.body(out -> LogAssignmentMapper.writeNdjson(result.getAssignments(),
+                result.getPenalties(), objectMapper.getFactory(), out));
+    }
+
+    /**
+     * Runs one independent draw per group (e.g. per office or team) in a single request. The
+     * response has the result of each group, failed ones included, so one bad group does not
+     * cost the others their draw. Not idempotent, so an Idempotency-Key is rejected.
+     */
+    @PostMapping("/generate-batch/{year}")
+    public ApiResponseDTO generateBatch(@PathVariable("year") int currentYear,
+                                        @RequestHeader(value = IDEMPOTENCY_KEY_HEADER, required = false)
+                                        String idempotencyKey,
+                                        @RequestBody List<GroupDrawRequestDTO> groups) {
+        rejectIdempotencyKey(idempotencyKey);
+        return this.secretSantaService.createBatchAssignments(groups, currentYear);
+    }
+
+    /**
+     * Repairs the committed draw of the year for its participants as they are now, rewriting
+     * only the assignments around the people who dropped out or joined.
+     */
+    @PostMapping("/repair/{year}")
+    public ApiResponseDTO repair(@PathVariable("year") int currentYear,
+                                 @RequestBody List<ParticipantRequestDTO> participantRequestDTOList) {
+        return this.secretSantaService.repairAssignments(participantRequestDTOList, currentYear);
+    }
+
+    /**
+     * Queues a draw and returns its job immediately; poll {@code /jobs/{jobId}} for its status.
+     * Every submission is a new job, so an Idempotency-Key is rejected.
+     */
+    @PostMapping("/jobs/{year}")
+    public ResponseEntity<ApiResponseDTO> submitJob(@PathVariable("year") int currentYear,
+                                                    @RequestHeader(value = IDEMPOTENCY_KEY_HEADER, required = false)
+                                                    String idempotencyKey,
+                                                    @RequestBody List<ParticipantRequestDTO> participantRequestDTOList) {
+        rejectIdempotencyKey(idempotencyKey);
+        DrawJobDTO job = this.drawJobService.submit(participantRequestDTOList, currentYear);
+        return ResponseEntity.accepted()
+                .location(URI.create("/api/v1/secret-santa/jobs/" + job.getJobId()))
+                .body(new ApiResponseDTO(new Meta(UUID.randomUUID().toString(), HttpStatus.ACCEPTED.name(),
+                        HttpStatus.ACCEPTED.value()), job));
+    }
+
+    @GetMapping("/jobs/{jobId}")
+    public ApiResponseDTO getJob(@PathVariable("jobId") String jobId) {
+        return new ApiResponseDTO(new Meta(UUID.randomUUID().toString(), "OK", 200),
+                this.drawJobService.getJob(jobId));
+    }
+
+    @GetMapping("/jobs/{jobId}/result")
+    public ApiResponseDTO getJobResult(@PathVariable("jobId") String jobId) {
+        return this.drawJobService.getResult(jobId);
+    }
+
+    /**
+     * Returns the recipient of a participant for the year. The response carries an ETag, so a
+     * repeated check with If-None-Match gets a 304; both are served from the lookup cache.
+     */
+    @GetMapping("/assignments/{year}")
+    public ResponseEntity<ApiResponseDTO> getRecipient(@PathVariable("year") int year,
+                                                       @RequestParam("giverEmail") String giverEmail) {
+        List<RecipientDTO> recipients = this.recipientLookupService.findRecipients(year, giverEmail);
+        if (recipients.isEmpty()) {
+            throw new AppSecretSantaException("No assignment found for " + giverEmail + " in " + year,
+                    HttpStatus.NOT_FOUND.value(), HttpStatus.NOT_FOUND.name());
+        }
+        // Spring answers 304 itself when If-None-Match matches this ETag
+        return ResponseEntity.ok()
+                .eTag(recipientsETag(recipients))
+                .cacheControl(CacheControl.noCache().cachePrivate())
+                .body(new ApiResponseDTO(new Meta(UUID.randomUUID().toString(), "OK", 200), recipients));
+    }
+
+    /**
+     * Returns a page of past assignments, optionally filtered by year, giver or receiver, in
+     * (year, id) order. The next page is read by passing the returned {@code nextCursor} as {@code after}.
+     */
+    @GetMapping("/history")
+    public ApiResponseDTO getHistory(@RequestParam(value = "year", required = false) Integer year,
+                                     @RequestParam(value = "giverId", required = false) Integer giverId,
+                                     @RequestParam(value = "receiverId", required = false) Integer receiverId,
+                                     @RequestParam(value = "after", required = false) String after,
+                                     @RequestParam(value = "size", required = false) Integer size) {
+        return new ApiResponseDTO(new Meta(UUID.randomUUID().toString(), "OK", 200),
+                this.historyService.findHistory(year, giverId, receiverId, after, size));
+    }
+
+    /**
+     * Exports every matching assignment as NDJSON, written while it is read from the database.
+     */
+    @GetMapping(value = "/history/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> exportHistory(
+            @RequestParam(value = "year", required = false) Integer year,
+            @RequestParam(value = "giverId", required = false) Integer giverId,
+            @RequestParam(value = "receiverId", required = false) Integer receiverId) {
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(out -> this.historyService.exportHistory(year, giverId, receiverId, out));
+    }
+
+    /**
+     * Fails requests carrying an Idempotency-Key on the endpoints that cannot honor it, instead
+     * of silently drawing again when they are retried.
+     */
+    private static void rejectIdempotencyKey(String idempotencyKey) {
+        if (idempotencyKey != null) {
+            throw new AppSecretSantaException("The " + IDEMPOTENCY_KEY_HEADER + " header is only supported by "
+                    + "POST /generate/{year} with a JSON body and response", HttpStatus.BAD_REQUEST.value(),
+                    HttpStatus.BAD_REQUEST.name());
+        }
+    }
+
+    private static String recipientsETag(List<RecipientDTO> recipients) {
+        StringBuilder tag = new StringBuilder();
+        for (RecipientDTO recipient : recipients) {
+            tag.append(recipient.getYear()).append('-').append(recipient.getGiverId()).append('-')
+                    .append(recipient.getReceiverId()).append('-').append(recipient.getReceiverEmail()).append(';');
+        }
+        return DigestUtils.md5DigestAsHex(tag.toString().getBytes(StandardCharsets.UTF_8));
     }
 }
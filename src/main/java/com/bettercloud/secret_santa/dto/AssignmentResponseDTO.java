@@ -1,5 +1,6 @@
 package com.bettercloud.secret_santa.dto;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
@@ -15,5 +16,15 @@ public class AssignmentResponseDTO{
     private Integer giverId;
     private Integer receiverId;
 
+    /**
+     * Cost of repeating a recent pair, only present in draws that had to relax the history rule.
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Integer penalty;
+
+    public AssignmentResponseDTO(Integer logId, Integer giverId, Integer receiverId) {
+        this(logId, giverId, receiverId, null);
+    }
+
 }
 
@@ -0,0 +1,28 @@
+package com.bettercloud.secret_santa.dto;
+
+import com.bettercloud.secret_santa.entities.DrawJobStatus;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * DrawJobDTO
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class DrawJobDTO {
+
+    private String jobId;
+    private Integer year;
+    private Integer participantCount;
+    private DrawJobStatus status;
+    private String createdAt;
+    private String startedAt;
+    private String finishedAt;
+    private Integer errorCode;
+    private String errorMessage;
+
+}
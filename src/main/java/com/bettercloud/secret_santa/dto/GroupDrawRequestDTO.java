@@ -0,0 +1,22 @@
+package com.bettercloud.secret_santa.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * GroupDrawRequestDTO
+ * <p>
+ * One independent draw of a batch, e.g. an office or a team.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class GroupDrawRequestDTO {
+
+    private String groupId; //Optional. Chosen by the caller and echoed in the result of the group.
+    private List<ParticipantRequestDTO> participants;
+
+}
@@ -0,0 +1,35 @@
+package com.bettercloud.secret_santa.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * GroupDrawResultDTO
+ * <p>
+ * Outcome of one group of a batch draw: its assignments, or the error that stopped it,
+ * with the same status and code the single draw endpoint would have returned.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class GroupDrawResultDTO {
+
+    private Integer index;
+    private String groupId;
+    private String status;
+    private Integer code;
+    private String message;
+
+    /**
+     * Only present in groups that had to relax the history rule.
+     */
+    private Long totalPenalty;
+
+    private List<AssignmentResponseDTO> assignments;
+
+}
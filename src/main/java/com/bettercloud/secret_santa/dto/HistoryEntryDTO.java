@@ -0,0 +1,24 @@
+package com.bettercloud.secret_santa.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * HistoryEntryDTO
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class HistoryEntryDTO {
+
+    private Integer logId;
+    private Integer year;
+    private Integer giverId;
+    private String giverName;
+    private String giverEmail;
+    private Integer receiverId;
+    private String receiverName;
+    private String receiverEmail;
+
+}
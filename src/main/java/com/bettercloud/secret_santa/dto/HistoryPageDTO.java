@@ -0,0 +1,23 @@
+package com.bettercloud.secret_santa.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * HistoryPageDTO
+ * <p>
+ * {@code nextCursor} is passed back as {@code after} to read the following page;
+ * it is null on the last page.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class HistoryPageDTO {
+
+    private List<HistoryEntryDTO> items;
+    private String nextCursor;
+
+}
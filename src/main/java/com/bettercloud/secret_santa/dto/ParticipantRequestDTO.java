@@ -3,6 +3,9 @@ package com.bettercloud.secret_santa.dto;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.Map;
 /**
  * ParticipantRequestDTO
  */
@@ -13,4 +16,10 @@ public class ParticipantRequestDTO {
     private String name;
     private Integer tempFamilyId; //A temporary ID. Used to correlate participants before they are persisted in the database.It could be null.
     private String email;
+    private Map<String, String> attributes; //Optional, e.g. location or department. Only the attributes listed in secret-santa.constraints.exclude-same-attributes are used.
+    private List<String> doNotPairWith; //Optional. Emails of participants of the same draw that must not be paired with this one, in either direction.
+
+    public ParticipantRequestDTO(String name, Integer tempFamilyId, String email) {
+        this(name, tempFamilyId, email, null, null);
+    }
 }
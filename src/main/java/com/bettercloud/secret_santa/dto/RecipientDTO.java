@@ -0,0 +1,21 @@
+package com.bettercloud.secret_santa.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * RecipientDTO
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class RecipientDTO {
+
+    private Integer year;
+    private Integer giverId;
+    private Integer receiverId;
+    private String receiverName;
+    private String receiverEmail;
+
+}
@@ -0,0 +1,70 @@
+package com.bettercloud.secret_santa.entities;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+/**
+ * A draw submitted through the job API. Kept in the database so any instance can
+ * answer a poll, whichever instance runs the draw.
+ */
+@Entity
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Table(name = "draw_jobs")
+public class DrawJob {
+
+    @Id
+    @Column(name = "id", length = 36)
+    private String id;
+
+    @Column(name = "year")
+    private Integer year;
+
+    @Column(name = "participant_count")
+    private Integer participantCount;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "status", length = 16)
+    private DrawJobStatus status;
+
+    @Column(name = "created_at")
+    private Instant createdAt;
+
+    @Column(name = "started_at")
+    private Instant startedAt;
+
+    @Column(name = "finished_at")
+    private Instant finishedAt;
+
+    /**
+     * HTTP status code of the failure, when the job failed.
+     */
+    @Column(name = "error_code")
+    private Integer errorCode;
+
+    @Column(name = "error_message", length = 2000)
+    private String errorMessage;
+
+    /**
+     * The assignments as a JSON array, when the job succeeded.
+     */
+    @Column(name = "result", columnDefinition = "text")
+    private String result;
+
+    /**
+     * The message of the response, when the job succeeded and the draw returned one.
+     */
+    @Column(name = "result_message", length = 2000)
+    private String resultMessage;
+
+}
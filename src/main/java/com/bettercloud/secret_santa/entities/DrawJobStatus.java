@@ -0,0 +1,15 @@
+package com.bettercloud.secret_santa.entities;
+
+/**
+ * Lifecycle of a {@link DrawJob}: QUEUED -> RUNNING -> SUCCEEDED or FAILED.
+ */
+public enum DrawJobStatus {
+    QUEUED,
+    RUNNING,
+    SUCCEEDED,
+    FAILED;
+
+    public boolean isFinished() {
+        return this == SUCCEEDED || this == FAILED;
+    }
+}
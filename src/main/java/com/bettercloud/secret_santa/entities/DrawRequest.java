@@ -0,0 +1,49 @@
+package com.bettercloud.secret_santa.entities;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+/**
+ * The response of a draw, stored under its idempotency key so a retried request gets it back
+ * instead of drawing again.
+ */
+@Entity
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Table(name = "draw_requests")
+public class DrawRequest {
+
+    /**
+     * The Idempotency-Key header of the request, or {@code sha256:} and the hash of its content.
+     */
+    @Id
+    @Column(name = "idempotency_key", length = 255)
+    private String idempotencyKey;
+
+    @Column(name = "year")
+    private Integer year;
+
+    /**
+     * SHA-256 of the year and participant list, to reject a key reused for a different request.
+     */
+    @Column(name = "request_hash", length = 64)
+    private String requestHash;
+
+    @Column(name = "created_at")
+    private Instant createdAt;
+
+    /**
+     * The whole ApiResponseDTO as JSON.
+     */
+    @Column(name = "response", columnDefinition = "text")
+    private String response;
+
+}
@@ -5,6 +5,8 @@ import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.SequenceGenerator;
 import jakarta.persistence.Table;
 import lombok.AllArgsConstructor;
 import lombok.Data;
@@ -14,11 +16,13 @@ import lombok.NoArgsConstructor;
 @Data
 @AllArgsConstructor
 @NoArgsConstructor
-@Table(name = "log_assignments")
+@Table(name = "log_assignments",
+        indexes = @Index(name = "idx_log_assignments_year_id", columnList = "year, id"))
 public class LogAssignment {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "log_assignments_seq")
+    @SequenceGenerator(name = "log_assignments_seq", sequenceName = "log_assignments_seq", allocationSize = 50)
     @Column(name = "id")
     private Integer id;
 
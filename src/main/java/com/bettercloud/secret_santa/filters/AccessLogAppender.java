@@ -0,0 +1,130 @@
+package com.bettercloud.secret_santa.filters;
+
+import com.bettercloud.secret_santa.config.SecretSantaProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.slf4j.MDC;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Formats and writes access log events on a background thread.
+ * <p>
+ * Request threads only offer the event to a bounded queue. When the queue is full
+ * the event is dropped and counted in {@code secret_santa.access_log.dropped}, so a slow
+ * log destination can never hold up requests.
+ */
+@Slf4j
+@Component
+public class AccessLogAppender {
+
+    private static final String TRACK_ID = "x-track-id";
+    private static final String REMOTE_HOST = "remoteHost";
+    private static final int DRAIN_BATCH_SIZE = 256;
+
+    private final BlockingQueue<AccessLogEvent> queue;
+    private final Counter dropped;
+    private final Thread worker;
+    private volatile boolean running = true;
+
+    public AccessLogAppender(SecretSantaProperties properties, MeterRegistry meterRegistry) {
+        this.queue = new ArrayBlockingQueue<>(Math.max(1, properties.getAccessLog().getQueueCapacity()));
+        this.dropped = Counter.builder("secret_santa.access_log.dropped")
+                .description("Access log events dropped because the queue was full")
+                .register(meterRegistry);
+        Gauge.builder("secret_santa.access_log.queued", queue, BlockingQueue::size)
+                .description("Access log events waiting to be written")
+                .register(meterRegistry);
+        this.worker = new Thread(this::drain, "access-log");
+        this.worker.setDaemon(true);
+        this.worker.start();
+    }
+
+    /**
+     * Queues an event without blocking.
+     *
+     * @return false if the queue was full and the event was dropped
+     */
+    public boolean append(AccessLogEvent event) {
+        if (queue.offer(event)) {
+            return true;
+        }
+        dropped.increment();
+        return false;
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        running = false;
+        worker.join(TimeUnit.SECONDS.toMillis(5));
+    }
+
+    private void drain() {
+        List<AccessLogEvent> batch = new ArrayList<>(DRAIN_BATCH_SIZE);
+        while (running || !queue.isEmpty()) {
+            try {
+                AccessLogEvent first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, DRAIN_BATCH_SIZE - 1);
+                batch.forEach(this::write);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                log.warn("Could not write access log event", e);
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    /**
+     * Writes one event, with the MDC of the request it describes.
+     */
+    void write(AccessLogEvent event) {
+        MDC.put(TRACK_ID, event.getTraceId());
+        MDC.put(REMOTE_HOST, event.getRemoteHost());
+        try {
+            String message = format(event);
+            if (event.getStatus() < 400) {
+                log.info(message);
+            } else {
+                log.error(message);
+            }
+        } finally {
+            MDC.clear();
+        }
+    }
+
+    static String format(AccessLogEvent event) {
+        StringBuilder message = new StringBuilder(160)
+                .append("Request URL: ").append(event.getUrl())
+                .append(" | Method: ").append(event.getMethod())
+                .append(" | Headers: {");
+        String[] headers = event.getHeaders();
+        for (int i = 0; i < headers.length; i += 2) {
+            message.append('"').append(headers[i]).append("\": \"").append(headers[i + 1]).append("\", ");
+        }
+        message.append("} | Response Status: ").append(event.getStatus())
+                .append(" | Duration: ").append(event.getDurationMillis()).append(" ms");
+        if (event.getRequestBody() != null) {
+            message.append(" | Request Body: ").append(event.getRequestBody());
+        }
+        if (event.getResponseBody() != null) {
+            message.append(" | Response Body: ").append(event.getResponseBody());
+        }
+        return message.toString();
+    }
+
+}
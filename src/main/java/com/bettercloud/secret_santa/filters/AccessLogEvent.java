@@ -0,0 +1,33 @@
+package com.bettercloud.secret_santa.filters;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * One request as seen by the access log, captured on the request thread and
+ * formatted later by the {@link AccessLogAppender}.
+ */
+@Getter
+@AllArgsConstructor
+public class AccessLogEvent {
+
+    private final String traceId;
+    private final String remoteHost;
+    private final String method;
+    private final String url;
+
+    /**
+     * Allowed headers present on the request, as alternating name and value entries.
+     */
+    private final String[] headers;
+
+    private final int status;
+    private final long durationMillis;
+
+    /**
+     * Request and response bodies, only captured when body logging is enabled.
+     */
+    private final String requestBody;
+    private final String responseBody;
+
+}
@@ -1,7 +1,11 @@
 package com.bettercloud.secret_santa.filters;
 
-import lombok.extern.slf4j.Slf4j;
+import com.bettercloud.secret_santa.config.SecretSantaProperties;
+import com.bettercloud.secret_santa.ingest.ParticipantStreamParser;
 import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 
@@ -16,17 +20,21 @@ import org.springframework.web.util.ContentCachingResponseWrapper;
 import org.slf4j.MDC;
 
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Enumeration;
 import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ThreadLocalRandom;
 
 /**
- * Filter to log details of each request/response, including MDC for traceId
- * and use of ContentCaching wrappers to read both request and response data.
+ * Filter to log details of each request/response, including MDC for traceId.
  * <p>
- * This filter is triggered once per request.
+ * This filter is triggered once per request. It only captures an {@link AccessLogEvent} on
+ * the request thread; formatting and writing are left to the {@link AccessLogAppender}.
+ * Bodies are never buffered unless {@code secret-santa.access-log.include-bodies} is set,
+ * and successful requests can be sampled with {@code secret-santa.access-log.sample-rate}.
  */
-@Slf4j
 @Component
 @Order(1)
 public class LoggingFilter extends OncePerRequestFilter {
@@ -34,9 +42,27 @@ public class LoggingFilter extends OncePerRequestFilter {
     private static final String TRACK_ID_HEADER = "x-track-id";
     private static final String REMOTE_HOST = "remoteHost";
 
+    private final AccessLogAppender appender;
+    private final SecretSantaProperties.AccessLog settings;
+    private final String[] allowedHeaders;
+
+    public LoggingFilter(AccessLogAppender appender, SecretSantaProperties properties) {
+        this.appender = appender;
+        this.settings = properties.getAccessLog();
+        // Header lookups are case-insensitive, so the allowlist is resolved once, deduplicated
+        List<String> headers = new ArrayList<>();
+        for (String header : settings.getHeaders()) {
+            String name = header.toLowerCase(Locale.ROOT);
+            if (!headers.contains(name)) {
+                headers.add(name);
+            }
+        }
+        this.allowedHeaders = headers.toArray(new String[0]);
+    }
+
     /**
-     * Intercepts each request to log incoming headers and response status using MDC (Mapped Diagnostic Context).
-     * Wraps the request and response using ContentCaching wrappers to capture their content.
+     * Intercepts each request to put the traceId in the MDC (Mapped Diagnostic Context)
+     * and log its headers and response status.
      */
     @Override
     protected void doFilterInternal(
@@ -51,52 +77,113 @@ public class LoggingFilter extends OncePerRequestFilter {
         MDC.put(TRACK_ID_HEADER, traceId);
         MDC.put(REMOTE_HOST, request.getRemoteAddr());
 
-        ContentCachingRequestWrapper wrappedRequest = new ContentCachingRequestWrapper(request);
-        ContentCachingResponseWrapper wrappedResponse = new ContentCachingResponseWrapper(response);
-
-        filterChain.doFilter(wrappedRequest, wrappedResponse);
-        logRequestDetails(wrappedRequest, wrappedResponse);
+        long start = System.nanoTime();
+        HttpServletRequest loggedRequest = request;
+        HttpServletResponse loggedResponse = response;
+        if (settings.isIncludeBodies()) {
+            // Streamed uploads are parsed while they are read and streamed responses are written after this
+            // filter returns; caching either would hold the whole body in memory
+            if (!isStreamedUpload(request)) {
+                loggedRequest = new ContentCachingRequestWrapper(request, settings.getMaxBodyLength());
+            }
+            if (!acceptsStreamedResponse(request)) {
+                loggedResponse = new ContentCachingResponseWrapper(response);
+            }
+        }
 
-        wrappedResponse.copyBodyToResponse();
-        MDC.clear();
+        boolean failed = true;
+        try {
+            filterChain.doFilter(loggedRequest, loggedResponse);
+            failed = false;
+        } finally {
+            int status = failed ? failedStatus(loggedResponse) : loggedResponse.getStatus();
+            if (settings.isEnabled() && isSampled(status)) {
+                appender.append(toEvent(traceId, loggedRequest, loggedResponse, status, start));
+            }
+            if (loggedResponse instanceof ContentCachingResponseWrapper cachingResponse) {
+                cachingResponse.copyBodyToResponse();
+            }
+            MDC.clear();
+        }
     }
 
-    private String generarNuevoTraceId() {
-        return java.util.UUID.randomUUID().toString();
+    /**
+     * Errors are always logged; successful requests are kept with probability sampleRate.
+     */
+    private boolean isSampled(int status) {
+        double sampleRate = settings.getSampleRate();
+        return status >= 400 || sampleRate >= 1.0 || ThreadLocalRandom.current().nextDouble() < sampleRate;
     }
 
     /**
-     * Logs the method, URL, selected headers, and response status.
-     * Adjust as needed to include additional log info.
+     * The status of a request whose chain threw. Unless the response was already sent, the
+     * container answers it with its error page, a 500.
      */
-    private void logRequestDetails(ContentCachingRequestWrapper request, ContentCachingResponseWrapper response) {
-        Enumeration<String> headerNames = request.getHeaderNames();
-        List<String> headersPermitidos = Arrays.asList(TRACK_ID_HEADER, "user-agent", "host", "origin");
-
-        StringBuilder headersValues = new StringBuilder();
-        while (headerNames.hasMoreElements()) {
-            String headerName = headerNames.nextElement();
-            if (headersPermitidos.stream().anyMatch(h -> h.equalsIgnoreCase(headerName))) {
-                headersValues.append('"')
-                        .append(headerName)
-                        .append("\": \"")
-                        .append(request.getHeader(headerName))
-                        .append("\", ");
+    private static int failedStatus(HttpServletResponse response) {
+        return response.isCommitted() ? response.getStatus() : HttpServletResponse.SC_INTERNAL_SERVER_ERROR;
+    }
+
+    private AccessLogEvent toEvent(String traceId, HttpServletRequest request, HttpServletResponse response,
+                                   int status, long start) {
+        String[] headers = new String[allowedHeaders.length * 2];
+        int size = 0;
+        for (String name : allowedHeaders) {
+            String value = request.getHeader(name);
+            if (value != null) {
+                headers[size++] = name;
+                headers[size++] = value;
             }
         }
 
-        String logMessage = String.format(
-                "Request URL: %s | Method: %s | Headers: {%s} | Response Status: %d",
-                request.getRequestURL(),
+        String requestBody = request instanceof ContentCachingRequestWrapper cachingRequest
+                ? bodyText(cachingRequest.getContentAsByteArray()) : null;
+        String responseBody = response instanceof ContentCachingResponseWrapper cachingResponse
+                ? bodyText(cachingResponse.getContentAsByteArray()) : null;
+
+        return new AccessLogEvent(
+                traceId,
+                request.getRemoteAddr(),
                 request.getMethod(),
-                headersValues.toString(),
-                response.getStatus()
+                request.getRequestURL().toString(),
+                size == headers.length ? headers : Arrays.copyOf(headers, size),
+                status,
+                (System.nanoTime() - start) / 1_000_000,
+                requestBody,
+                responseBody
         );
+    }
 
-        if (response.getStatus() == 200) {
-            log.info(logMessage);
-        } else {
-            log.error(logMessage);
+    private String bodyText(byte[] content) {
+        int length = Math.min(content.length, settings.getMaxBodyLength());
+        return new String(content, 0, length, StandardCharsets.UTF_8);
+    }
+
+    private static boolean isStreamedUpload(HttpServletRequest request) {
+        String contentType = request.getContentType();
+        if (contentType == null) {
+            return false;
         }
+        try {
+            return ParticipantStreamParser.supports(MediaType.parseMediaType(contentType));
+        } catch (InvalidMediaTypeException e) {
+            return false;
+        }
+    }
+
+    private static boolean acceptsStreamedResponse(HttpServletRequest request) {
+        String accept = request.getHeader(HttpHeaders.ACCEPT);
+        if (accept == null) {
+            return false;
+        }
+        try {
+            return MediaType.parseMediaTypes(accept).stream()
+                    .anyMatch(mediaType -> mediaType.equalsTypeAndSubtype(MediaType.APPLICATION_NDJSON));
+        } catch (InvalidMediaTypeException e) {
+            return false;
+        }
+    }
+
+    private String generarNuevoTraceId() {
+        return java.util.UUID.randomUUID().toString();
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,225 @@
+package com.bettercloud.secret_santa.ingest;
+
+import com.bettercloud.secret_santa.dto.ParticipantRequestDTO;
+import com.bettercloud.secret_santa.exceptions.AppSecretSantaException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.csv.CsvMapper;
+import com.fasterxml.jackson.dataformat.csv.CsvParser;
+import com.fasterxml.jackson.dataformat.csv.CsvSchema;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Reads participants from an NDJSON or CSV upload with Jackson's streaming API.
+ * <p>
+ * Records are parsed token by token and handed over in chunks, so an upload of any size
+ * only keeps one chunk of DTOs in memory. Both formats go through the same token loop:
+ * the CSV parser reports each row as an object whose fields are named by the header row.
+ * <p>
+ * In NDJSON, {@code attributes} is an object of text values and {@code doNotPairWith} an array of
+ * emails. CSV has no nesting, so any other column is read as an attribute and {@code doNotPairWith}
+ * holds the emails separated by {@code ;}.
+ */
+@Component
+public class ParticipantStreamParser {
+
+    public static final MediaType APPLICATION_NDJSON = MediaType.APPLICATION_NDJSON;
+    public static final MediaType TEXT_CSV = new MediaType("text", "csv");
+
+    private static final String NAME = "name";
+    private static final String EMAIL = "email";
+    private static final String TEMP_FAMILY_ID = "tempFamilyId";
+    private static final String ATTRIBUTES = "attributes";
+    private static final String DO_NOT_PAIR_WITH = "doNotPairWith";
+
+    private final ObjectMapper objectMapper;
+    private final CsvMapper csvMapper = new CsvMapper();
+
+    public ParticipantStreamParser(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * @return true if uploads of this content type can be parsed
+     */
+    public static boolean supports(MediaType contentType) {
+        return contentType != null
+                && (APPLICATION_NDJSON.isCompatibleWith(contentType) || TEXT_CSV.isCompatibleWith(contentType));
+    }
+
+    /**
+     * Parses the upload and passes its participants to the consumer in chunks, in upload order.
+     *
+     * @param inputStream the request body
+     * @param contentType {@code application/x-ndjson}, or {@code text/csv} with a header row
+     *                    naming the columns {@code name}, {@code email}, {@code tempFamilyId},
+     *                    {@code doNotPairWith} and any attributes
+     * @param chunkSize   maximum number of participants per chunk
+     * @param chunks      called with each chunk; the list is not reused afterwards
+     * @throws AppSecretSantaException 400 if a record is malformed or has no email
+     */
+    public void parse(InputStream inputStream, MediaType contentType, int chunkSize,
+                      Consumer<List<ParticipantRequestDTO>> chunks) {
+        try (JsonParser parser = createParser(inputStream, contentType)) {
+            List<ParticipantRequestDTO> chunk = new ArrayList<>(chunkSize);
+            JsonToken token;
+            while ((token = parser.nextToken()) != null) {
+                if (token != JsonToken.START_OBJECT) {
+                    throw invalid("Expected one participant object per record", parser);
+                }
+                chunk.add(readParticipant(parser));
+                if (chunk.size() == chunkSize) {
+                    chunks.accept(chunk);
+                    chunk = new ArrayList<>(chunkSize);
+                }
+            }
+            if (!chunk.isEmpty()) {
+                chunks.accept(chunk);
+            }
+        } catch (JsonProcessingException e) {
+            throw new AppSecretSantaException("Malformed participant upload at line "
+                    + e.getLocation().getLineNr() + ": " + e.getOriginalMessage(),
+                    HttpStatus.BAD_REQUEST.value(), HttpStatus.BAD_REQUEST.name());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private JsonParser createParser(InputStream inputStream, MediaType contentType) throws IOException {
+        if (TEXT_CSV.isCompatibleWith(contentType)) {
+            CsvSchema schema = CsvSchema.emptySchema().withHeader();
+            return csvMapper.reader()
+                    .with(schema)
+                    .with(CsvParser.Feature.TRIM_SPACES)
+                    .createParser(inputStream);
+        }
+        // NDJSON is a sequence of root-level values, which the JSON parser reads one after another
+        return objectMapper.getFactory().createParser(inputStream);
+    }
+
+    /**
+     * Reads the fields of one record; the parser is positioned on its START_OBJECT.
+     */
+    private static ParticipantRequestDTO readParticipant(JsonParser parser) throws IOException {
+        int line = parser.currentTokenLocation().getLineNr();
+        ParticipantRequestDTO participant = new ParticipantRequestDTO();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            parser.nextToken();
+            switch (field) {
+                case NAME -> participant.setName(parser.getValueAsString());
+                case EMAIL -> participant.setEmail(parser.getValueAsString());
+                case TEMP_FAMILY_ID -> participant.setTempFamilyId(readFamilyId(parser, line));
+                case ATTRIBUTES -> participant.setAttributes(readAttributes(parser, line));
+                case DO_NOT_PAIR_WITH -> participant.setDoNotPairWith(readEmails(parser, line));
+                default -> {
+                    if (parser instanceof CsvParser) {
+                        putAttribute(participant, field, parser.getValueAsString());
+                    } else {
+                        parser.skipChildren();
+                    }
+                }
+            }
+        }
+
+        if (participant.getEmail() == null || participant.getEmail().isBlank()) {
+            throw invalid("Participant without email", line);
+        }
+        return participant;
+    }
+
+    /**
+     * Reads tempFamilyId, which CSV reports as text and NDJSON as a number or null.
+     */
+    private static Integer readFamilyId(JsonParser parser, int line) throws IOException {
+        String value = parser.getValueAsString();
+        if (value == null || value.isBlank()) {
+            return null;
+        }
+        try {
+            return Integer.valueOf(value.trim());
+        } catch (NumberFormatException e) {
+            throw invalid("Invalid tempFamilyId '" + value + "'", line);
+        }
+    }
+
+    /**
+     * Reads the attributes object of an NDJSON record; its values must be scalars.
+     */
+    private static Map<String, String> readAttributes(JsonParser parser, int line) throws IOException {
+        if (parser.currentToken() == JsonToken.VALUE_NULL) {
+            return null;
+        }
+        if (parser.currentToken() != JsonToken.START_OBJECT) {
+            throw invalid("attributes must be an object", line);
+        }
+        Map<String, String> attributes = new HashMap<>();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String name = parser.currentName();
+            if (!parser.nextToken().isScalarValue()) {
+                throw invalid("Attribute '" + name + "' must be a text value", line);
+            }
+            if (parser.currentToken() != JsonToken.VALUE_NULL) {
+                attributes.put(name, parser.getValueAsString());
+            }
+        }
+        return attributes;
+    }
+
+    /**
+     * Reads doNotPairWith: an array of emails in NDJSON, emails separated by ';' in CSV.
+     */
+    private static List<String> readEmails(JsonParser parser, int line) throws IOException {
+        List<String> emails = new ArrayList<>();
+        if (parser.currentToken() == JsonToken.START_ARRAY) {
+            while (parser.nextToken() != JsonToken.END_ARRAY) {
+                if (parser.currentToken() != JsonToken.VALUE_STRING) {
+                    throw invalid("doNotPairWith must only contain emails", line);
+                }
+                emails.add(parser.getText());
+            }
+        } else if (parser.currentToken() == JsonToken.VALUE_STRING) {
+            for (String email : parser.getText().split(";")) {
+                if (!email.isBlank()) {
+                    emails.add(email.trim());
+                }
+            }
+        } else if (parser.currentToken() != JsonToken.VALUE_NULL) {
+            throw invalid("doNotPairWith must be a list of emails", line);
+        }
+        return emails.isEmpty() ? null : emails;
+    }
+
+    private static void putAttribute(ParticipantRequestDTO participant, String name, String value) {
+        if (value == null || value.isBlank()) {
+            return;
+        }
+        if (participant.getAttributes() == null) {
+            participant.setAttributes(new HashMap<>());
+        }
+        participant.getAttributes().put(name, value);
+    }
+
+    private static AppSecretSantaException invalid(String message, JsonParser parser) {
+        return invalid(message, parser.currentTokenLocation().getLineNr());
+    }
+
+    private static AppSecretSantaException invalid(String message, int line) {
+        return new AppSecretSantaException(message + " at line " + line,
+                HttpStatus.BAD_REQUEST.value(), HttpStatus.BAD_REQUEST.name());
+    }
+
+}
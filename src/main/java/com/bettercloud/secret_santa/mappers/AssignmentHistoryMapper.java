@@ -0,0 +1,56 @@
+package com.bettercloud.secret_santa.mappers;
+
+import com.bettercloud.secret_santa.dto.HistoryEntryDTO;
+import com.bettercloud.secret_santa.repositories.AssignmentHistoryView;
+import com.fasterxml.jackson.core.JsonGenerator;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Utility class for converting assignment history projections to DTOs and NDJSON.
+ * <p>
+ * This class is not intended for instantiation.
+ */
+public class AssignmentHistoryMapper {
+
+    private AssignmentHistoryMapper() {
+        throw new IllegalStateException("This utility class cannot be instantiated.");
+    }
+
+    public static List<HistoryEntryDTO> toDtoList(List<AssignmentHistoryView> views) {
+        List<HistoryEntryDTO> dtoList = new ArrayList<>(views.size());
+        for (AssignmentHistoryView view : views) {
+            dtoList.add(new HistoryEntryDTO(
+                    view.getId(),
+                    view.getYear(),
+                    view.getGiverId(),
+                    view.getGiverName(),
+                    view.getGiverEmail(),
+                    view.getReceiverId(),
+                    view.getReceiverName(),
+                    view.getReceiverEmail()
+            ));
+        }
+        return dtoList;
+    }
+
+    /**
+     * Writes one entry as a HistoryEntryDTO object followed by a newline, without building the DTO.
+     */
+    public static void writeNdjson(AssignmentHistoryView view, JsonGenerator generator) throws IOException {
+        generator.writeStartObject();
+        generator.writeNumberField("logId", view.getId());
+        generator.writeNumberField("year", view.getYear());
+        generator.writeNumberField("giverId", view.getGiverId());
+        generator.writeStringField("giverName", view.getGiverName());
+        generator.writeStringField("giverEmail", view.getGiverEmail());
+        generator.writeNumberField("receiverId", view.getReceiverId());
+        generator.writeStringField("receiverName", view.getReceiverName());
+        generator.writeStringField("receiverEmail", view.getReceiverEmail());
+        generator.writeEndObject();
+        generator.writeRaw('\n');
+    }
+
+}
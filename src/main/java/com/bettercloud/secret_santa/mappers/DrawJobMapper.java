@@ -0,0 +1,40 @@
+package com.bettercloud.secret_santa.mappers;
+
+import com.bettercloud.secret_santa.dto.DrawJobDTO;
+import com.bettercloud.secret_santa.entities.DrawJob;
+
+import java.time.Instant;
+
+/**
+ * Utility class for converting DrawJob entities to DTOs.
+ * <p>
+ * This class is not intended for instantiation.
+ */
+public class DrawJobMapper {
+
+    private DrawJobMapper() {
+        throw new IllegalStateException("This utility class cannot be instantiated.");
+    }
+
+    /**
+     * Converts a DrawJob to the status returned by the job API, without its result.
+     */
+    public static DrawJobDTO toDto(DrawJob job) {
+        return new DrawJobDTO(
+                job.getId(),
+                job.getYear(),
+                job.getParticipantCount(),
+                job.getStatus(),
+                toText(job.getCreatedAt()),
+                toText(job.getStartedAt()),
+                toText(job.getFinishedAt()),
+                job.getErrorCode(),
+                job.getErrorMessage()
+        );
+    }
+
+    private static String toText(Instant instant) {
+        return instant == null ? null : instant.toString();
+    }
+
+}
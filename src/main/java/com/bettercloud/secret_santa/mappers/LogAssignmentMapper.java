@@ -2,10 +2,13 @@ package com.bettercloud.secret_santa.mappers;
 
 import com.bettercloud.secret_santa.dto.AssignmentResponseDTO;
 import com.bettercloud.secret_santa.entities.LogAssignment;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Map;
 
 /**
  * Utility class for mapping assignment structures to LogAssignment entities
@@ -20,18 +23,18 @@ public class LogAssignmentMapper {
     }
 
     /**
-     * Converts a map of (giverId -> receiverId) into a list of LogAssignment
-     * entities for the specified year.
+     * Converts a solver result (giver index -> receiver index) into a list of LogAssignment
+     * entities for the specified year, translating indices back to participant IDs.
+     *
+     * @param receiverOf     the receiver index assigned to each giver index
+     * @param participantIds the participant ID of each index
      */
-    public static List<LogAssignment> fromFinalAssignments(Map<Integer, Integer> finalAssignments, int currentYear) {
-        List<LogAssignment> logsToSave = new ArrayList<>();
-        for (Map.Entry<Integer, Integer> entry : finalAssignments.entrySet()) {
-            Integer giverId = entry.getKey();
-            Integer receiverId = entry.getValue();
-
+    public static List<LogAssignment> fromFinalAssignments(int[] receiverOf, int[] participantIds, int currentYear) {
+        List<LogAssignment> logsToSave = new ArrayList<>(receiverOf.length);
+        for (int giver = 0; giver < receiverOf.length; giver++) {
             LogAssignment log = new LogAssignment();
-            log.setGiverId(giverId);
-            log.setReceiverId(receiverId);
+            log.setGiverId(participantIds[giver]);
+            log.setReceiverId(participantIds[receiverOf[giver]]);
             log.setYear(currentYear);
 
             logsToSave.add(log);
@@ -43,16 +46,61 @@ public class LogAssignmentMapper {
      * Converts a list of LogAssignment entities to a list of AssignmentResponseDTO objects.
      */
     public static List<AssignmentResponseDTO> toDtoList(List<LogAssignment> assignments) {
-        List<AssignmentResponseDTO> dtoList = new ArrayList<>();
-        for (LogAssignment log : assignments) {
+        return toDtoList(assignments, null);
+    }
+
+    /**
+     * Same as {@link #toDtoList(List)}, with the penalty of each assignment.
+     *
+     * @param penalties the penalty of each assignment, indexed like assignments, or null
+     */
+    public static List<AssignmentResponseDTO> toDtoList(List<LogAssignment> assignments, int[] penalties) {
+        List<AssignmentResponseDTO> dtoList = new ArrayList<>(assignments.size());
+        for (int i = 0; i < assignments.size(); i++) {
+            LogAssignment log = assignments.get(i);
             dtoList.add(new AssignmentResponseDTO(
                     log.getId(),
                     log.getGiverId(),
-                    log.getReceiverId()
+                    log.getReceiverId(),
+                    penalties != null ? penalties[i] : null
             ));
         }
         return dtoList;
     }
 
+    /**
+     * Writes the assignments as NDJSON, one AssignmentResponseDTO object per line, straight
+     * from the entities: neither the DTO list nor the serialized body is built in memory.
+     * The output stream is left open.
+     */
+    public static void writeNdjson(List<LogAssignment> assignments, JsonFactory jsonFactory, OutputStream out)
+            throws IOException {
+        writeNdjson(assignments, null, jsonFactory, out);
+    }
+
+    /**
+     * Same as {@link #writeNdjson(List, JsonFactory, OutputStream)}, with the penalty of each assignment.
+     *
+     * @param penalties the penalty of each assignment, indexed like assignments, or null
+     */
+    public static void writeNdjson(List<LogAssignment> assignments, int[] penalties, JsonFactory jsonFactory,
+                                   OutputStream out) throws IOException {
+        try (JsonGenerator generator = jsonFactory.createGenerator(out)
+                .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+                .setRootValueSeparator(null)) {
+            for (int i = 0; i < assignments.size(); i++) {
+                LogAssignment log = assignments.get(i);
+                generator.writeStartObject();
+                generator.writeNumberField("logId", log.getId());
+                generator.writeNumberField("giverId", log.getGiverId());
+                generator.writeNumberField("receiverId", log.getReceiverId());
+                if (penalties != null) {
+                    generator.writeNumberField("penalty", penalties[i]);
+                }
+                generator.writeEndObject();
+                generator.writeRaw('\n');
+            }
+        }
+    }
 
 }
@@ -0,0 +1,132 @@
+package com.bettercloud.secret_santa.metrics;
+
+import com.bettercloud.secret_santa.solver.SolveBudget;
+import com.bettercloud.secret_santa.solver.SolverStrategy;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Meters of the draw pipeline, published through the Actuator endpoints.
+ * <p>
+ * Timers carry a percentile histogram, so p99 can be computed (and alerted on) from the
+ * Prometheus buckets across instances:
+ * <ul>
+ *     <li>{@code secret_santa.draw}: a whole draw, tagged with its strategy and outcome</li>
+ *     <li>{@code secret_santa.draw.phase}: each phase of a draw (upsert, history, compile, solve, persist)</li>
+ *     <li>{@code secret_santa.draw.statements}: Hibernate statements issued by a draw</li>
+ *     <li>{@code secret_santa.solver.nodes/backtracks/pruned}: search work of each solve, by strategy</li>
+ * </ul>
+ */
+@Component
+public class DrawMetrics {
+
+    public enum Phase {
+        UPSERT,
+        HISTORY,
+        COMPILE,
+        SOLVE,
+        PERSIST
+    }
+
+    private final MeterRegistry registry;
+    private final StatementCounter statementCounter;
+    private final Map<Phase, Timer> phaseTimers = new EnumMap<>(Phase.class);
+    private final DistributionSummary statements;
+
+    public DrawMetrics(MeterRegistry registry, StatementCounter statementCounter) {
+        this.registry = registry;
+        this.statementCounter = statementCounter;
+        for (Phase phase : Phase.values()) {
+            phaseTimers.put(phase, Timer.builder("secret_santa.draw.phase")
+                    .description("Time spent in each phase of a draw")
+                    .tag("phase", tagValue(phase))
+                    .publishPercentileHistogram()
+                    .register(registry));
+        }
+        this.statements = DistributionSummary.builder("secret_santa.draw.statements")
+                .description("SQL statements issued by Hibernate during a draw")
+                .publishPercentileHistogram()
+                .register(registry);
+    }
+
+    /**
+     * Runs one phase of a draw and records its duration, whether it completes or throws.
+     */
+    public <T> T time(Phase phase, Supplier<T> work) {
+        return phaseTimers.get(phase).record(work);
+    }
+
+    /**
+     * Starts measuring a draw on the current thread.
+     */
+    public Draw startDraw() {
+        return new Draw(Timer.start(registry), statementCounter.current());
+    }
+
+    /**
+     * Records a finished draw.
+     *
+     * @param draw     the value returned by {@link #startDraw()}
+     * @param strategy the solver strategy used
+     * @param outcome  {@code success}, {@code relaxed} for a draw that had to repeat recent pairs,
+     *                 or the lower-case HTTP status name of the failure
+     */
+    public void stopDraw(Draw draw, SolverStrategy strategy, String outcome) {
+        draw.sample.stop(Timer.builder("secret_santa.draw")
+                .description("Time to compute and store a draw")
+                .tag("strategy", tagValue(strategy))
+                .tag("outcome", outcome)
+                .publishPercentileHistogram()
+                .register(registry));
+        statements.record(statementCounter.current() - draw.statementsAtStart);
+    }
+
+    /**
+     * Records the search work of a solve, including solves that ran out of budget.
+     */
+    public void recordSolve(SolverStrategy strategy, SolveBudget budget) {
+        String strategyTag = tagValue(strategy);
+        DistributionSummary.builder("secret_santa.solver.nodes")
+                .description("Search nodes explored per solve")
+                .tag("strategy", strategyTag)
+                .publishPercentileHistogram()
+                .register(registry)
+                .record(budget.totalNodes());
+        DistributionSummary.builder("secret_santa.solver.backtracks")
+                .description("Choices undone per solve")
+                .tag("strategy", strategyTag)
+                .register(registry)
+                .record(budget.backtracks());
+        DistributionSummary.builder("secret_santa.solver.pruned")
+                .description("Candidates rejected by the constraints per solve")
+                .tag("strategy", strategyTag)
+                .register(registry)
+                .record(budget.pruned());
+    }
+
+    private static String tagValue(Enum<?> value) {
+        return value.name().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * A draw being measured.
+     */
+    public static final class Draw {
+
+        private final Timer.Sample sample;
+        private final long statementsAtStart;
+
+        private Draw(Timer.Sample sample, long statementsAtStart) {
+            this.sample = sample;
+            this.statementsAtStart = statementsAtStart;
+        }
+    }
+
+}
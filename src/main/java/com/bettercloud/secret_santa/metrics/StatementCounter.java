@@ -0,0 +1,40 @@
+package com.bettercloud.secret_santa.metrics;
+
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+/**
+ * Counts the SQL statements Hibernate prepares on each thread.
+ * <p>
+ * Registered as the session factory's statement inspector; callers read {@link #current()}
+ * before and after a unit of work and record the difference. Statements issued directly
+ * through JDBC (sequence reservations and COPY of large draws) are not seen here.
+ */
+@Component
+public class StatementCounter implements StatementInspector, HibernatePropertiesCustomizer {
+
+    private final ThreadLocal<long[]> count = ThreadLocal.withInitial(() -> new long[1]);
+
+    @Override
+    public String inspect(String sql) {
+        count.get()[0]++;
+        return sql;
+    }
+
+    @Override
+    public void customize(Map<String, Object> hibernateProperties) {
+        hibernateProperties.put(AvailableSettings.STATEMENT_INSPECTOR, this);
+    }
+
+    /**
+     * @return the number of statements prepared so far by the current thread
+     */
+    public long current() {
+        return count.get()[0];
+    }
+
+}
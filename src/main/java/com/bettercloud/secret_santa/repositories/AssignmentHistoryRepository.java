@@ -0,0 +1,32 @@
+package com.bettercloud.secret_santa.repositories;
+
+import org.springframework.data.domain.Pageable;
+
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * History reads of {@link LogAssignmentRepository}, whose queries are built from the filters
+ * actually given (see {@link AssignmentHistoryRepositoryImpl}).
+ */
+public interface AssignmentHistoryRepository {
+
+    /**
+     * Returns the next page of assignment history after the (afterYear, afterId) position,
+     * in (year, id) order, with the names and emails of both participants.
+     * <p>
+     * Keyset pagination: the page is found by seeking past the last row of the previous one,
+     * so every page costs the same no matter how deep it is. Null filters are ignored.
+     * Pass {@link Integer#MIN_VALUE} as the position for the first page, and the page size
+     * through the Pageable (its sort is ignored).
+     */
+    List<AssignmentHistoryView> findHistoryPage(Integer year, Integer giverId, Integer receiverId,
+                                                int afterYear, int afterId, Pageable pageable);
+
+    /**
+     * Streams the whole assignment history matching the filters, in (year, id) order, over a
+     * forward-only cursor fetched in batches. Must be consumed and closed inside a transaction.
+     */
+    Stream<AssignmentHistoryView> streamHistory(Integer year, Integer giverId, Integer receiverId);
+
+}
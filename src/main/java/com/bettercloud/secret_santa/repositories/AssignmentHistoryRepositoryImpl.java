@@ -0,0 +1,119 @@
+package com.bettercloud.secret_santa.repositories;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Tuple;
+import jakarta.persistence.TypedQuery;
+import lombok.Value;
+import org.springframework.data.domain.Pageable;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.HibernateHints.HINT_READ_ONLY;
+
+/**
+ * Builds the history queries with only the conditions of the filters that were given, rather
+ * than with {@code :filter IS NULL OR ...} catch-alls, which keep the planner from using an
+ * index on the filtered column or from pruning the yearly partitions of log_assignments.
+ * <p>
+ * Pages seek past their cursor with a row-value comparison on (year, id), so a page starts
+ * with an index range scan right at the cursor. The redundant {@code year >= :afterYear}
+ * lets PostgreSQL skip the partitions of the years before it.
+ */
+class AssignmentHistoryRepositoryImpl implements AssignmentHistoryRepository {
+
+    private static final String SELECT = """
+        SELECT la.id, la.year, g.id, g.name, g.email, r.id, r.name, r.email
+        FROM LogAssignment la
+        JOIN Participant g ON g.id = la.giverId
+        JOIN Participant r ON r.id = la.receiverId
+        """;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<AssignmentHistoryView> findHistoryPage(Integer year, Integer giverId, Integer receiverId,
+                                                       int afterYear, int afterId, Pageable pageable) {
+        List<String> conditions = new ArrayList<>();
+        Map<String, Object> parameters = filters(conditions, year, giverId, receiverId);
+        if (afterYear != Integer.MIN_VALUE || afterId != Integer.MIN_VALUE) {
+            conditions.add("la.year >= :afterYear");
+            conditions.add("(la.year, la.id) > (:afterYear, :afterId)");
+            parameters.put("afterYear", afterYear);
+            parameters.put("afterId", afterId);
+        }
+
+        return query(conditions, parameters)
+                .setMaxResults(pageable.getPageSize())
+                .getResultStream()
+                .map(AssignmentHistoryRepositoryImpl::toView)
+                .toList();
+    }
+
+    @Override
+    public Stream<AssignmentHistoryView> streamHistory(Integer year, Integer giverId, Integer receiverId) {
+        List<String> conditions = new ArrayList<>();
+        Map<String, Object> parameters = filters(conditions, year, giverId, receiverId);
+
+        return query(conditions, parameters)
+                .setHint(HINT_FETCH_SIZE, 1000)
+                .setHint(HINT_READ_ONLY, true)
+                .getResultStream()
+                .map(AssignmentHistoryRepositoryImpl::toView);
+    }
+
+    /**
+     * Adds a condition per given filter and returns their parameters.
+     */
+    private static Map<String, Object> filters(List<String> conditions, Integer year, Integer giverId,
+                                               Integer receiverId) {
+        Map<String, Object> parameters = new LinkedHashMap<>();
+        if (year != null) {
+            conditions.add("la.year = :year");
+            parameters.put("year", year);
+        }
+        if (giverId != null) {
+            conditions.add("la.giverId = :giverId");
+            parameters.put("giverId", giverId);
+        }
+        if (receiverId != null) {
+            conditions.add("la.receiverId = :receiverId");
+            parameters.put("receiverId", receiverId);
+        }
+        return parameters;
+    }
+
+    private TypedQuery<Tuple> query(List<String> conditions, Map<String, Object> parameters) {
+        String jpql = SELECT
+                + (conditions.isEmpty() ? "" : "WHERE " + String.join("\n  AND ", conditions) + "\n")
+                + "ORDER BY la.year, la.id";
+        TypedQuery<Tuple> query = entityManager.createQuery(jpql, Tuple.class);
+        parameters.forEach(query::setParameter);
+        return query;
+    }
+
+    private static AssignmentHistoryView toView(Tuple row) {
+        return new HistoryRow(row.get(0, Integer.class), row.get(1, Integer.class),
+                row.get(2, Integer.class), row.get(3, String.class), row.get(4, String.class),
+                row.get(5, Integer.class), row.get(6, String.class), row.get(7, String.class));
+    }
+
+    @Value
+    private static class HistoryRow implements AssignmentHistoryView {
+        Integer id;
+        Integer year;
+        Integer giverId;
+        String giverName;
+        String giverEmail;
+        Integer receiverId;
+        String receiverName;
+        String receiverEmail;
+    }
+
+}
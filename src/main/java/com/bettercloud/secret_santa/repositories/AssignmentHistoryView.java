@@ -0,0 +1,25 @@
+package com.bettercloud.secret_santa.repositories;
+
+/**
+ * Projection of an assignment joined with both of its participants, read in a single
+ * query without loading LogAssignment or Participant entities.
+ */
+public interface AssignmentHistoryView {
+
+    Integer getId();
+
+    Integer getYear();
+
+    Integer getGiverId();
+
+    String getGiverName();
+
+    String getGiverEmail();
+
+    Integer getReceiverId();
+
+    String getReceiverName();
+
+    String getReceiverEmail();
+
+}
@@ -0,0 +1,15 @@
+package com.bettercloud.secret_santa.repositories;
+
+/**
+ * Projection of a (giver, receiver) pair and its year read from log_assignments,
+ * without loading the full LogAssignment entity.
+ */
+public interface AssignmentPairView {
+
+    Integer getGiverId();
+
+    Integer getReceiverId();
+
+    Integer getYear();
+
+}
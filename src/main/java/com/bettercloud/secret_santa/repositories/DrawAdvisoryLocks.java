@@ -0,0 +1,41 @@
+package com.bettercloud.secret_santa.repositories;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import javax.sql.DataSource;
+import java.util.Arrays;
+import java.util.stream.Collectors;
+
+/**
+ * PostgreSQL transaction-level advisory locks on (year, key) pairs, which serialize draws
+ * across instances. They are released when the transaction ends, so a crashed instance never
+ * leaves one behind. On other databases locking is skipped.
+ */
+@Repository
+public class DrawAdvisoryLocks {
+
+    private final DataSource dataSource;
+    private final JdbcTemplate jdbcTemplate;
+
+    public DrawAdvisoryLocks(DataSource dataSource, JdbcTemplate jdbcTemplate) {
+        this.dataSource = dataSource;
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Blocks until the current transaction holds the lock of every (year, key) pair, taken in
+     * increasing key order with a single statement, so two callers never deadlock.
+     */
+    public void lock(int year, int[] keys) {
+        if (keys.length == 0 || !PostgresConnections.isPostgres(dataSource)) {
+            return;
+        }
+        int[] sorted = Arrays.stream(keys).sorted().distinct().toArray();
+        String array = Arrays.stream(sorted).mapToObj(Integer::toString).collect(Collectors.joining(",", "{", "}"));
+        jdbcTemplate.queryForObject(
+                "SELECT COUNT(pg_advisory_xact_lock(?, key)) FROM unnest(?::int[]) AS locks(key)",
+                Long.class, year, array);
+    }
+
+}
@@ -0,0 +1,9 @@
+package com.bettercloud.secret_santa.repositories;
+
+import com.bettercloud.secret_santa.entities.DrawJob;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface DrawJobRepository extends JpaRepository<DrawJob, String> {
+}
@@ -0,0 +1,31 @@
+package com.bettercloud.secret_santa.repositories;
+
+import com.bettercloud.secret_santa.entities.DrawRequest;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+
+@Repository
+public interface DrawRequestRepository extends JpaRepository<DrawRequest, String> {
+
+    /**
+     * Inserts the stored response of a draw request. Unlike save, which would overwrite a row
+     * stored meanwhile by another instance, a key that already exists fails on the primary key.
+     *
+     * @throws org.springframework.dao.DataIntegrityViolationException if the key is already stored
+     */
+    @Modifying
+    @Query(value = """
+        INSERT INTO draw_requests (idempotency_key, year, request_hash, created_at, response)
+        VALUES (:idempotencyKey, :year, :requestHash, :createdAt, :response)
+        """, nativeQuery = true)
+    void insert(@Param("idempotencyKey") String idempotencyKey,
+                @Param("year") int year,
+                @Param("requestHash") String requestHash,
+                @Param("createdAt") Instant createdAt,
+                @Param("response") String response);
+}
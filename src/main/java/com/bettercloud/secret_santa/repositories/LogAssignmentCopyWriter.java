@@ -0,0 +1,88 @@
+package com.bettercloud.secret_santa.repositories;
+
+import com.bettercloud.secret_santa.entities.LogAssignment;
+import jakarta.persistence.EntityManager;
+import org.postgresql.PGConnection;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceUtils;
+import org.springframework.stereotype.Repository;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.StringReader;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Bulk write path for very large draws, streaming log_assignments rows through
+ * PostgreSQL {@code COPY ... FROM STDIN} in a single statement.
+ * <p>
+ * IDs are reserved from {@code log_assignments_seq} the same way Hibernate's pooled
+ * optimizer does (see {@link PooledSequence}), so rows written here never collide with rows
+ * saved through JPA, and the IDs are set on the entities so callers can still return them.
+ * The COPY runs on the connection of the current transaction.
+ */
+@Repository
+public class LogAssignmentCopyWriter {
+
+    private final DataSource dataSource;
+    private final JdbcTemplate jdbcTemplate;
+    private final EntityManager entityManager;
+
+    public LogAssignmentCopyWriter(DataSource dataSource, JdbcTemplate jdbcTemplate, EntityManager entityManager) {
+        this.dataSource = dataSource;
+        this.jdbcTemplate = jdbcTemplate;
+        this.entityManager = entityManager;
+    }
+
+    /**
+     * @return true if the database behind the current transaction supports COPY
+     */
+    public boolean isSupported() {
+        return PostgresConnections.isPostgres(dataSource);
+    }
+
+    /**
+     * Assigns IDs to the given entities and writes them with a single COPY.
+     *
+     * @param logs entities without ID; their ID is set by this method
+     */
+    public void copy(List<LogAssignment> logs) {
+        if (logs.isEmpty()) {
+            return;
+        }
+        // Participants created in this transaction must be visible to the COPY
+        entityManager.flush();
+
+        assignIds(logs);
+
+        StringBuilder rows = new StringBuilder(logs.size() * 32);
+        for (LogAssignment log : logs) {
+            rows.append(log.getId()).append('\t')
+                    .append(log.getGiverId()).append('\t')
+                    .append(log.getReceiverId()).append('\t')
+                    .append(log.getYear()).append('\n');
+        }
+
+        Connection connection = DataSourceUtils.getConnection(dataSource);
+        try {
+            connection.unwrap(PGConnection.class).getCopyAPI().copyIn(
+                    "COPY log_assignments (id, giver_id, receiver_id, year) FROM STDIN",
+                    new StringReader(rows.toString()));
+        } catch (SQLException | IOException e) {
+            throw new IllegalStateException("COPY into log_assignments failed", e);
+        } finally {
+            DataSourceUtils.releaseConnection(connection, dataSource);
+        }
+    }
+
+    private void assignIds(List<LogAssignment> logs) {
+        Iterator<Integer> ids = PooledSequence.reserve(jdbcTemplate, "log_assignments_seq", logs.size()).iterator();
+        for (LogAssignment log : logs) {
+            log.setId(ids.next());
+        }
+    }
+
+}
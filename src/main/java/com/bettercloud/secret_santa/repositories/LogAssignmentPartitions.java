@@ -0,0 +1,58 @@
+package com.bettercloud.secret_santa.repositories;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Creates the yearly partitions of the PostgreSQL log_assignments table, through the
+ * ensure_log_assignments_partition function of the V2 migration, before the first assignment of
+ * a year is written. Years already known to have a partition are remembered, so only the first
+ * write of a year per instance pays for the call. On other databases the table is not
+ * partitioned and nothing is done.
+ * <p>
+ * Attaching a partition locks the whole log_assignments table until its transaction ends, so the
+ * partition is created in a transaction of its own, committed before the draw's write transaction
+ * starts, rather than holding that lock for the rest of the draw.
+ */
+@Repository
+public class LogAssignmentPartitions {
+
+    private final DataSource dataSource;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final Set<Integer> ensuredYears = ConcurrentHashMap.newKeySet();
+
+    public LogAssignmentPartitions(DataSource dataSource, JdbcTemplate jdbcTemplate,
+                                   PlatformTransactionManager transactionManager) {
+        this.dataSource = dataSource;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    /**
+     * Makes sure the partition of the year exists, creating it in a new transaction that commits
+     * before this returns. Must be called before the write transaction of the year's assignments,
+     * never from a transaction that has already read log_assignments, which the creation would
+     * wait for.
+     */
+    public void ensureYear(int year) {
+        if (ensuredYears.contains(year)) {
+            return;
+        }
+        transactionTemplate.executeWithoutResult(status -> {
+            if (PostgresConnections.isPostgres(dataSource)) {
+                jdbcTemplate.queryForObject("SELECT 1 FROM ensure_log_assignments_partition(?)", Integer.class, year);
+            }
+        });
+        ensuredYears.add(year);
+    }
+
+}
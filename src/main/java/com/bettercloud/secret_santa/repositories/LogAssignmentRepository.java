@@ -2,28 +2,108 @@ package com.bettercloud.secret_santa.repositories;
 
 import com.bettercloud.secret_santa.entities.LogAssignment;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
+
 @Repository
-public interface LogAssignmentRepository extends JpaRepository<LogAssignment, Integer> {
+public interface LogAssignmentRepository extends JpaRepository<LogAssignment, Integer>, AssignmentHistoryRepository {
 
     /**
-     * Returns how many times a giver has assigned a gift to a receiver
-     * in the last 3 years (including the provided limit year).
+     * Returns every (giver, receiver, year) assignment since the provided limit year
+     * (inclusive) whose giver is one of the given participants.
+     * <p>
+     * Used to load the whole lookback window of a draw in a single round-trip.
      */
     @Query(value = """
-        SELECT COUNT(*)
+        SELECT giver_id AS giverId,
+               receiver_id AS receiverId,
+               year AS year
         FROM log_assignments
-        WHERE giver_id = :giverId
-          AND receiver_id = :receiverId
+        WHERE giver_id IN (:giverIds)
           AND year >= :yearLimit
         """,
             nativeQuery = true)
-    int countRecentAssignments(
-            @Param("giverId") Integer giverId,
-            @Param("receiverId") Integer receiverId,
+    List<AssignmentPairView> findRecentPairs(
+            @Param("giverIds") Collection<Integer> giverIds,
             @Param("yearLimit") Integer yearLimit
     );
+
+    /**
+     * Returns how many assignments of the given year have one of the given participants as giver.
+     */
+    long countByYearAndGiverIdIn(Integer year, Collection<Integer> giverIds);
+
+    /**
+     * Returns the giver of every assignment of the given year whose giver is one of the given
+     * participants, once per assignment, so the counts of several draws come from one query.
+     */
+    @Query("SELECT la.giverId FROM LogAssignment la WHERE la.year = :year AND la.giverId IN (:giverIds)")
+    List<Integer> findGiverIdsByYear(
+            @Param("year") Integer year,
+            @Param("giverIds") Collection<Integer> giverIds
+    );
+
+    /**
+     * Returns the assignments of the given year whose giver is one of the given participants.
+     */
+    List<LogAssignment> findByYearAndGiverIdIn(Integer year, Collection<Integer> giverIds);
+
+    /**
+     * Returns the assignments of the given year whose receiver is one of the given participants.
+     */
+    List<LogAssignment> findByYearAndReceiverIdIn(Integer year, Collection<Integer> receiverIds);
+
+    /**
+     * Gives an assignment a new receiver, only if it still has the expected one.
+     *
+     * @return 1 if the row was updated, 0 if it was changed or deleted meanwhile
+     */
+    @Modifying
+    @Query("""
+        UPDATE LogAssignment la
+        SET la.receiverId = :receiverId
+        WHERE la.id = :id
+          AND la.receiverId = :expectedReceiverId
+        """)
+    int updateReceiver(
+            @Param("id") Integer id,
+            @Param("expectedReceiverId") Integer expectedReceiverId,
+            @Param("receiverId") Integer receiverId
+    );
+
+    /**
+     * Deletes the assignments with the given IDs.
+     *
+     * @return the number of rows deleted
+     */
+    @Modifying
+    @Query("DELETE FROM LogAssignment la WHERE la.id IN (:ids)")
+    int deleteByIdIn(@Param("ids") Collection<Integer> ids);
+
+    /**
+     * Returns the receivers assigned to the participant with the given email in the given year,
+     * with their details. Usually one row; more if the participant joined several draws that year.
+     */
+    @Query(value = """
+        SELECT la.giver_id AS giverId,
+               la.receiver_id AS receiverId,
+               r.name AS receiverName,
+               r.email AS receiverEmail
+        FROM log_assignments la
+        JOIN participants g ON g.id = la.giver_id
+        JOIN participants r ON r.id = la.receiver_id
+        WHERE g.email = :giverEmail
+          AND la.year = :year
+        ORDER BY la.id
+        """,
+            nativeQuery = true)
+    List<RecipientView> findRecipients(
+            @Param("giverEmail") String giverEmail,
+            @Param("year") Integer year
+    );
 }
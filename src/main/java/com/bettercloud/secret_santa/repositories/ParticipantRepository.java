@@ -4,9 +4,10 @@ import com.bettercloud.secret_santa.entities.Participant;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 
-import java.util.Optional;
+import java.util.Collection;
+import java.util.List;
 
 @Repository
 public interface ParticipantRepository extends JpaRepository<Participant, Integer> {
-    Optional<Participant> findByEmail(String email);
+    List<Participant> findByEmailIn(Collection<String> emails);
 }
@@ -0,0 +1,61 @@
+package com.bettercloud.secret_santa.repositories;
+
+import com.bettercloud.secret_santa.entities.Participant;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Creates participants with {@code INSERT ... ON CONFLICT (email) DO NOTHING}, so two draws
+ * creating the same new participant at the same time both succeed: the second insert waits for
+ * the first one's transaction and skips the row, instead of failing on the unique email.
+ * Callers read the rows back by email to get the IDs of both.
+ * <p>
+ * IDs are reserved from {@code participants_seq} like Hibernate does (see {@link PooledSequence}),
+ * and the inserts run on the connection of the current transaction.
+ */
+@Repository
+public class ParticipantUpsertWriter {
+
+    private final DataSource dataSource;
+    private final JdbcTemplate jdbcTemplate;
+
+    public ParticipantUpsertWriter(DataSource dataSource, JdbcTemplate jdbcTemplate) {
+        this.dataSource = dataSource;
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * @return true if the database behind the current transaction supports ON CONFLICT
+     */
+    public boolean isSupported() {
+        return PostgresConnections.isPostgres(dataSource);
+    }
+
+    /**
+     * Inserts the participants whose email is not taken yet, in one JDBC batch. The entities are
+     * left untouched; the skipped ones belong to a concurrent draw that created them first.
+     */
+    public void insertMissing(List<Participant> participants) {
+        if (participants.isEmpty()) {
+            return;
+        }
+        // Inserting in email order makes concurrent upserts wait for each other instead of deadlocking
+        List<Participant> sorted = new ArrayList<>(participants);
+        sorted.sort(Comparator.comparing(Participant::getEmail));
+
+        Iterator<Integer> ids = PooledSequence.reserve(jdbcTemplate, "participants_seq", sorted.size()).iterator();
+        List<Object[]> rows = new ArrayList<>(sorted.size());
+        for (Participant participant : sorted) {
+            rows.add(new Object[]{ids.next(), participant.getName(), participant.getEmail()});
+        }
+        jdbcTemplate.batchUpdate(
+                "INSERT INTO participants (id, name, email) VALUES (?, ?, ?) ON CONFLICT (email) DO NOTHING", rows);
+    }
+
+}
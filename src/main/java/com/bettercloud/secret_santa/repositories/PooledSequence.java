@@ -0,0 +1,42 @@
+package com.bettercloud.secret_santa.repositories;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reserves IDs from a pooled sequence the same way Hibernate's pooled optimizer does: every
+ * value {@code hi} returned by the sequence owns the block {@code (hi - 49 .. hi)}, so IDs
+ * reserved here never collide with the ones Hibernate hands out.
+ * <p>
+ * This class is not intended for instantiation.
+ */
+final class PooledSequence {
+
+    static final int ALLOCATION_SIZE = 50;
+
+    private PooledSequence() {
+        throw new IllegalStateException("This utility class cannot be instantiated.");
+    }
+
+    /**
+     * @return at least {@code count} unused IDs, in increasing order within each block
+     */
+    static List<Integer> reserve(JdbcTemplate jdbcTemplate, String sequenceName, int count) {
+        List<Integer> ids = new ArrayList<>(count + ALLOCATION_SIZE);
+        while (ids.size() < count) {
+            // Only the very first value of the sequence owns a smaller block, hence the loop
+            int blocks = (count - ids.size() + ALLOCATION_SIZE - 1) / ALLOCATION_SIZE;
+            List<Long> hiValues = jdbcTemplate.queryForList(
+                    "SELECT nextval('" + sequenceName + "') FROM generate_series(1, ?)", Long.class, blocks);
+            for (Long hi : hiValues) {
+                for (long id = Math.max(1, hi - ALLOCATION_SIZE + 1); id <= hi; id++) {
+                    ids.add((int) id);
+                }
+            }
+        }
+        return ids;
+    }
+
+}
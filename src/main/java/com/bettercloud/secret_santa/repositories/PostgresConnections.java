@@ -0,0 +1,35 @@
+package com.bettercloud.secret_santa.repositories;
+
+import org.postgresql.PGConnection;
+import org.springframework.jdbc.datasource.DataSourceUtils;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * Tells the PostgreSQL-only write paths whether they can run.
+ * <p>
+ * This class is not intended for instantiation.
+ */
+final class PostgresConnections {
+
+    private PostgresConnections() {
+        throw new IllegalStateException("This utility class cannot be instantiated.");
+    }
+
+    /**
+     * @return true if the database behind the current transaction is PostgreSQL
+     */
+    static boolean isPostgres(DataSource dataSource) {
+        Connection connection = DataSourceUtils.getConnection(dataSource);
+        try {
+            return connection.isWrapperFor(PGConnection.class);
+        } catch (SQLException e) {
+            return false;
+        } finally {
+            DataSourceUtils.releaseConnection(connection, dataSource);
+        }
+    }
+
+}
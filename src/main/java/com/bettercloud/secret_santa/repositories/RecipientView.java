@@ -0,0 +1,16 @@
+package com.bettercloud.secret_santa.repositories;
+
+/**
+ * Projection of an assignment joined with its receiver, for recipient lookups.
+ */
+public interface RecipientView {
+
+    Integer getGiverId();
+
+    Integer getReceiverId();
+
+    String getReceiverName();
+
+    String getReceiverEmail();
+
+}
@@ -0,0 +1,39 @@
+package com.bettercloud.secret_santa.services;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Published by the write phase of a draw. Listeners registered for the AFTER_COMMIT phase
+ * only see it once the assignments are visible to other transactions.
+ */
+@Getter
+@AllArgsConstructor
+public class DrawCommittedEvent {
+
+    private final int year;
+
+    /**
+     * Participant IDs of the givers; receiverIds[i] is the receiver of giverIds[i].
+     */
+    private final int[] giverIds;
+
+    private final int[] receiverIds;
+
+    /**
+     * True when none of the givers had an assignment for the year before this draw,
+     * so these are their only receivers.
+     */
+    private final boolean onlyAssignmentsOfYear;
+
+    /**
+     * The email of each giver and the name and email of its receiver, indexed like giverIds,
+     * so listeners keyed by email need no read of their own.
+     */
+    private final String[] giverEmails;
+
+    private final String[] receiverNames;
+
+    private final String[] receiverEmails;
+
+}
@@ -0,0 +1,19 @@
+package com.bettercloud.secret_santa.services;
+
+import com.bettercloud.secret_santa.dto.ApiResponseDTO;
+import com.bettercloud.secret_santa.dto.DrawJobDTO;
+import com.bettercloud.secret_santa.dto.ParticipantRequestDTO;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+
+@Service
+public interface DrawJobService {
+
+    DrawJobDTO submit(List<ParticipantRequestDTO> participantRequestDTOList, int currentYear);
+
+    DrawJobDTO getJob(String jobId);
+
+    ApiResponseDTO getResult(String jobId);
+
+}
@@ -0,0 +1,46 @@
+package com.bettercloud.secret_santa.services;
+
+import com.bettercloud.secret_santa.entities.LogAssignment;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The rows a repair of a committed draw rewrites; every other assignment of the draw is kept.
+ */
+@Getter
+@AllArgsConstructor
+public class DrawRepair {
+
+    private final int year;
+
+    /**
+     * Committed assignments given a new receiver, with their IDs.
+     */
+    private final List<LogAssignment> updated;
+
+    /**
+     * The committed receiver of each updated assignment, indexed like updated. The update only
+     * applies if the row still has it, so concurrent changes are detected.
+     */
+    private final int[] previousReceiverIds;
+
+    /**
+     * Assignments of the participants who joined.
+     */
+    private final List<LogAssignment> added;
+
+    /**
+     * Committed assignments of the participants who dropped out.
+     */
+    private final List<LogAssignment> removed;
+
+    /**
+     * The email of each participant of the repaired group, by participant ID. The participants
+     * who dropped out are not part of it.
+     */
+    private final Map<Integer, String> emails;
+
+}
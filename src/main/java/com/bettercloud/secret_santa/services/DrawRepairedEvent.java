@@ -0,0 +1,26 @@
+package com.bettercloud.secret_santa.services;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Published by the write phase of a repair. Unlike a {@link DrawCommittedEvent}, assignments
+ * were changed or deleted, so listeners drop what they hold for these givers.
+ */
+@Getter
+@AllArgsConstructor
+public class DrawRepairedEvent {
+
+    private final int year;
+
+    /**
+     * Participant IDs of the givers whose assignment of the year was changed, added or deleted.
+     */
+    private final int[] giverIds;
+
+    /**
+     * The email of each giver, indexed like giverIds.
+     */
+    private final String[] giverEmails;
+
+}
@@ -0,0 +1,43 @@
+package com.bettercloud.secret_santa.services;
+
+import com.bettercloud.secret_santa.entities.LogAssignment;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+
+/**
+ * The saved assignments of a draw and, when the history rule had to be relaxed to find one,
+ * what each repeated pair cost.
+ */
+@Getter
+@AllArgsConstructor
+public class DrawResult {
+
+    /**
+     * The saved assignments, with their IDs, in the order of the participants.
+     */
+    private final List<LogAssignment> assignments;
+
+    /**
+     * The penalty of each assignment, indexed like assignments; null when every rule held.
+     */
+    private final int[] penalties;
+
+    /**
+     * Sum of the penalties, 0 when every rule held.
+     */
+    private final long totalPenalty;
+
+    public static DrawResult strict(List<LogAssignment> assignments) {
+        return new DrawResult(assignments, null, 0);
+    }
+
+    /**
+     * @return true if the draw repeats recent pairs because no draw could avoid them
+     */
+    public boolean isRelaxed() {
+        return penalties != null;
+    }
+
+}
@@ -0,0 +1,38 @@
+package com.bettercloud.secret_santa.services;
+
+import com.bettercloud.secret_santa.solver.RecentPairs;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Everything a draw needs from the database, read in a single short transaction
+ * so the solver can run without holding a connection.
+ */
+@Getter
+@AllArgsConstructor
+public class DrawSnapshot {
+
+    /**
+     * The participant ID of each index, in the order of the request.
+     */
+    private final int[] participantIds;
+
+    /**
+     * The name and email of each index, as stored by the read phase.
+     */
+    private final String[] names;
+
+    private final String[] emails;
+
+    /**
+     * The pairs that cannot be repeated this year, with the year of each, indexed like participantIds.
+     */
+    private final RecentPairs recentPairs;
+
+    /**
+     * Number of assignments of the draw year whose giver is one of the participants,
+     * at the time of the read. Compared again before writing to detect concurrent draws.
+     */
+    private final long committedAssignments;
+
+}
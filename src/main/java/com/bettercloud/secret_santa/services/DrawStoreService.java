@@ -0,0 +1,38 @@
+package com.bettercloud.secret_santa.services;
+
+import com.bettercloud.secret_santa.dto.ParticipantRequestDTO;
+import com.bettercloud.secret_santa.entities.LogAssignment;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Database side of a draw, split in two short transactions around the solver.
+ */
+@Service
+public interface DrawStoreService {
+
+    DrawSnapshot loadDraw(List<ParticipantRequestDTO> participantRequestDTOList, int currentYear);
+
+    int[] upsertParticipants(List<ParticipantRequestDTO> participantRequestDTOList);
+
+    DrawSnapshot loadHistory(int[] participantIds, String[] names, String[] emails, int currentYear);
+
+    /**
+     * Creates the storage of the year's assignments if needed, in a transaction of its own.
+     * Called before the write transaction of a draw, which must not hold its table lock.
+     */
+    void ensurePartition(int currentYear);
+
+    List<LogAssignment> saveDraw(DrawSnapshot snapshot, int[] receiverOf, int currentYear,
+                                 Consumer<List<LogAssignment>> beforeCommit);
+
+    List<DrawSnapshot> loadDraws(List<List<ParticipantRequestDTO>> groups, int currentYear);
+
+    List<List<LogAssignment>> saveDraws(List<DrawSnapshot> snapshots, List<int[]> receiverOfs, int currentYear);
+
+    List<LogAssignment> loadCommittedDraw(int[] participantIds, int currentYear);
+
+    List<LogAssignment> saveRepair(DrawRepair repair);
+}
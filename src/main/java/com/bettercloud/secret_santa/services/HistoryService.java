@@ -0,0 +1,19 @@
+package com.bettercloud.secret_santa.services;
+
+import com.bettercloud.secret_santa.dto.HistoryPageDTO;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Read access to past assignments for audits. Null filters match everything.
+ */
+@Service
+public interface HistoryService {
+
+    HistoryPageDTO findHistory(Integer year, Integer giverId, Integer receiverId, String after, Integer size);
+
+    void exportHistory(Integer year, Integer giverId, Integer receiverId, OutputStream out) throws IOException;
+
+}
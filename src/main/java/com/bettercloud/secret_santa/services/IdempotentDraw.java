@@ -0,0 +1,21 @@
+package com.bettercloud.secret_santa.services;
+
+import com.bettercloud.secret_santa.dto.ApiResponseDTO;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * The response of a draw and whether it was drawn for this request or stored by an earlier one.
+ */
+@Getter
+@AllArgsConstructor
+public class IdempotentDraw {
+
+    private final ApiResponseDTO response;
+
+    /**
+     * True when the response is the stored result of an earlier request with the same key.
+     */
+    private final boolean replayed;
+
+}
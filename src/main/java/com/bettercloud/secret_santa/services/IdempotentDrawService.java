@@ -0,0 +1,13 @@
+package com.bettercloud.secret_santa.services;
+
+import com.bettercloud.secret_santa.dto.ParticipantRequestDTO;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+
+@Service
+public interface IdempotentDrawService {
+
+    IdempotentDraw createAssignments(String idempotencyKey, List<ParticipantRequestDTO> participantRequestDTOList,
+                                     int currentYear);
+}
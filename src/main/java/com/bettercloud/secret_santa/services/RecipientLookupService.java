@@ -0,0 +1,13 @@
+package com.bettercloud.secret_santa.services;
+
+import com.bettercloud.secret_santa.dto.RecipientDTO;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+
+@Service
+public interface RecipientLookupService {
+
+    List<RecipientDTO> findRecipients(int year, String giverEmail);
+
+}
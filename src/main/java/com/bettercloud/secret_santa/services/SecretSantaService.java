@@ -1,12 +1,29 @@
 package com.bettercloud.secret_santa.services;
 
 import com.bettercloud.secret_santa.dto.ApiResponseDTO;
+import com.bettercloud.secret_santa.dto.GroupDrawRequestDTO;
 import com.bettercloud.secret_santa.dto.ParticipantRequestDTO;
+import org.springframework.http.MediaType;
 import org.springframework.stereotype.Service;
 
+import java.io.InputStream;
 import java.util.List;
+import java.util.function.Consumer;
 
 @Service
 public interface SecretSantaService {
     ApiResponseDTO createAssignments(List<ParticipantRequestDTO> participantRequestDTOList, int currentYear);
+
+    ApiResponseDTO createAssignments(List<ParticipantRequestDTO> participantRequestDTOList, int currentYear,
+                                     Consumer<ApiResponseDTO> beforeCommit);
+
+    ApiResponseDTO createAssignments(InputStream participantStream, MediaType contentType, int currentYear);
+
+    DrawResult drawAssignments(List<ParticipantRequestDTO> participantRequestDTOList, int currentYear);
+
+    ApiResponseDTO createBatchAssignments(List<GroupDrawRequestDTO> groups, int currentYear);
+
+    ApiResponseDTO repairAssignments(List<ParticipantRequestDTO> participantRequestDTOList, int currentYear);
+
+    DrawResult drawAssignments(InputStream participantStream, MediaType contentType, int currentYear);
 }
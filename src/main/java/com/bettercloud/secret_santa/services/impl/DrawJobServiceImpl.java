@@ -0,0 +1,290 @@
+package com.bettercloud.secret_santa.services.impl;
+
+import com.bettercloud.secret_santa.config.SecretSantaProperties;
+import com.bettercloud.secret_santa.dto.ApiResponseDTO;
+import com.bettercloud.secret_santa.dto.AssignmentResponseDTO;
+import com.bettercloud.secret_santa.dto.DrawJobDTO;
+import com.bettercloud.secret_santa.dto.ParticipantRequestDTO;
+import com.bettercloud.secret_santa.entities.DrawJob;
+import com.bettercloud.secret_santa.entities.DrawJobStatus;
+import com.bettercloud.secret_santa.exceptions.AppSecretSantaException;
+import com.bettercloud.secret_santa.mappers.DrawJobMapper;
+import com.bettercloud.secret_santa.repositories.DrawJobRepository;
+import com.bettercloud.secret_santa.services.DrawJobService;
+import com.bettercloud.secret_santa.services.SecretSantaService;
+import com.bettercloud.secret_santa.util.Meta;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs draws in the background so that large draws do not hold the HTTP connection.
+ * <p>
+ * Jobs run on a fixed pool with a bounded queue: when the queue is full, submissions are
+ * rejected with a 429 error instead of piling up in memory. The state and result of every
+ * job are stored in the database, so a poll can be answered by any instance. The participants
+ * of a job are only held in memory, so a job whose instance stops before it finishes cannot be
+ * resumed: it is failed with 503, on shutdown or, if the instance died, by the first poll after
+ * {@code secret-santa.jobs.stale-after}.
+ */
+@Slf4j
+@Service
+public class DrawJobServiceImpl implements DrawJobService {
+
+    private static final int MAX_ERROR_MESSAGE_LENGTH = 2000;
+
+    private final SecretSantaService secretSantaService;
+    private final DrawJobRepository drawJobRepository;
+    private final ObjectMapper objectMapper;
+    private final SecretSantaProperties.Jobs settings;
+    private final ThreadPoolExecutor executor;
+
+    public DrawJobServiceImpl(SecretSantaService secretSantaService,
+                              DrawJobRepository drawJobRepository,
+                              ObjectMapper objectMapper,
+                              SecretSantaProperties properties,
+                              MeterRegistry meterRegistry) {
+        this.secretSantaService = secretSantaService;
+        this.drawJobRepository = drawJobRepository;
+        this.objectMapper = objectMapper;
+        this.settings = properties.getJobs();
+        int threads = Math.max(1, settings.getThreads());
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, settings.getQueueCapacity())),
+                new JobThreadFactory(), new ThreadPoolExecutor.AbortPolicy());
+        new ExecutorServiceMetrics(executor, "draw-jobs", Tags.empty()).bindTo(meterRegistry);
+    }
+
+    /**
+     * Stores a new job and queues its draw.
+     *
+     * @return the queued job
+     * @throws AppSecretSantaException 400 if the participant count is odd, 429 if the queue is full
+     */
+    @Override
+    public DrawJobDTO submit(List<ParticipantRequestDTO> participantRequestDTOList, int currentYear) {
+        // Fail fast on what can be validated without running the draw
+        if (participantRequestDTOList.size() % 2 != 0) {
+            throw new AppSecretSantaException("The participant list must have an even number of elements",
+                    HttpStatus.BAD_REQUEST.value(), HttpStatus.BAD_REQUEST.name()
+            );
+        }
+
+        DrawJob job = new DrawJob();
+        job.setId(UUID.randomUUID().toString());
+        job.setYear(currentYear);
+        job.setParticipantCount(participantRequestDTOList.size());
+        job.setStatus(DrawJobStatus.QUEUED);
+        job.setCreatedAt(Instant.now());
+        drawJobRepository.save(job);
+        // Mapped before the worker can see the job, which it reloads rather than sharing this instance
+        DrawJobDTO queued = DrawJobMapper.toDto(job);
+
+        String jobId = job.getId();
+        try {
+            executor.execute(new JobTask(jobId, participantRequestDTOList));
+        } catch (RejectedExecutionException e) {
+            drawJobRepository.delete(job);
+            throw new AppSecretSantaException("Too many draws are waiting to run, retry later",
+                    HttpStatus.TOO_MANY_REQUESTS.value(), HttpStatus.TOO_MANY_REQUESTS.name());
+        }
+        return queued;
+    }
+
+    @Override
+    public DrawJobDTO getJob(String jobId) {
+        return DrawJobMapper.toDto(findJob(jobId));
+    }
+
+    /**
+     * Returns the assignments of a finished job, in the same shape as the synchronous endpoint.
+     *
+     * @throws AppSecretSantaException 404 if the job does not exist, 409 if it has not finished,
+     *                                 or the original error if the draw failed
+     */
+    @Override
+    public ApiResponseDTO getResult(String jobId) {
+        DrawJob job = findJob(jobId);
+        if (!job.getStatus().isFinished()) {
+            throw new AppSecretSantaException("Job " + jobId + " has not finished yet",
+                    HttpStatus.CONFLICT.value(), HttpStatus.CONFLICT.name());
+        }
+        if (job.getStatus() == DrawJobStatus.FAILED) {
+            HttpStatus status = HttpStatus.valueOf(job.getErrorCode());
+            throw new AppSecretSantaException(job.getErrorMessage(), status.value(), status.name());
+        }
+
+        try {
+            List<AssignmentResponseDTO> assignments =
+                    objectMapper.readValue(job.getResult(), new TypeReference<>() {});
+            return new ApiResponseDTO(new Meta(UUID.randomUUID().toString(), "OK", 200, job.getResultMessage()),
+                    assignments);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Unreadable result stored for job " + jobId, e);
+        }
+    }
+
+    /**
+     * Lets queued jobs finish; the jobs still waiting after {@code shutdown-timeout} are failed,
+     * so their polls do not wait for them forever, and the running ones are interrupted.
+     */
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        executor.shutdown();
+        if (!executor.awaitTermination(settings.getShutdownTimeout().toMillis(), TimeUnit.MILLISECONDS)) {
+            for (Runnable dropped : executor.shutdownNow()) {
+                if (dropped instanceof JobTask task) {
+                    abandon(task.jobId);
+                }
+            }
+        }
+    }
+
+    private void abandon(String jobId) {
+        try {
+            drawJobRepository.findById(jobId).ifPresent(job -> {
+                fail(job, HttpStatus.SERVICE_UNAVAILABLE.value(),
+                        "The service stopped before the draw job started; submit it again");
+                job.setFinishedAt(Instant.now());
+                drawJobRepository.save(job);
+            });
+        } catch (RuntimeException e) {
+            log.error("Could not fail draw job {}, dropped on shutdown", jobId, e);
+        }
+    }
+
+    /**
+     * Runs the draw of a job and stores its outcome. Every failure, including one storing the
+     * RUNNING state, ends in a FAILED job rather than one left QUEUED or RUNNING.
+     */
+    private void run(String jobId, List<ParticipantRequestDTO> participantRequestDTOList) {
+        DrawJob job;
+        try {
+            job = drawJobRepository.findById(jobId).orElse(null);
+        } catch (RuntimeException e) {
+            log.error("Could not load draw job {}, it is left queued", jobId, e);
+            return;
+        }
+        if (job == null) {
+            log.warn("Draw job {} no longer exists", jobId);
+            return;
+        }
+
+        try {
+            job.setStatus(DrawJobStatus.RUNNING);
+            job.setStartedAt(Instant.now());
+            drawJobRepository.save(job);
+
+            ApiResponseDTO response = secretSantaService.createAssignments(participantRequestDTOList, job.getYear());
+            job.setResult(objectMapper.writeValueAsString(response.getData()));
+            job.setResultMessage(response.getMeta().getMessage());
+            job.setStatus(DrawJobStatus.SUCCEEDED);
+        } catch (AppSecretSantaException e) {
+            fail(job, e.getCode(), e.getMessage());
+        } catch (Exception e) {
+            log.error("Draw job {} failed", jobId, e);
+            fail(job, HttpStatus.INTERNAL_SERVER_ERROR.value(),
+                    e.getMessage() == null ? e.getClass().getName() : e.getMessage());
+        }
+        finish(job);
+    }
+
+    /**
+     * Stores the outcome of a job. If that fails, for instance because its result is too large
+     * to store, the job is stored as FAILED without a result instead.
+     */
+    private void finish(DrawJob job) {
+        job.setFinishedAt(Instant.now());
+        try {
+            drawJobRepository.save(job);
+            return;
+        } catch (RuntimeException e) {
+            log.error("Could not store the outcome of draw job {}", job.getId(), e);
+        }
+
+        job.setResult(null);
+        job.setResultMessage(null);
+        fail(job, HttpStatus.INTERNAL_SERVER_ERROR.value(), "The outcome of the draw could not be stored");
+        try {
+            drawJobRepository.save(job);
+        } catch (RuntimeException e) {
+            log.error("Draw job {} is left unfinished", job.getId(), e);
+        }
+    }
+
+    private static void fail(DrawJob job, int code, String message) {
+        job.setStatus(DrawJobStatus.FAILED);
+        job.setErrorCode(code);
+        job.setErrorMessage(message.length() > MAX_ERROR_MESSAGE_LENGTH
+                ? message.substring(0, MAX_ERROR_MESSAGE_LENGTH) : message);
+    }
+
+    /**
+     * Loads a job, failing it first if it is stale: still queued or running so long after it
+     * was submitted or started that its instance must have stopped without finishing it.
+     */
+    private DrawJob findJob(String jobId) {
+        DrawJob job = drawJobRepository.findById(jobId)
+                .orElseThrow(() -> new AppSecretSantaException("Job " + jobId + " not found",
+                        HttpStatus.NOT_FOUND.value(), HttpStatus.NOT_FOUND.name()));
+        Instant since = job.getStatus() == DrawJobStatus.RUNNING ? job.getStartedAt() : job.getCreatedAt();
+        if (!job.getStatus().isFinished() && since != null
+                && since.plus(settings.getStaleAfter()).isBefore(Instant.now())) {
+            fail(job, HttpStatus.SERVICE_UNAVAILABLE.value(), "The draw job did not finish within "
+                    + settings.getStaleAfter().toMinutes() + " minutes; submit it again");
+            job.setFinishedAt(Instant.now());
+            drawJobRepository.save(job);
+        }
+        return job;
+    }
+
+    /**
+     * A queued draw. Named rather than a lambda, so the jobs dropped on shutdown can be told apart.
+     */
+    private final class JobTask implements Runnable {
+
+        private final String jobId;
+        private final List<ParticipantRequestDTO> participantRequestDTOList;
+
+        private JobTask(String jobId, List<ParticipantRequestDTO> participantRequestDTOList) {
+            this.jobId = jobId;
+            this.participantRequestDTOList = participantRequestDTOList;
+        }
+
+        @Override
+        public void run() {
+            DrawJobServiceImpl.this.run(jobId, participantRequestDTOList);
+        }
+    }
+
+    /**
+     * Threads with recognizable names, so thread dumps show which draws are running.
+     */
+    private static final class JobThreadFactory implements ThreadFactory {
+
+        private final AtomicInteger counter = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            return new Thread(runnable, "draw-job-" + counter.incrementAndGet());
+        }
+    }
+
+}
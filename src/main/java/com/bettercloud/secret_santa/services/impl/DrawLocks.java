@@ -0,0 +1,84 @@
+package com.bettercloud.secret_santa.services.impl;
+
+import com.bettercloud.secret_santa.config.SecretSantaProperties;
+import com.bettercloud.secret_santa.repositories.DrawAdvisoryLocks;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Serializes the write phases of draws of the same year that share any participant, so that of
+ * two draws computed at the same time only the first commits and the second sees it and fails
+ * with 409, instead of both checking for committed assignments before either has written any.
+ * <p>
+ * Every participant ID maps to one of {@code secret-santa.persistence.lock-stripes} slots, and a
+ * draw locks the slots of all its participants, deduplicated and in increasing order so that two
+ * draws never deadlock. Within an instance, the slots are locks taken before the write
+ * transaction starts, so waiting draws do not hold a connection; across instances, the write
+ * transaction takes the PostgreSQL advisory lock of each (year, slot). Bounding the slots bounds
+ * the advisory locks a large draw holds. Draws without a common participant only wait for each
+ * other when their participants share a slot, and the read and compute phases are never locked.
+ */
+@Component
+public class DrawLocks {
+
+    private final ReentrantLock[] stripes;
+    private final DrawAdvisoryLocks drawAdvisoryLocks;
+
+    public DrawLocks(DrawAdvisoryLocks drawAdvisoryLocks, SecretSantaProperties properties) {
+        this.drawAdvisoryLocks = drawAdvisoryLocks;
+        this.stripes = new ReentrantLock[Math.max(1, properties.getPersistence().getLockStripes())];
+        for (int i = 0; i < stripes.length; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+    }
+
+    /**
+     * Runs the write phase of a draw holding the in-process lock of each of its participants.
+     * Must be called outside the write transaction, so the locks outlive its commit.
+     *
+     * @param participantIds the participant IDs of every group written by the draw
+     */
+    public <T> T withLocks(int year, int[] participantIds, Supplier<T> work) {
+        int[] stripeIndexes = Arrays.stream(slots(participantIds))
+                .map(slot -> Math.floorMod(31 * year + slot, stripes.length))
+                .sorted()
+                .distinct()
+                .toArray();
+        int locked = 0;
+        try {
+            for (int stripe : stripeIndexes) {
+                stripes[stripe].lock();
+                locked++;
+            }
+            return work.get();
+        } finally {
+            for (int i = locked - 1; i >= 0; i--) {
+                stripes[stripeIndexes[i]].unlock();
+            }
+        }
+    }
+
+    /**
+     * Takes the advisory lock of each participant for the rest of the current transaction.
+     *
+     * @param participantIds the participant IDs of every group written by the transaction
+     */
+    public void lockInTransaction(int year, int[] participantIds) {
+        drawAdvisoryLocks.lock(year, slots(participantIds));
+    }
+
+    /**
+     * The distinct lock slots of the given participants, in increasing order.
+     */
+    int[] slots(int[] participantIds) {
+        return Arrays.stream(participantIds)
+                .map(participantId -> Math.floorMod(participantId, stripes.length))
+                .sorted()
+                .distinct()
+                .toArray();
+    }
+
+}
@@ -0,0 +1,636 @@
+package com.bettercloud.secret_santa.services.impl;
+
+import com.bettercloud.secret_santa.config.SecretSantaProperties;
+import com.bettercloud.secret_santa.dto.ParticipantRequestDTO;
+import com.bettercloud.secret_santa.entities.LogAssignment;
+import com.bettercloud.secret_santa.entities.Participant;
+import com.bettercloud.secret_santa.exceptions.AppSecretSantaException;
+import com.bettercloud.secret_santa.mappers.LogAssignmentMapper;
+import com.bettercloud.secret_santa.metrics.DrawMetrics;
+import com.bettercloud.secret_santa.repositories.LogAssignmentCopyWriter;
+import com.bettercloud.secret_santa.repositories.LogAssignmentPartitions;
+import com.bettercloud.secret_santa.repositories.LogAssignmentRepository;
+import com.bettercloud.secret_santa.repositories.ParticipantRepository;
+import com.bettercloud.secret_santa.repositories.ParticipantUpsertWriter;
+import com.bettercloud.secret_santa.services.DrawCommittedEvent;
+import com.bettercloud.secret_santa.services.DrawRepair;
+import com.bettercloud.secret_santa.services.DrawRepairedEvent;
+import com.bettercloud.secret_santa.services.DrawSnapshot;
+import com.bettercloud.secret_santa.services.DrawStoreService;
+import com.bettercloud.secret_santa.solver.RecentPairs;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Consumer;
+
+@Service
+public class DrawStoreServiceImpl implements DrawStoreService {
+
+    /**
+     * Maximum number of values bound into a single IN clause, well below the
+     * PostgreSQL limit of 32767 bind parameters per statement.
+     */
+    private static final int IN_CLAUSE_CHUNK_SIZE = 10_000;
+
+    private final ParticipantRepository participantRepository;
+    private final LogAssignmentRepository logAssignmentRepository;
+    private final LogAssignmentCopyWriter logAssignmentCopyWriter;
+    private final LogAssignmentPartitions logAssignmentPartitions;
+    private final ParticipantUpsertWriter participantUpsertWriter;
+    private final DrawLocks drawLocks;
+    private final RecentPairCache recentPairCache;
+    private final SecretSantaProperties properties;
+    private final DrawMetrics drawMetrics;
+    private final ApplicationEventPublisher eventPublisher;
+
+    public DrawStoreServiceImpl(ParticipantRepository participantRepository,
+                                LogAssignmentRepository logAssignmentRepository,
+                                LogAssignmentCopyWriter logAssignmentCopyWriter,
+                                LogAssignmentPartitions logAssignmentPartitions,
+                                ParticipantUpsertWriter participantUpsertWriter,
+                                DrawLocks drawLocks,
+                                RecentPairCache recentPairCache,
+                                SecretSantaProperties properties,
+                                DrawMetrics drawMetrics,
+                                ApplicationEventPublisher eventPublisher) {
+        this.participantRepository = participantRepository;
+        this.logAssignmentRepository = logAssignmentRepository;
+        this.logAssignmentCopyWriter = logAssignmentCopyWriter;
+        this.logAssignmentPartitions = logAssignmentPartitions;
+        this.participantUpsertWriter = participantUpsertWriter;
+        this.drawLocks = drawLocks;
+        this.recentPairCache = recentPairCache;
+        this.properties = properties;
+        this.drawMetrics = drawMetrics;
+        this.eventPublisher = eventPublisher;
+    }
+
+    /**
+     * Read phase of a draw: finds or creates the participants and loads the history
+     * of the lookback window, in one short transaction.
+     *
+     * @param participantRequestDTOList list of participants to be processed
+     * @param currentYear               the current year for the assignments
+     * @return the data the solver needs, with no open connection behind it
+     */
+    @Override
+    @Transactional
+    public DrawSnapshot loadDraw(List<ParticipantRequestDTO> participantRequestDTOList, int currentYear) {
+        List<Participant> participants = upsert(participantRequestDTOList);
+        return snapshot(participantIds(participants), names(participants), emails(participants), currentYear);
+    }
+
+    /**
+     * Finds or creates a chunk of participants in its own transaction, for draws whose
+     * participants are streamed in and never held in memory all at once.
+     *
+     * @return the participant ID of each entry, in the order of the list
+     */
+    @Override
+    @Transactional
+    public int[] upsertParticipants(List<ParticipantRequestDTO> participantRequestDTOList) {
+        return participantIds(upsert(participantRequestDTOList));
+    }
+
+    /**
+     * Read phase of a draw whose participants already exist: loads the history of the
+     * lookback window in one short transaction.
+     *
+     * @param participantIds the participant ID of each index
+     * @param names          the name of each index
+     * @param emails         the email of each index
+     * @param currentYear    the current year for the assignments
+     */
+    @Override
+    @Transactional
+    public DrawSnapshot loadHistory(int[] participantIds, String[] names, String[] emails, int currentYear) {
+        return snapshot(participantIds, names, emails, currentYear);
+    }
+
+    private List<Participant> upsert(List<ParticipantRequestDTO> participantRequestDTOList) {
+        return drawMetrics.time(DrawMetrics.Phase.UPSERT, () -> ensureParticipantsExist(participantRequestDTOList));
+    }
+
+    private static int[] participantIds(List<Participant> participants) {
+        int[] participantIds = new int[participants.size()];
+        for (int i = 0; i < participantIds.length; i++) {
+            participantIds[i] = participants.get(i).getId();
+        }
+        return participantIds;
+    }
+
+    private static String[] names(List<Participant> participants) {
+        return participants.stream().map(Participant::getName).toArray(String[]::new);
+    }
+
+    private static String[] emails(List<Participant> participants) {
+        return participants.stream().map(Participant::getEmail).toArray(String[]::new);
+    }
+
+    private DrawSnapshot snapshot(int[] participantIds, String[] names, String[] emails, int currentYear) {
+        return drawMetrics.time(DrawMetrics.Phase.HISTORY, () -> {
+            Map<Integer, Integer> indexMap = new HashMap<>();
+            for (int i = 0; i < participantIds.length; i++) {
+                indexMap.put(participantIds[i], i);
+            }
+            return new DrawSnapshot(participantIds, names, emails, loadRecentPairs(participantIds, indexMap, currentYear),
+                    countAssignments(participantIds, currentYear));
+        });
+    }
+
+    /**
+     * Creates the partition of the year before the write phase, in its own transaction, so the
+     * lock taken to attach it is released before the draw's write transaction starts. Not
+     * transactional itself: once the year is known to have a partition it costs nothing.
+     */
+    @Override
+    public void ensurePartition(int currentYear) {
+        logAssignmentPartitions.ensureYear(currentYear);
+    }
+
+    /**
+     * Write phase of a draw: persists the assignments in one short transaction, unless
+     * another draw for the same year and participants was committed since the read phase.
+     * Publishes a {@link DrawCommittedEvent} for listeners interested in the committed draw.
+     *
+     * @param snapshot     the result of the read phase
+     * @param receiverOf   the receiver index assigned to each giver index
+     * @param currentYear  the current year for the assignments
+     * @param beforeCommit called with the saved entities before the transaction commits; an
+     *                     exception it throws rolls the draw back
+     * @return the saved entities, with their IDs
+     * @throws AppSecretSantaException 409 if a conflicting draw was committed in between
+     */
+    @Override
+    @Transactional
+    public List<LogAssignment> saveDraw(DrawSnapshot snapshot, int[] receiverOf, int currentYear,
+                                        Consumer<List<LogAssignment>> beforeCommit) {
+        drawLocks.lockInTransaction(currentYear, snapshot.getParticipantIds());
+        if (countAssignments(snapshot.getParticipantIds(), currentYear) != snapshot.getCommittedAssignments()) {
+            throw new AppSecretSantaException("Another draw for year " + currentYear
+                    + " was committed for these participants while this one was being computed",
+                    HttpStatus.CONFLICT.value(), HttpStatus.CONFLICT.name());
+        }
+
+        List<LogAssignment> logsToSaveList =
+                LogAssignmentMapper.fromFinalAssignments(receiverOf, snapshot.getParticipantIds(), currentYear);
+        saveAssignments(logsToSaveList);
+        beforeCommit.accept(logsToSaveList);
+
+        eventPublisher.publishEvent(committedEvent(snapshot, receiverOf, currentYear,
+                snapshot.getCommittedAssignments() == 0));
+        return logsToSaveList;
+    }
+
+    /**
+     * Read phase of a batch of independent draws, in one short transaction: the participants of
+     * every group are found or created with one bulk upsert, and the history and committed
+     * assignments of all of them are read once, then split by group.
+     *
+     * @param groups      the participants of each draw
+     * @param currentYear the current year for the assignments
+     * @return the snapshot of each group, in the order of the list
+     */
+    @Override
+    @Transactional
+    public List<DrawSnapshot> loadDraws(List<List<ParticipantRequestDTO>> groups, int currentYear) {
+        List<ParticipantRequestDTO> allParticipants = new ArrayList<>();
+        groups.forEach(allParticipants::addAll);
+        List<Participant> all = upsert(allParticipants);
+        int[] allIds = participantIds(all);
+        String[] allNames = names(all);
+        String[] allEmails = emails(all);
+
+        return drawMetrics.time(DrawMetrics.Phase.HISTORY, () -> {
+            List<int[]> groupIds = new ArrayList<>(groups.size());
+            int[] groupStarts = new int[groups.size()];
+            List<Map<Integer, Integer>> indexMaps = new ArrayList<>(groups.size());
+            Map<Integer, List<Integer>> groupsOf = new HashMap<>();
+            int next = 0;
+            for (int group = 0; group < groups.size(); group++) {
+                groupStarts[group] = next;
+                int[] participantIds = Arrays.copyOfRange(allIds, next, next + groups.get(group).size());
+                next += participantIds.length;
+                Map<Integer, Integer> indexMap = new HashMap<>();
+                for (int i = 0; i < participantIds.length; i++) {
+                    indexMap.put(participantIds[i], i);
+                    groupsOf.computeIfAbsent(participantIds[i], id -> new ArrayList<>(1)).add(group);
+                }
+                groupIds.add(participantIds);
+                indexMaps.add(indexMap);
+            }
+            int[] distinctIds = groupsOf.keySet().stream().mapToInt(Integer::intValue).toArray();
+
+            // One pass over the history of every participant, each pair going to the groups holding both ends
+            List<RecentPairs> recentPairs = new ArrayList<>(groups.size());
+            for (int group = 0; group < groups.size(); group++) {
+                recentPairs.add(new RecentPairs());
+            }
+            int lookbackYears = properties.getConstraints().getLookbackYears();
+            if (lookbackYears > 0) {
+                recentPairCache.forEachRecentPair(distinctIds, currentYear - (lookbackYears - 1),
+                        (giverId, receiverId, year) -> {
+                            for (int group : groupsOf.get(giverId)) {
+                                Integer receiverIndex = indexMaps.get(group).get(receiverId);
+                                if (receiverIndex != null) {
+                                    recentPairs.get(group).add(indexMaps.get(group).get(giverId), receiverIndex, year);
+                                }
+                            }
+                        });
+            }
+
+            Map<Integer, Integer> assignmentsPerGiver = countAssignmentsPerGiver(distinctIds, currentYear);
+            List<DrawSnapshot> snapshots = new ArrayList<>(groups.size());
+            for (int group = 0; group < groups.size(); group++) {
+                int from = groupStarts[group];
+                int to = from + groupIds.get(group).length;
+                snapshots.add(new DrawSnapshot(groupIds.get(group),
+                        Arrays.copyOfRange(allNames, from, to), Arrays.copyOfRange(allEmails, from, to),
+                        recentPairs.get(group), committedAssignments(groupIds.get(group), assignmentsPerGiver)));
+            }
+            return snapshots;
+        });
+    }
+
+    /**
+     * Write phase of a batch of independent draws: persists the assignments of every group in
+     * one short transaction and one batched write. A group for which another draw was committed
+     * since the read phase is skipped, without failing the others; the checks all happen before
+     * anything is written, so groups sharing participants do not see each other's rows.
+     * Publishes a {@link DrawCommittedEvent} per saved group.
+     *
+     * @param snapshots   the result of the read phase of each group
+     * @param receiverOfs the receiver index assigned to each giver index, per group
+     * @param currentYear the current year for the assignments
+     * @return the saved entities of each group, with their IDs, or null for a conflicting group
+     */
+    @Override
+    @Transactional
+    public List<List<LogAssignment>> saveDraws(List<DrawSnapshot> snapshots, List<int[]> receiverOfs, int currentYear) {
+        drawLocks.lockInTransaction(currentYear,
+                snapshots.stream().flatMapToInt(snapshot -> Arrays.stream(snapshot.getParticipantIds())).toArray());
+        Map<Integer, Integer> groupsPerParticipant = new HashMap<>();
+        for (DrawSnapshot snapshot : snapshots) {
+            for (int participantId : snapshot.getParticipantIds()) {
+                groupsPerParticipant.merge(participantId, 1, Integer::sum);
+            }
+        }
+        Map<Integer, Integer> assignmentsPerGiver = countAssignmentsPerGiver(
+                groupsPerParticipant.keySet().stream().mapToInt(Integer::intValue).toArray(), currentYear);
+
+        List<List<LogAssignment>> saved = new ArrayList<>(snapshots.size());
+        List<LogAssignment> logsToSaveList = new ArrayList<>();
+        for (int group = 0; group < snapshots.size(); group++) {
+            DrawSnapshot snapshot = snapshots.get(group);
+            if (committedAssignments(snapshot.getParticipantIds(), assignmentsPerGiver)
+                    != snapshot.getCommittedAssignments()) {
+                saved.add(null);
+                continue;
+            }
+            List<LogAssignment> logs =
+                    LogAssignmentMapper.fromFinalAssignments(receiverOfs.get(group), snapshot.getParticipantIds(), currentYear);
+            saved.add(logs);
+            logsToSaveList.addAll(logs);
+        }
+        if (!logsToSaveList.isEmpty()) {
+            saveAssignments(logsToSaveList);
+        }
+
+        for (int group = 0; group < snapshots.size(); group++) {
+            if (saved.get(group) == null) {
+                continue;
+            }
+            DrawSnapshot snapshot = snapshots.get(group);
+            boolean shared = Arrays.stream(snapshot.getParticipantIds())
+                    .anyMatch(participantId -> groupsPerParticipant.get(participantId) > 1);
+            eventPublisher.publishEvent(committedEvent(snapshot, receiverOfs.get(group), currentYear,
+                    snapshot.getCommittedAssignments() == 0 && !shared));
+        }
+        return saved;
+    }
+
+    private static DrawCommittedEvent committedEvent(DrawSnapshot snapshot, int[] receiverOf, int currentYear,
+                                                     boolean onlyAssignmentsOfYear) {
+        int[] participantIds = snapshot.getParticipantIds();
+        int[] receiverIds = new int[receiverOf.length];
+        String[] receiverNames = new String[receiverOf.length];
+        String[] receiverEmails = new String[receiverOf.length];
+        for (int giver = 0; giver < receiverOf.length; giver++) {
+            receiverIds[giver] = participantIds[receiverOf[giver]];
+            receiverNames[giver] = snapshot.getNames()[receiverOf[giver]];
+            receiverEmails[giver] = snapshot.getEmails()[receiverOf[giver]];
+        }
+        return new DrawCommittedEvent(currentYear, participantIds, receiverIds, onlyAssignmentsOfYear,
+                snapshot.getEmails(), receiverNames, receiverEmails);
+    }
+
+    /**
+     * Read phase of a repair: loads the committed assignments of the year that involve the
+     * given participants, plus those of the participants who dropped out of their draw, in one
+     * short transaction.
+     * <p>
+     * A dropout shows up as the receiver of a remaining giver or the giver of a remaining
+     * receiver; its own assignment is followed, so a chain of several dropouts is loaded whole.
+     *
+     * @param participantIds the participant ID of each remaining or new participant
+     * @param currentYear    the year of the draw
+     * @return the assignments, empty if none of the participants is part of a draw that year
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public List<LogAssignment> loadCommittedDraw(int[] participantIds, int currentYear) {
+        Set<Integer> participants = new HashSet<>();
+        for (int participantId : participantIds) {
+            participants.add(participantId);
+        }
+
+        Map<Integer, LogAssignment> assignments = new LinkedHashMap<>();
+        for (List<Integer> chunk : chunks(participantIds)) {
+            logAssignmentRepository.findByYearAndGiverIdIn(currentYear, chunk)
+                    .forEach(assignment -> assignments.put(assignment.getId(), assignment));
+            logAssignmentRepository.findByYearAndReceiverIdIn(currentYear, chunk)
+                    .forEach(assignment -> assignments.put(assignment.getId(), assignment));
+        }
+
+        Set<Integer> dropouts = new HashSet<>();
+        List<LogAssignment> unvisited = new ArrayList<>(assignments.values());
+        while (!unvisited.isEmpty()) {
+            Set<Integer> newDropouts = new HashSet<>();
+            for (LogAssignment assignment : unvisited) {
+                for (Integer participantId : List.of(assignment.getGiverId(), assignment.getReceiverId())) {
+                    if (!participants.contains(participantId) && dropouts.add(participantId)) {
+                        newDropouts.add(participantId);
+                    }
+                }
+            }
+            unvisited = new ArrayList<>();
+            if (!newDropouts.isEmpty()) {
+                for (LogAssignment assignment : logAssignmentRepository.findByYearAndGiverIdIn(currentYear, newDropouts)) {
+                    if (assignments.putIfAbsent(assignment.getId(), assignment) == null) {
+                        unvisited.add(assignment);
+                    }
+                }
+            }
+        }
+        return new ArrayList<>(assignments.values());
+    }
+
+    /**
+     * Write phase of a repair: rewrites only the changed rows, in one short transaction.
+     * Every update and delete is checked against the row read by {@link #loadCommittedDraw},
+     * so a concurrent draw or repair of the same participants is detected and rolled back.
+     * Publishes a {@link DrawRepairedEvent} for the caches holding these givers.
+     *
+     * @return the updated and added assignments, with their IDs
+     * @throws AppSecretSantaException 409 if any of the rows changed since the read phase
+     */
+    @Override
+    @Transactional
+    public List<LogAssignment> saveRepair(DrawRepair repair) {
+        List<LogAssignment> updated = repair.getUpdated();
+        for (int i = 0; i < updated.size(); i++) {
+            LogAssignment assignment = updated.get(i);
+            if (logAssignmentRepository.updateReceiver(assignment.getId(), repair.getPreviousReceiverIds()[i],
+                    assignment.getReceiverId()) != 1) {
+                throw concurrentRepair(repair.getYear());
+            }
+        }
+
+        List<Integer> removedIds = repair.getRemoved().stream().map(LogAssignment::getId).toList();
+        for (int from = 0; from < removedIds.size(); from += IN_CLAUSE_CHUNK_SIZE) {
+            List<Integer> chunk = removedIds.subList(from, Math.min(from + IN_CLAUSE_CHUNK_SIZE, removedIds.size()));
+            if (logAssignmentRepository.deleteByIdIn(chunk) != chunk.size()) {
+                throw concurrentRepair(repair.getYear());
+            }
+        }
+
+        List<LogAssignment> added = repair.getAdded();
+        if (!added.isEmpty()) {
+            drawLocks.lockInTransaction(repair.getYear(),
+                    added.stream().mapToInt(LogAssignment::getGiverId).toArray());
+            List<Integer> addedGiverIds = added.stream().map(LogAssignment::getGiverId).toList();
+            if (logAssignmentRepository.countByYearAndGiverIdIn(repair.getYear(), addedGiverIds) != 0) {
+                throw concurrentRepair(repair.getYear());
+            }
+            saveAssignments(added);
+        }
+
+        List<LogAssignment> written = new ArrayList<>(updated);
+        written.addAll(added);
+        eventPublisher.publishEvent(repairedEvent(repair, written));
+        return written;
+    }
+
+    /**
+     * The emails of the dropouts are not part of the repair, so only theirs are read.
+     */
+    private DrawRepairedEvent repairedEvent(DrawRepair repair, List<LogAssignment> written) {
+        Map<Integer, String> emails = new HashMap<>(repair.getEmails());
+        List<Integer> dropoutIds = repair.getRemoved().stream().map(LogAssignment::getGiverId).toList();
+        for (int from = 0; from < dropoutIds.size(); from += IN_CLAUSE_CHUNK_SIZE) {
+            List<Integer> chunk = dropoutIds.subList(from, Math.min(from + IN_CLAUSE_CHUNK_SIZE, dropoutIds.size()));
+            for (Participant dropout : participantRepository.findAllById(chunk)) {
+                emails.put(dropout.getId(), dropout.getEmail());
+            }
+        }
+
+        int[] giverIds = new int[written.size() + dropoutIds.size()];
+        String[] giverEmails = new String[giverIds.length];
+        int next = 0;
+        for (LogAssignment assignment : written) {
+            giverIds[next++] = assignment.getGiverId();
+        }
+        for (Integer dropoutId : dropoutIds) {
+            giverIds[next++] = dropoutId;
+        }
+        for (int i = 0; i < giverIds.length; i++) {
+            giverEmails[i] = emails.get(giverIds[i]);
+        }
+        return new DrawRepairedEvent(repair.getYear(), giverIds, giverEmails);
+    }
+
+    private static AppSecretSantaException concurrentRepair(int year) {
+        return new AppSecretSantaException("The draw of year " + year
+                + " was changed while this repair was being computed",
+                HttpStatus.CONFLICT.value(), HttpStatus.CONFLICT.name());
+    }
+
+    /**
+     * Checks whether each participant (by email) already exists in the database.
+     * If a participant does not exist, a new record is created.
+     * <p>
+     * Works in bulk: existing participants are loaded with a single IN query, new ones are
+     * inserted with one saveAll and changed names are updated with another, instead of
+     * a lookup and a save per participant. On PostgreSQL new ones are inserted with
+     * ON CONFLICT DO NOTHING and read back instead, so a concurrent draw creating the same
+     * participants cannot make this one fail on the unique email.
+     *
+     * @param participantRequestDTOList list of potential participants
+     * @return a list of Participant entities with valid IDs, in the order of the request
+     */
+    private List<Participant> ensureParticipantsExist(List<ParticipantRequestDTO> participantRequestDTOList) {
+        // The last occurrence of a repeated email decides its name
+        Map<String, ParticipantRequestDTO> requestedByEmail = new LinkedHashMap<>();
+        for (ParticipantRequestDTO participantRequestDTO : participantRequestDTOList) {
+            requestedByEmail.put(participantRequestDTO.getEmail(), participantRequestDTO);
+        }
+
+        Map<String, Participant> participantsByEmail = new HashMap<>();
+        List<String> emails = new ArrayList<>(requestedByEmail.keySet());
+        for (int from = 0; from < emails.size(); from += IN_CLAUSE_CHUNK_SIZE) {
+            List<String> chunk = emails.subList(from, Math.min(from + IN_CLAUSE_CHUNK_SIZE, emails.size()));
+            for (Participant participant : participantRepository.findByEmailIn(chunk)) {
+                participantsByEmail.put(participant.getEmail(), participant);
+            }
+        }
+
+        List<Participant> participantsToCreate = new ArrayList<>();
+        List<Participant> participantsToRename = new ArrayList<>();
+        for (ParticipantRequestDTO participantRequestDTO : requestedByEmail.values()) {
+            Participant participant = participantsByEmail.get(participantRequestDTO.getEmail());
+
+            if (participant == null) {
+                // Create a new participant if not found
+                participant = new Participant();
+                participant.setName(participantRequestDTO.getName());
+                participant.setEmail(participantRequestDTO.getEmail());
+                participantsToCreate.add(participant);
+            } else if (!Objects.equals(participant.getName(), participantRequestDTO.getName())) {
+                // Optionally update the name if needed
+                participant.setName(participantRequestDTO.getName());
+                participantsToRename.add(participant);
+            }
+        }
+
+        if (!participantsToCreate.isEmpty() && participantUpsertWriter.isSupported()) {
+            // A concurrent draw may be creating some of them too: insert what is still missing and read all back
+            participantUpsertWriter.insertMissing(participantsToCreate);
+            List<String> createdEmails = participantsToCreate.stream().map(Participant::getEmail).toList();
+            for (int from = 0; from < createdEmails.size(); from += IN_CLAUSE_CHUNK_SIZE) {
+                List<String> chunk = createdEmails.subList(from, Math.min(from + IN_CLAUSE_CHUNK_SIZE, createdEmails.size()));
+                for (Participant participant : participantRepository.findByEmailIn(chunk)) {
+                    participantsByEmail.put(participant.getEmail(), participant);
+                }
+            }
+        } else if (!participantsToCreate.isEmpty()) {
+            for (Participant participant : participantRepository.saveAll(participantsToCreate)) {
+                participantsByEmail.put(participant.getEmail(), participant);
+            }
+        }
+        if (!participantsToRename.isEmpty()) {
+            participantRepository.saveAll(participantsToRename);
+        }
+
+        List<Participant> result = new ArrayList<>(participantRequestDTOList.size());
+        for (ParticipantRequestDTO participantRequestDTO : participantRequestDTOList) {
+            result.add(participantsByEmail.get(participantRequestDTO.getEmail()));
+        }
+        return result;
+    }
+
+    /**
+     * Persists the assignments of a draw. Regular draws go through saveAll, which Hibernate
+     * batches into multi-row JDBC batches; very large draws on PostgreSQL are streamed with COPY.
+     * Either way the entities come back with their IDs set. The partition of their year was
+     * created beforehand by {@link #ensurePartition(int)}.
+     */
+    private void saveAssignments(List<LogAssignment> logsToSaveList) {
+        if (logsToSaveList.size() >= properties.getPersistence().getCopyThreshold()
+                && logAssignmentCopyWriter.isSupported()) {
+            logAssignmentCopyWriter.copy(logsToSaveList);
+        } else {
+            logAssignmentRepository.saveAll(logsToSaveList);
+        }
+    }
+
+    /**
+     * Counts the assignments of the year whose giver is one of the given participants.
+     */
+    private long countAssignments(int[] participantIds, int currentYear) {
+        long count = 0;
+        for (List<Integer> giverIds : chunks(participantIds)) {
+            count += logAssignmentRepository.countByYearAndGiverIdIn(currentYear, giverIds);
+        }
+        return count;
+    }
+
+    /**
+     * Counts the assignments of the year of each of the given givers, with one query per IN
+     * clause chunk; givers without assignments are left out.
+     */
+    private Map<Integer, Integer> countAssignmentsPerGiver(int[] participantIds, int currentYear) {
+        Map<Integer, Integer> assignmentsPerGiver = new HashMap<>();
+        for (List<Integer> giverIds : chunks(participantIds)) {
+            for (Integer giverId : logAssignmentRepository.findGiverIdsByYear(currentYear, giverIds)) {
+                assignmentsPerGiver.merge(giverId, 1, Integer::sum);
+            }
+        }
+        return assignmentsPerGiver;
+    }
+
+    private static long committedAssignments(int[] participantIds, Map<Integer, Integer> assignmentsPerGiver) {
+        long count = 0;
+        for (int participantId : participantIds) {
+            count += assignmentsPerGiver.getOrDefault(participantId, 0);
+        }
+        return count;
+    }
+
+    /**
+     * Loads every (giver, receiver) pair of the lookback window ({@code secret-santa.constraints.lookback-years})
+     * between the given participants, indexed by participant position, with the year of each.
+     * <p>
+     * Pairs come from the {@link RecentPairCache}, which only reads the givers it does not hold.
+     * Pairs whose receiver is not part of this draw are irrelevant and are skipped.
+     *
+     * @param participantIds the participant ID of each index
+     * @param indexMap       a map linking participantId to its position in the draw
+     * @param currentYear    the current year for the assignments
+     * @return the matrix of pairs that cannot be repeated this year
+     */
+    private RecentPairs loadRecentPairs(int[] participantIds,
+                                        Map<Integer, Integer> indexMap,
+                                        int currentYear) {
+        int lookbackYears = properties.getConstraints().getLookbackYears();
+        RecentPairs recentPairs = new RecentPairs();
+        if (lookbackYears <= 0) {
+            return recentPairs;
+        }
+        int yearLimit = currentYear - (lookbackYears - 1);
+
+        recentPairCache.forEachRecentPair(participantIds, yearLimit, (giverId, receiverId, year) -> {
+            Integer receiverIndex = indexMap.get(receiverId);
+            if (receiverIndex != null) {
+                recentPairs.add(indexMap.get(giverId), receiverIndex, year);
+            }
+        });
+        return recentPairs;
+    }
+
+    /**
+     * Splits participant IDs into lists that fit in a single IN clause.
+     */
+    private static List<List<Integer>> chunks(int[] participantIds) {
+        List<List<Integer>> chunks = new ArrayList<>();
+        for (int from = 0; from < participantIds.length; from += IN_CLAUSE_CHUNK_SIZE) {
+            List<Integer> chunk = new ArrayList<>();
+            for (int i = from; i < Math.min(from + IN_CLAUSE_CHUNK_SIZE, participantIds.length); i++) {
+                chunk.add(participantIds[i]);
+            }
+            chunks.add(chunk);
+        }
+        return chunks;
+    }
+
+}
@@ -0,0 +1,117 @@
+package com.bettercloud.secret_santa.services.impl;
+
+import com.bettercloud.secret_santa.config.SecretSantaProperties;
+import com.bettercloud.secret_santa.dto.HistoryPageDTO;
+import com.bettercloud.secret_santa.exceptions.AppSecretSantaException;
+import com.bettercloud.secret_santa.mappers.AssignmentHistoryMapper;
+import com.bettercloud.secret_santa.repositories.AssignmentHistoryView;
+import com.bettercloud.secret_santa.repositories.LogAssignmentRepository;
+import com.bettercloud.secret_santa.services.HistoryService;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Reads the assignment history through projections, never through LogAssignment entities.
+ * <p>
+ * Pages are found by seeking past a (year, id) cursor rather than by offset, so reading
+ * page 1000 costs the same as reading page 1. The export reads everything that matches
+ * over a single forward-only cursor and writes it as it goes.
+ */
+@Service
+public class HistoryServiceImpl implements HistoryService {
+
+    private final LogAssignmentRepository logAssignmentRepository;
+    private final SecretSantaProperties.History settings;
+    private final JsonFactory jsonFactory;
+
+    public HistoryServiceImpl(LogAssignmentRepository logAssignmentRepository,
+                              SecretSantaProperties properties,
+                              ObjectMapper objectMapper) {
+        this.logAssignmentRepository = logAssignmentRepository;
+        this.settings = properties.getHistory();
+        this.jsonFactory = objectMapper.getFactory();
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public HistoryPageDTO findHistory(Integer year, Integer giverId, Integer receiverId, String after, Integer size) {
+        int pageSize = pageSize(size);
+        int[] position = parseCursor(after);
+
+        List<AssignmentHistoryView> rows = logAssignmentRepository.findHistoryPage(
+                year, giverId, receiverId, position[0], position[1], PageRequest.ofSize(pageSize));
+
+        String nextCursor = null;
+        if (rows.size() == pageSize) {
+            AssignmentHistoryView last = rows.get(rows.size() - 1);
+            nextCursor = last.getYear() + ":" + last.getId();
+        }
+        return new HistoryPageDTO(AssignmentHistoryMapper.toDtoList(rows), nextCursor);
+    }
+
+    /**
+     * Writes every matching entry as NDJSON. The transaction, and its connection, stay open
+     * until the last row is written, which lets the driver fetch the rows in batches.
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public void exportHistory(Integer year, Integer giverId, Integer receiverId, OutputStream out)
+            throws IOException {
+        try (Stream<AssignmentHistoryView> rows = logAssignmentRepository.streamHistory(year, giverId, receiverId);
+             JsonGenerator generator = jsonFactory.createGenerator(out)
+                     .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+                     .setRootValueSeparator(null)) {
+            Iterator<AssignmentHistoryView> iterator = rows.iterator();
+            while (iterator.hasNext()) {
+                AssignmentHistoryMapper.writeNdjson(iterator.next(), generator);
+            }
+        }
+    }
+
+    private int pageSize(Integer size) {
+        if (size == null) {
+            return settings.getDefaultPageSize();
+        }
+        if (size < 1 || size > settings.getMaxPageSize()) {
+            throw badRequest("size must be between 1 and " + settings.getMaxPageSize());
+        }
+        return size;
+    }
+
+    /**
+     * Parses a "year:id" cursor into its (year, id) position. No cursor starts before the first row.
+     */
+    private static int[] parseCursor(String after) {
+        if (after == null || after.isEmpty()) {
+            return new int[]{Integer.MIN_VALUE, Integer.MIN_VALUE};
+        }
+        int separator = after.indexOf(':');
+        try {
+            if (separator > 0) {
+                return new int[]{
+                        Integer.parseInt(after, 0, separator, 10),
+                        Integer.parseInt(after, separator + 1, after.length(), 10)
+                };
+            }
+        } catch (NumberFormatException e) {
+            // reported below
+        }
+        throw badRequest("Invalid cursor: " + after);
+    }
+
+    private static AppSecretSantaException badRequest(String message) {
+        return new AppSecretSantaException(message, HttpStatus.BAD_REQUEST.value(), HttpStatus.BAD_REQUEST.name());
+    }
+
+}
@@ -0,0 +1,212 @@
+package com.bettercloud.secret_santa.services.impl;
+
+import com.bettercloud.secret_santa.config.SecretSantaProperties;
+import com.bettercloud.secret_santa.dto.ApiResponseDTO;
+import com.bettercloud.secret_santa.dto.ParticipantRequestDTO;
+import com.bettercloud.secret_santa.entities.DrawRequest;
+import com.bettercloud.secret_santa.exceptions.AppSecretSantaException;
+import com.bettercloud.secret_santa.repositories.DrawRequestRepository;
+import com.bettercloud.secret_santa.services.IdempotentDraw;
+import com.bettercloud.secret_santa.services.IdempotentDrawService;
+import com.bettercloud.secret_santa.services.SecretSantaService;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Makes {@code POST /generate/{year}} safe to retry.
+ * <p>
+ * A request is identified by its Idempotency-Key header or, without one, by a hash of its year
+ * and participants. The response of the first successful draw is inserted into the
+ * {@code draw_requests} table in the write transaction of the draw, so either both commit or
+ * neither does, and is returned to every later request with the same key, without running the
+ * solver or writing assignments again. Requests arriving on this instance while the first one
+ * is still drawing wait for its result, through a map of in-flight futures; a duplicate drawing
+ * on another instance loses on the primary key of the table, or on the draw conflict check,
+ * and replays the response of the winner.
+ * <p>
+ * Failed draws are not stored: they wrote nothing, so a retry runs them again.
+ */
+@Service
+public class IdempotentDrawServiceImpl implements IdempotentDrawService {
+
+    private static final int MAX_KEY_LENGTH = 255;
+    private static final String CONTENT_KEY_PREFIX = "sha256:";
+
+    private final SecretSantaService secretSantaService;
+    private final DrawRequestRepository drawRequestRepository;
+    private final ObjectMapper objectMapper;
+    private final SecretSantaProperties.Idempotency settings;
+    private final ConcurrentMap<String, InFlight> inFlight = new ConcurrentHashMap<>();
+
+    public IdempotentDrawServiceImpl(SecretSantaService secretSantaService,
+                                     DrawRequestRepository drawRequestRepository,
+                                     ObjectMapper objectMapper,
+                                     SecretSantaProperties properties) {
+        this.secretSantaService = secretSantaService;
+        this.drawRequestRepository = drawRequestRepository;
+        this.objectMapper = objectMapper;
+        this.settings = properties.getIdempotency();
+    }
+
+    /**
+     * Runs the draw of the request, or returns the response of the earlier request with the same key.
+     *
+     * @param idempotencyKey the Idempotency-Key header, null if absent
+     * @return the response, flagged as replayed when it was not drawn for this request
+     * @throws AppSecretSantaException 400 if the key is too long, 422 if it was used for a
+     *                                 different request, or the error of the draw
+     */
+    @Override
+    public IdempotentDraw createAssignments(String idempotencyKey, List<ParticipantRequestDTO> participantRequestDTOList,
+                                            int currentYear) {
+        String requestHash = requestHash(participantRequestDTOList, currentYear);
+        String key;
+        if (idempotencyKey != null && !idempotencyKey.isBlank()) {
+            if (idempotencyKey.length() > MAX_KEY_LENGTH) {
+                throw new AppSecretSantaException("The Idempotency-Key header cannot be longer than "
+                        + MAX_KEY_LENGTH + " characters", HttpStatus.BAD_REQUEST.value(), HttpStatus.BAD_REQUEST.name());
+            }
+            key = idempotencyKey;
+        } else if (settings.isHashWhenNoKey()) {
+            key = CONTENT_KEY_PREFIX + requestHash;
+        } else {
+            return new IdempotentDraw(secretSantaService.createAssignments(participantRequestDTOList, currentYear), false);
+        }
+
+        // Only one request per key draws on this instance; the others wait for its response
+        InFlight mine = new InFlight(requestHash, new CompletableFuture<>());
+        InFlight running = inFlight.putIfAbsent(key, mine);
+        if (running != null) {
+            checkSameRequest(key, running.requestHash(), requestHash);
+            return new IdempotentDraw(await(running.response()), true);
+        }
+
+        try {
+            Optional<DrawRequest> stored = drawRequestRepository.findById(key);
+            if (stored.isPresent()) {
+                checkSameRequest(key, stored.get().getRequestHash(), requestHash);
+                ApiResponseDTO response = read(stored.get());
+                mine.response().complete(response);
+                return new IdempotentDraw(response, true);
+            }
+
+            IdempotentDraw draw = drawOrReplay(key, requestHash, participantRequestDTOList, currentYear);
+            mine.response().complete(draw.getResponse());
+            return draw;
+        } catch (RuntimeException e) {
+            mine.response().completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, mine);
+        }
+    }
+
+    /**
+     * Runs the draw, storing its response in the same transaction. When the same request was
+     * drawn meanwhile by another instance, this draw is rolled back, either on the primary key of
+     * draw_requests or on the conflict check of the draw, and the stored response is replayed.
+     */
+    private IdempotentDraw drawOrReplay(String key, String requestHash,
+                                        List<ParticipantRequestDTO> participantRequestDTOList, int currentYear) {
+        try {
+            return new IdempotentDraw(secretSantaService.createAssignments(participantRequestDTOList, currentYear,
+                    response -> store(key, requestHash, currentYear, response)), false);
+        } catch (DataIntegrityViolationException e) {
+            return replayConcurrent(key, requestHash).orElseThrow(() -> new AppSecretSantaException(
+                    "A request with the idempotency key " + key + " is already being processed",
+                    HttpStatus.CONFLICT.value(), HttpStatus.CONFLICT.name()));
+        } catch (AppSecretSantaException e) {
+            if (e.getCode() != HttpStatus.CONFLICT.value()) {
+                throw e;
+            }
+            return replayConcurrent(key, requestHash).orElseThrow(() -> e);
+        }
+    }
+
+    private Optional<IdempotentDraw> replayConcurrent(String key, String requestHash) {
+        return drawRequestRepository.findById(key).map(stored -> {
+            checkSameRequest(key, stored.getRequestHash(), requestHash);
+            return new IdempotentDraw(read(stored), true);
+        });
+    }
+
+    /**
+     * Inserts the response of a draw, inside its write transaction: if this fails, the draw
+     * is rolled back with it.
+     */
+    private void store(String key, String requestHash, int currentYear, ApiResponseDTO response) {
+        String json;
+        try {
+            json = objectMapper.writeValueAsString(response);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not serialize the response of draw request " + key, e);
+        }
+        drawRequestRepository.insert(key, currentYear, requestHash, Instant.now(), json);
+    }
+
+    private ApiResponseDTO read(DrawRequest stored) {
+        try {
+            return objectMapper.readValue(stored.getResponse(), ApiResponseDTO.class);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Unreadable response stored for draw request "
+                    + stored.getIdempotencyKey(), e);
+        }
+    }
+
+    private static void checkSameRequest(String key, String expectedHash, String requestHash) {
+        if (!expectedHash.equals(requestHash)) {
+            throw new AppSecretSantaException("The idempotency key " + key + " was already used for a different request",
+                    HttpStatus.UNPROCESSABLE_ENTITY.value(), HttpStatus.UNPROCESSABLE_ENTITY.name());
+        }
+    }
+
+    /**
+     * Waits for the draw of another request, rethrowing its error as is.
+     */
+    private static ApiResponseDTO await(CompletableFuture<ApiResponseDTO> response) {
+        try {
+            return response.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * SHA-256 of the year and the participant list as JSON, in hex.
+     */
+    private String requestHash(List<ParticipantRequestDTO> participantRequestDTOList, int currentYear) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update((currentYear + "\n").getBytes(StandardCharsets.UTF_8));
+            digest.update(objectMapper.writeValueAsBytes(participantRequestDTOList));
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException | JsonProcessingException e) {
+            throw new IllegalStateException("Could not hash the draw request", e);
+        }
+    }
+
+    /**
+     * A draw running on this instance and the hash of the request that started it.
+     */
+    private record InFlight(String requestHash, CompletableFuture<ApiResponseDTO> response) {
+    }
+
+}
@@ -0,0 +1,177 @@
+package com.bettercloud.secret_santa.services.impl;
+
+import com.bettercloud.secret_santa.config.SecretSantaProperties;
+import com.bettercloud.secret_santa.repositories.AssignmentPairView;
+import com.bettercloud.secret_santa.repositories.LogAssignmentRepository;
+import com.bettercloud.secret_santa.services.DrawCommittedEvent;
+import com.bettercloud.secret_santa.services.DrawRepairedEvent;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * In-process cache of each giver's recent receivers, shared by all the draws of this instance.
+ * <p>
+ * An entry holds every pair of its giver from a floor year onwards, and serves any draw whose
+ * lookback starts at or after that floor; a draw looking further back reloads it. Draws committed
+ * by this instance are appended to the entries of their givers (write-through), so in steady state
+ * the history checks of a draw never reach the database. Draws committed by other instances show
+ * up once the entry expires, after {@code secret-santa.history.cache-ttl}.
+ */
+@Component
+public class RecentPairCache {
+
+    /**
+     * Maximum number of giver IDs bound into a single IN clause.
+     */
+    private static final int IN_CLAUSE_CHUNK_SIZE = 10_000;
+
+    private final LogAssignmentRepository logAssignmentRepository;
+    private final Cache<Integer, GiverHistory> cache;
+
+    /**
+     * Guards {@link #commits} together with the cache writes that depend on it.
+     */
+    private final Object writeLock = new Object();
+
+    /**
+     * Number of draws committed by this instance. A load that overlapped a commit may have
+     * missed its pairs, so it is used for that draw but not cached.
+     */
+    private long commits;
+
+    public RecentPairCache(LogAssignmentRepository logAssignmentRepository,
+                           SecretSantaProperties properties,
+                           MeterRegistry meterRegistry) {
+        this.logAssignmentRepository = logAssignmentRepository;
+        SecretSantaProperties.History settings = properties.getHistory();
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(settings.getCacheSize())
+                .expireAfterWrite(settings.getCacheTtl())
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "recent-pairs");
+    }
+
+    /**
+     * Calls the consumer with every (giver, receiver) pair assigned since the provided limit year
+     * (inclusive) whose giver is one of the given participants. Givers that are not cached, or
+     * cached with a later floor year, are loaded with one query per chunk and cached.
+     */
+    public void forEachRecentPair(int[] giverIds, int yearLimit, PairConsumer consumer) {
+        List<Integer> misses = new ArrayList<>();
+        for (int giverId : giverIds) {
+            GiverHistory history = cache.getIfPresent(giverId);
+            if (history != null && history.floorYear() <= yearLimit) {
+                history.forEachSince(giverId, yearLimit, consumer);
+            } else {
+                misses.add(giverId);
+            }
+        }
+        if (!misses.isEmpty()) {
+            load(misses, yearLimit, consumer);
+        }
+    }
+
+    /**
+     * Appends a committed draw to the cached entries of its givers. Givers that are not cached
+     * are left out: their older pairs are unknown, so they are loaded on their next draw.
+     */
+    @TransactionalEventListener
+    public void onDrawCommitted(DrawCommittedEvent event) {
+        int[] giverIds = event.getGiverIds();
+        int[] receiverIds = event.getReceiverIds();
+        synchronized (writeLock) {
+            commits++;
+            for (int i = 0; i < giverIds.length; i++) {
+                int receiverId = receiverIds[i];
+                cache.asMap().computeIfPresent(giverIds[i],
+                        (giverId, history) -> history.with(event.getYear(), receiverId));
+            }
+        }
+    }
+
+    /**
+     * Drops the entries of the givers of a repaired draw: their pairs were changed or deleted,
+     * which an append cannot express, so they are loaded again on their next draw.
+     */
+    @TransactionalEventListener
+    public void onDrawRepaired(DrawRepairedEvent event) {
+        synchronized (writeLock) {
+            commits++;
+            for (int giverId : event.getGiverIds()) {
+                cache.invalidate(giverId);
+            }
+        }
+    }
+
+    private void load(List<Integer> giverIds, int yearLimit, PairConsumer consumer) {
+        long commitsBefore;
+        synchronized (writeLock) {
+            commitsBefore = commits;
+        }
+
+        Map<Integer, GiverHistory> loaded = new HashMap<>();
+        GiverHistory empty = new GiverHistory(yearLimit, new int[0], new int[0]);
+        for (Integer giverId : giverIds) {
+            loaded.put(giverId, empty);
+        }
+        for (int from = 0; from < giverIds.size(); from += IN_CLAUSE_CHUNK_SIZE) {
+            List<Integer> chunk = giverIds.subList(from, Math.min(from + IN_CLAUSE_CHUNK_SIZE, giverIds.size()));
+            for (AssignmentPairView pair : logAssignmentRepository.findRecentPairs(chunk, yearLimit)) {
+                consumer.accept(pair.getGiverId(), pair.getReceiverId(), pair.getYear());
+                loaded.merge(pair.getGiverId(), empty,
+                        (history, unused) -> history.with(pair.getYear(), pair.getReceiverId()));
+            }
+        }
+
+        synchronized (writeLock) {
+            if (commits == commitsBefore) {
+                cache.putAll(loaded);
+            }
+        }
+    }
+
+    /**
+     * Receives one (giver, receiver) pair by participant ID.
+     */
+    @FunctionalInterface
+    public interface PairConsumer {
+
+        void accept(int giverId, int receiverId, int year);
+
+    }
+
+    /**
+     * The pairs of one giver from floorYear onwards, as parallel arrays. Immutable: updates copy it.
+     */
+    private record GiverHistory(int floorYear, int[] years, int[] receiverIds) {
+
+        GiverHistory with(int year, int receiverId) {
+            int[] newYears = Arrays.copyOf(years, years.length + 1);
+            int[] newReceiverIds = Arrays.copyOf(receiverIds, receiverIds.length + 1);
+            newYears[years.length] = year;
+            newReceiverIds[receiverIds.length] = receiverId;
+            return new GiverHistory(floorYear, newYears, newReceiverIds);
+        }
+
+        void forEachSince(int giverId, int yearLimit, PairConsumer consumer) {
+            for (int i = 0; i < years.length; i++) {
+                if (years[i] >= yearLimit) {
+                    consumer.accept(giverId, receiverIds[i], years[i]);
+                }
+            }
+        }
+
+    }
+
+}
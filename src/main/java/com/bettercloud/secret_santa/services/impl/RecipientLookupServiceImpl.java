@@ -0,0 +1,133 @@
+package com.bettercloud.secret_santa.services.impl;
+
+import com.bettercloud.secret_santa.config.SecretSantaProperties;
+import com.bettercloud.secret_santa.dto.RecipientDTO;
+import com.bettercloud.secret_santa.repositories.LogAssignmentRepository;
+import com.bettercloud.secret_santa.repositories.RecipientView;
+import com.bettercloud.secret_santa.services.DrawCommittedEvent;
+import com.bettercloud.secret_santa.services.DrawRepairedEvent;
+import com.bettercloud.secret_santa.services.RecipientLookupService;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Answers "who is my recipient" from an in-process cache of (year, giver email) -> receivers.
+ * <p>
+ * Draws committed by this instance warm the cache with their givers right after the commit,
+ * from what the write phase already had, so the first lookups on reveal day do not reach the
+ * database; a draw adding to givers' earlier receivers of the year, or a repair, evicts their
+ * entries instead. Only givers with receivers are cached, so a draw committed by another instance
+ * is seen by the next lookup of a giver without receivers. Entries are bounded in size and expire
+ * after {@code secret-santa.lookup.ttl}, which bounds how long another instance's changes to
+ * receivers already cached can go unnoticed.
+ */
+@Service
+public class RecipientLookupServiceImpl implements RecipientLookupService {
+
+    private final LogAssignmentRepository logAssignmentRepository;
+    private final Cache<RecipientKey, List<RecipientDTO>> cache;
+
+    /**
+     * Guards {@link #commits} together with the cache writes that depend on it.
+     */
+    private final Object writeLock = new Object();
+
+    /**
+     * Number of draws and repairs committed by this instance. A load that overlapped one may have
+     * read the receivers it replaced, so it is returned but not cached.
+     */
+    private long commits;
+
+    public RecipientLookupServiceImpl(LogAssignmentRepository logAssignmentRepository,
+                                      SecretSantaProperties properties,
+                                      MeterRegistry meterRegistry) {
+        this.logAssignmentRepository = logAssignmentRepository;
+        SecretSantaProperties.Lookup settings = properties.getLookup();
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(settings.getCacheSize())
+                .expireAfterWrite(settings.getTtl())
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "recipients");
+    }
+
+    /**
+     * Returns the receivers of the giver in the given year, loading them on a cache miss.
+     * An empty list (no draw yet) is not cached, so the giver's draw is found as soon as it commits.
+     */
+    @Override
+    public List<RecipientDTO> findRecipients(int year, String giverEmail) {
+        RecipientKey key = new RecipientKey(year, giverEmail);
+        List<RecipientDTO> recipients = cache.getIfPresent(key);
+        if (recipients != null) {
+            return recipients;
+        }
+
+        long commitsBefore;
+        synchronized (writeLock) {
+            commitsBefore = commits;
+        }
+        recipients = load(year, giverEmail);
+        synchronized (writeLock) {
+            if (commits == commitsBefore && !recipients.isEmpty()) {
+                cache.put(key, recipients);
+            }
+        }
+        return recipients;
+    }
+
+    /**
+     * Warms the cache with a draw once it is committed. If some giver already had receivers
+     * that year, the draw is not the whole answer for them, so their entries are dropped instead.
+     */
+    @TransactionalEventListener
+    public void onDrawCommitted(DrawCommittedEvent event) {
+        int[] giverIds = event.getGiverIds();
+        synchronized (writeLock) {
+            commits++;
+            for (int i = 0; i < giverIds.length; i++) {
+                RecipientKey key = new RecipientKey(event.getYear(), event.getGiverEmails()[i]);
+                if (event.isOnlyAssignmentsOfYear()) {
+                    cache.put(key, List.of(new RecipientDTO(event.getYear(), giverIds[i], event.getReceiverIds()[i],
+                            event.getReceiverNames()[i], event.getReceiverEmails()[i])));
+                } else {
+                    cache.invalidate(key);
+                }
+            }
+        }
+    }
+
+    /**
+     * Drops the entries of the givers of a repaired draw, whose receivers changed or were deleted.
+     */
+    @TransactionalEventListener
+    public void onDrawRepaired(DrawRepairedEvent event) {
+        synchronized (writeLock) {
+            commits++;
+            for (String giverEmail : event.getGiverEmails()) {
+                cache.invalidate(new RecipientKey(event.getYear(), giverEmail));
+            }
+        }
+    }
+
+    private List<RecipientDTO> load(int year, String giverEmail) {
+        List<RecipientView> views = logAssignmentRepository.findRecipients(giverEmail, year);
+        List<RecipientDTO> recipients = new ArrayList<>(views.size());
+        for (RecipientView view : views) {
+            recipients.add(new RecipientDTO(year, view.getGiverId(), view.getReceiverId(),
+                    view.getReceiverName(), view.getReceiverEmail()));
+        }
+        return List.copyOf(recipients);
+    }
+
+    private record RecipientKey(int year, String giverEmail) {
+    }
+
+}
@@ -1,205 +1,747 @@
 package com.bettercloud.secret_santa.services.impl;
 
+import com.bettercloud.secret_santa.config.SecretSantaProperties;
+import com.bettercloud.secret_santa.constraints.DrawConstraint;
+import com.bettercloud.secret_santa.constraints.DrawContext;
 import com.bettercloud.secret_santa.dto.ApiResponseDTO;
 import com.bettercloud.secret_santa.dto.AssignmentResponseDTO;
+import com.bettercloud.secret_santa.dto.GroupDrawRequestDTO;
+import com.bettercloud.secret_santa.dto.GroupDrawResultDTO;
 import com.bettercloud.secret_santa.dto.ParticipantRequestDTO;
 import com.bettercloud.secret_santa.entities.LogAssignment;
-import com.bettercloud.secret_santa.entities.Participant;
 import com.bettercloud.secret_santa.exceptions.AppSecretSantaException;
+import com.bettercloud.secret_santa.ingest.ParticipantStreamParser;
 import com.bettercloud.secret_santa.mappers.LogAssignmentMapper;
-import com.bettercloud.secret_santa.repositories.LogAssignmentRepository;
-import com.bettercloud.secret_santa.repositories.ParticipantRepository;
+import com.bettercloud.secret_santa.metrics.DrawMetrics;
+import com.bettercloud.secret_santa.services.DrawRepair;
+import com.bettercloud.secret_santa.services.DrawResult;
+import com.bettercloud.secret_santa.services.DrawSnapshot;
+import com.bettercloud.secret_santa.services.DrawStoreService;
 import com.bettercloud.secret_santa.services.SecretSantaService;
+import com.bettercloud.secret_santa.solver.AssignmentSolver;
+import com.bettercloud.secret_santa.solver.CycleRepair;
+import com.bettercloud.secret_santa.solver.HungarianSolver;
+import com.bettercloud.secret_santa.solver.DrawProblem;
+import com.bettercloud.secret_santa.solver.ExclusionMatrix;
+import com.bettercloud.secret_santa.solver.FeasibilityChecker;
+import com.bettercloud.secret_santa.solver.Infeasibility;
+import com.bettercloud.secret_santa.solver.PairPenalties;
+import com.bettercloud.secret_santa.solver.RecentPairs;
+import com.bettercloud.secret_santa.solver.SolveBudget;
+import com.bettercloud.secret_santa.solver.SolveBudgetExceededException;
+import com.bettercloud.secret_santa.solver.SolverStrategy;
 import com.bettercloud.secret_santa.util.Meta;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 
+import java.io.InputStream;
 import java.util.ArrayList;
-import java.util.Collections;
+import java.util.Arrays;
+import java.util.EnumMap;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
-import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
-
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+@Slf4j
 @Service
 public class SecretSantaServiceImpl implements SecretSantaService {
-    private final ParticipantRepository participantRepository;
-    private final LogAssignmentRepository logAssignmentRepository;
 
-    public SecretSantaServiceImpl(ParticipantRepository participantRepository, LogAssignmentRepository logAssignmentRepository) {
-        this.participantRepository = participantRepository;
-        this.logAssignmentRepository = logAssignmentRepository;
+    private final DrawStoreService drawStoreService;
+    private final DrawLocks drawLocks;
+    private final Map<SolverStrategy, AssignmentSolver> solvers;
+    private final HungarianSolver hungarianSolver;
+    private final List<DrawConstraint> constraints;
+    private final SecretSantaProperties properties;
+    private final DrawMetrics drawMetrics;
+    private final ParticipantStreamParser participantStreamParser;
+    private final ForkJoinPool batchPool;
+
+    public SecretSantaServiceImpl(DrawStoreService drawStoreService,
+                                  DrawLocks drawLocks,
+                                  List<AssignmentSolver> solvers,
+                                  HungarianSolver hungarianSolver,
+                                  List<DrawConstraint> constraints,
+                                  SecretSantaProperties properties,
+                                  DrawMetrics drawMetrics,
+                                  ParticipantStreamParser participantStreamParser) {
+        this.drawStoreService = drawStoreService;
+        this.drawLocks = drawLocks;
+        this.solvers = new EnumMap<>(SolverStrategy.class);
+        solvers.forEach(solver -> this.solvers.put(solver.strategy(), solver));
+        this.hungarianSolver = hungarianSolver;
+        this.constraints = constraints;
+        this.properties = properties;
+        this.drawMetrics = drawMetrics;
+        this.participantStreamParser = participantStreamParser;
+        this.batchPool = new ForkJoinPool(Math.max(1, properties.getBatch().getParallelism()),
+                new BatchThreadFactory(), null, false);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        batchPool.shutdownNow();
     }
 
     private final Meta meta = new Meta(UUID.randomUUID().toString(), "OK", 200);
 
     /**
      * Creates Secret Santa assignments for the given list of participants,
-     * applying the necessary constraints.
+     * applying the necessary constraints (see {@link #drawAssignments(List, int)}).
      *
      * @param participantRequestDTOList list of participants to be processed
      * @param currentYear               the current year for the assignments
      * @return an ApiResponseDTO with the assignment results
      */
     @Override
-    @Transactional
     public ApiResponseDTO createAssignments(List<ParticipantRequestDTO> participantRequestDTOList, int currentYear) {
+        return toResponse(drawAssignments(participantRequestDTOList, currentYear));
+    }
+
+    /**
+     * Same as {@link #createAssignments(List, int)}, handing the response to {@code beforeCommit}
+     * inside the write transaction of the draw, so whatever it records commits or rolls back
+     * together with the assignments. An exception it throws fails the draw.
+     *
+     * @param beforeCommit called with the response once the assignments are saved
+     * @return the response handed to {@code beforeCommit}
+     */
+    @Override
+    public ApiResponseDTO createAssignments(List<ParticipantRequestDTO> participantRequestDTOList, int currentYear,
+                                            Consumer<ApiResponseDTO> beforeCommit) {
+        AtomicReference<ApiResponseDTO> response = new AtomicReference<>();
+        draw(participantRequestDTOList, currentYear, result -> {
+            response.set(toResponse(result));
+            beforeCommit.accept(response.get());
+        });
+        return response.get();
+    }
+
+    /**
+     * Same as {@link #createAssignments(List, int)}, for participants uploaded as NDJSON or CSV.
+     */
+    @Override
+    public ApiResponseDTO createAssignments(InputStream participantStream, MediaType contentType, int currentYear) {
+        return toResponse(drawAssignments(participantStream, contentType, currentYear));
+    }
+
+    /**
+     * Runs many independent draws in one request, e.g. one per office or team.
+     * <p>
+     * The groups share one read transaction (one bulk upsert and one history query for all of
+     * them) and one write transaction (one batched insert); in between, they are compiled and
+     * solved concurrently on the batch pool ({@code secret-santa.batch.parallelism}). A group that
+     * fails, because it is odd, impossible, over the solve budget or drawn by someone else
+     * meanwhile, is reported with its error and does not stop the others.
+     *
+     * @param groups      the participants of each draw
+     * @param currentYear the current year for the assignments
+     * @return an ApiResponseDTO with the result of each group, in the order of the request
+     * @throws AppSecretSantaException 400 if the batch is empty or has more groups than
+     *                                 {@code secret-santa.batch.max-groups}
+     */
+    @Override
+    public ApiResponseDTO createBatchAssignments(List<GroupDrawRequestDTO> groups, int currentYear) {
+        int maxGroups = properties.getBatch().getMaxGroups();
+        if (groups.isEmpty() || groups.size() > maxGroups) {
+            throw new AppSecretSantaException("A batch must have between 1 and " + maxGroups + " groups",
+                    HttpStatus.BAD_REQUEST.value(), HttpStatus.BAD_REQUEST.name());
+        }
+
+        // 1. Ensure an even number of participants in each group, and that nobody is listed twice,
+        // in a group or across groups, since the groups are drawn for the same year
+        GroupDrawResultDTO[] results = new GroupDrawResultDTO[groups.size()];
+        List<Integer> drawnGroups = new ArrayList<>();
+        List<List<ParticipantRequestDTO>> participants = new ArrayList<>();
+        Set<String> batchEmails = new HashSet<>();
+        for (int group = 0; group < groups.size(); group++) {
+            List<ParticipantRequestDTO> participantRequestDTOList = groups.get(group).getParticipants();
+            if (participantRequestDTOList == null || participantRequestDTOList.size() % 2 != 0) {
+                results[group] = failedGroup(group, groups.get(group), new AppSecretSantaException(
+                        "The participant list must have an even number of elements",
+                        HttpStatus.BAD_REQUEST.value(), HttpStatus.BAD_REQUEST.name()));
+                continue;
+            }
+            Set<String> groupEmails = new HashSet<>();
+            String repeated = firstRepeatedEmail(participantRequestDTOList, groupEmails);
+            String shared = groupEmails.stream().filter(batchEmails::contains).findFirst().orElse(null);
+            if (repeated != null || shared != null) {
+                results[group] = failedGroup(group, groups.get(group), new AppSecretSantaException(
+                        repeated != null
+                                ? "The participant with email " + repeated + " is listed more than once"
+                                : "The participant with email " + shared + " is also listed in another group",
+                        HttpStatus.BAD_REQUEST.value(), HttpStatus.BAD_REQUEST.name()));
+            } else {
+                batchEmails.addAll(groupEmails);
+                drawnGroups.add(group);
+                participants.add(participantRequestDTOList);
+            }
+        }
+
+        if (!drawnGroups.isEmpty()) {
+            // 2. Read phase, for every group at once
+            List<DrawSnapshot> snapshots = drawStoreService.loadDraws(participants, currentYear);
+
+            // 3. Compute phase: the groups are independent, so they are solved in parallel
+            List<ForkJoinTask<GroupOutcome>> tasks = new ArrayList<>(snapshots.size());
+            for (int k = 0; k < snapshots.size(); k++) {
+                DrawSnapshot snapshot = snapshots.get(k);
+                List<ParticipantRequestDTO> participantRequestDTOList = participants.get(k);
+                tasks.add(batchPool.submit(() -> computeGroup(snapshot, participantRequestDTOList, currentYear)));
+            }
+            List<GroupOutcome> outcomes = tasks.stream().map(ForkJoinTask::join).toList();
+
+            // 4. Write phase: the solved groups in one batched write
+            List<Integer> solved = new ArrayList<>();
+            for (int k = 0; k < outcomes.size(); k++) {
+                if (outcomes.get(k).failure() != null) {
+                    results[drawnGroups.get(k)] = failedGroup(drawnGroups.get(k), groups.get(drawnGroups.get(k)),
+                            outcomes.get(k).failure());
+                } else {
+                    solved.add(k);
+                }
+            }
+            if (!solved.isEmpty()) {
+                drawStoreService.ensurePartition(currentYear);
+            }
+            List<List<LogAssignment>> saved = solved.isEmpty() ? List.of() : drawMetrics.time(DrawMetrics.Phase.PERSIST,
+                    () -> drawLocks.withLocks(currentYear,
+                            solved.stream().flatMapToInt(k -> Arrays.stream(snapshots.get(k).getParticipantIds())).toArray(),
+                            () -> drawStoreService.saveDraws(solved.stream().map(snapshots::get).toList(),
+                                    solved.stream().map(k -> outcomes.get(k).solution().receiverOf()).toList(),
+                                    currentYear)));
+
+            for (int i = 0; i < solved.size(); i++) {
+                int group = drawnGroups.get(solved.get(i));
+                Solution solution = outcomes.get(solved.get(i)).solution();
+                results[group] = saved.get(i) == null
+                        ? failedGroup(group, groups.get(group), new AppSecretSantaException("Another draw for year "
+                        + currentYear + " was committed for these participants while this one was being computed",
+                        HttpStatus.CONFLICT.value(), HttpStatus.CONFLICT.name()))
+                        : new GroupDrawResultDTO(group, groups.get(group).getGroupId(), "OK", 200, null,
+                        solution.penalties() == null ? null : solution.totalPenalty(),
+                        LogAssignmentMapper.toDtoList(saved.get(i), solution.penalties()));
+            }
+        }
+
+        long drawn = Arrays.stream(results).filter(result -> result.getCode() == 200).count();
+        return new ApiResponseDTO(new Meta(UUID.randomUUID().toString(), "OK", 200,
+                drawn + " of " + groups.size() + " groups drawn"), Arrays.asList(results));
+    }
+
+    /**
+     * Compiles and solves one group of a batch, turning its error into a result so the
+     * other groups go on. An unexpected error is logged and reported as a 500 of that group.
+     */
+    private GroupOutcome computeGroup(DrawSnapshot snapshot, List<ParticipantRequestDTO> participantRequestDTOList,
+                                      int currentYear) {
+        try {
+            DrawContext draw = newContext().addAll(participantRequestDTOList)
+                    .build(snapshot.getParticipantIds(), currentYear);
+            CompiledDraw compiled = drawMetrics.time(DrawMetrics.Phase.COMPILE,
+                    () -> compile(draw, snapshot.getRecentPairs()));
+            return new GroupOutcome(drawMetrics.time(DrawMetrics.Phase.SOLVE, () -> solve(compiled, currentYear)), null);
+        } catch (AppSecretSantaException e) {
+            return new GroupOutcome(null, e);
+        } catch (RuntimeException e) {
+            log.error("A group of a batch draw of year {} failed", currentYear, e);
+            return new GroupOutcome(null, new AppSecretSantaException("The draw of the group failed unexpectedly",
+                    HttpStatus.INTERNAL_SERVER_ERROR.value(), HttpStatus.INTERNAL_SERVER_ERROR.name()));
+        }
+    }
+
+    private static GroupDrawResultDTO failedGroup(int index, GroupDrawRequestDTO group, AppSecretSantaException e) {
+        return new GroupDrawResultDTO(index, group.getGroupId(), e.getStatus(), e.getCode(), e.getMessage(), null, null);
+    }
+
+    /**
+     * Repairs the committed draw of the year after participants dropped out or joined, instead
+     * of drawing again: the surviving pairs are kept and only the rows around the change are
+     * rewritten (see {@link CycleRepair}). The list is the whole group as it is now, since family
+     * IDs and attributes are not stored, and every new pair is checked against all the rules.
+     * <p>
+     * The even-number rule only applies to new draws, so a draw survives a single dropout.
+     *
+     * @param participantRequestDTOList the participants of the draw after the change
+     * @param currentYear               the year of the committed draw
+     * @return an ApiResponseDTO with the assignments that were changed or added
+     * @throws AppSecretSantaException 404 if none of the participants is part of a draw that year,
+     *                                 400 if the change cannot be absorbed without a new draw,
+     *                                 409 if the draw changed meanwhile
+     */
+    @Override
+    public ApiResponseDTO repairAssignments(List<ParticipantRequestDTO> participantRequestDTOList, int currentYear) {
+        // Checked before the read phase, which creates and renames participants
+        String repeated = firstRepeatedEmail(participantRequestDTOList, new HashSet<>());
+        if (repeated != null) {
+            throw listedMoreThanOnce(repeated);
+        }
+        DrawSnapshot snapshot = drawStoreService.loadDraw(participantRequestDTOList, currentYear);
+        int[] participantIds = snapshot.getParticipantIds();
+        List<LogAssignment> committed = drawStoreService.loadCommittedDraw(participantIds, currentYear);
+        if (committed.isEmpty()) {
+            throw new AppSecretSantaException("None of the participants is part of a draw of year " + currentYear,
+                    HttpStatus.NOT_FOUND.value(), HttpStatus.NOT_FOUND.name());
+        }
+
+        // Surviving pairs by index; the assignments of the dropouts are deleted
+        Map<Integer, Integer> indexMap = new HashMap<>();
+        for (int i = 0; i < participantIds.length; i++) {
+            indexMap.put(participantIds[i], i);
+        }
+        int[] receiverOf = new int[participantIds.length];
+        Arrays.fill(receiverOf, -1);
+        LogAssignment[] committedOf = new LogAssignment[participantIds.length];
+        List<LogAssignment> removed = new ArrayList<>();
+        for (LogAssignment assignment : committed) {
+            Integer giver = indexMap.get(assignment.getGiverId());
+            if (giver == null) {
+                removed.add(assignment);
+                continue;
+            }
+            if (committedOf[giver] != null) {
+                throw new AppSecretSantaException("The participant with ID " + assignment.getGiverId()
+                        + " is part of several draws of year " + currentYear + " and cannot be repaired",
+                        HttpStatus.BAD_REQUEST.value(), HttpStatus.BAD_REQUEST.name());
+            }
+            committedOf[giver] = assignment;
+            Integer receiver = indexMap.get(assignment.getReceiverId());
+            if (receiver != null) {
+                receiverOf[giver] = receiver;
+            }
+        }
+
+        DrawContext draw = newContext().addAll(participantRequestDTOList).build(participantIds, currentYear);
+        DrawProblem problem = compile(draw, snapshot.getRecentPairs()).problem();
+        SecretSantaProperties.Solver settings = properties.getSolver();
+        int[] repaired;
+        try {
+            repaired = CycleRepair.repair(problem, receiverOf, ThreadLocalRandom.current(),
+                            SolveBudget.start(settings.getTimeLimit(), settings.getMaxNodes()))
+                    .orElseThrow(() -> new AppSecretSantaException("The change cannot be absorbed by the draw of year "
+                            + currentYear + " with the current constraints; run a new draw instead",
+                            HttpStatus.BAD_REQUEST.value(), HttpStatus.BAD_REQUEST.name()));
+        } catch (SolveBudgetExceededException e) {
+            throw new AppSecretSantaException("The repair could not be computed within the solve budget: "
+                    + e.getMessage(), HttpStatus.SERVICE_UNAVAILABLE.value(), HttpStatus.SERVICE_UNAVAILABLE.name());
+        }
 
-        // 1. Ensure an even number of participants
+        List<LogAssignment> updated = new ArrayList<>();
+        List<Integer> previousReceiverIds = new ArrayList<>();
+        List<LogAssignment> added = new ArrayList<>();
+        for (int giver = 0; giver < repaired.length; giver++) {
+            if (repaired[giver] == receiverOf[giver]) {
+                continue;
+            }
+            LogAssignment previous = committedOf[giver];
+            LogAssignment assignment = new LogAssignment(previous != null ? previous.getId() : null,
+                    participantIds[giver], participantIds[repaired[giver]], currentYear);
+            if (previous != null) {
+                updated.add(assignment);
+                previousReceiverIds.add(previous.getReceiverId());
+            } else {
+                added.add(assignment);
+            }
+        }
+
+        Map<Integer, String> emails = new HashMap<>();
+        for (int i = 0; i < participantIds.length; i++) {
+            emails.put(participantIds[i], snapshot.getEmails()[i]);
+        }
+        DrawRepair repair = new DrawRepair(currentYear, updated,
+                previousReceiverIds.stream().mapToInt(Integer::intValue).toArray(), added, removed, emails);
+        drawStoreService.ensurePartition(currentYear);
+        List<LogAssignment> written = drawLocks.withLocks(currentYear, participantIds,
+                () -> drawStoreService.saveRepair(repair));
+        return new ApiResponseDTO(new Meta(UUID.randomUUID().toString(), "OK", 200,
+                updated.size() + " assignments changed, " + added.size() + " added and " + removed.size() + " removed"),
+                LogAssignmentMapper.toDtoList(written));
+    }
+
+    /**
+     * Runs a draw for the given list of participants, applying the necessary constraints,
+     * and returns the saved assignments without mapping them, so callers can stream them.
+     * <p>
+     * Not transactional on purpose: the database is only used by the short read and write
+     * transactions of {@link DrawStoreService}, so no connection is held while the solver runs.
+     *
+     * @param participantRequestDTOList list of participants to be processed
+     * @param currentYear               the current year for the assignments
+     * @return the saved assignments, with their IDs, and their penalties if the history rule was relaxed
+     */
+    @Override
+    public DrawResult drawAssignments(List<ParticipantRequestDTO> participantRequestDTOList, int currentYear) {
+        return draw(participantRequestDTOList, currentYear, result -> {
+        });
+    }
+
+    private DrawResult draw(List<ParticipantRequestDTO> participantRequestDTOList, int currentYear,
+                            Consumer<DrawResult> beforeCommit) {
+
+        // 1. Ensure an even number of participants, none of them listed twice
         if (participantRequestDTOList.size() % 2 != 0) {
             throw new AppSecretSantaException("The participant list must have an even number of elements",
                     HttpStatus.BAD_REQUEST.value(), HttpStatus.BAD_REQUEST.name()
             );
         }
+        String repeated = firstRepeatedEmail(participantRequestDTOList, new HashSet<>());
+        if (repeated != null) {
+            throw listedMoreThanOnce(repeated);
+        }
 
-        // 2. Find or create participants in the database
-        List<Participant> participants = ensureParticipantsExist(participantRequestDTOList);
+        return measured(() -> {
+            // 2. Read phase: find or create participants and load the pairs of the lookback window
+            DrawSnapshot snapshot = drawStoreService.loadDraw(participantRequestDTOList, currentYear);
 
-        // 3. Map participantId -> familyId and collect participant IDs
-        Map<Integer, Integer> familyMap = new HashMap<>();
-        List<Integer> participantIds = new ArrayList<>();
+            return computeAndSave(snapshot, newContext().addAll(participantRequestDTOList), currentYear, beforeCommit);
+        });
+    }
 
-        for (int i = 0; i < participants.size(); i++) {
-            Participant participant = participants.get(i);
-            participantIds.add(participant.getId());
+    /**
+     * Runs a draw for participants uploaded as NDJSON or CSV.
+     * <p>
+     * The upload is parsed incrementally and only the names and emails of its participants and
+     * what the constraints need (dense group IDs) are kept, so the list of DTOs is never held in
+     * memory. Nothing is written until the whole upload is parsed and accepted; its participants
+     * are then upserted chunk by chunk, each chunk in its own transaction.
+     *
+     * @param participantStream the request body
+     * @param contentType       {@code application/x-ndjson} or {@code text/csv}
+     * @param currentYear       the current year for the assignments
+     * @return the saved assignments, with their IDs, and their penalties if the history rule was relaxed
+     */
+    @Override
+    public DrawResult drawAssignments(InputStream participantStream, MediaType contentType, int currentYear) {
+        return measured(() -> {
+            // 1. Parse the participants, rejecting repeated emails as they arrive
+            int chunkSize = properties.getIngest().getChunkSize();
+            StreamedParticipants participants = new StreamedParticipants(newContext());
+            participantStreamParser.parse(participantStream, contentType, chunkSize, participants::add);
+
+            // 2. Validate what needs the whole upload
+            if (participants.size % 2 != 0) {
+                throw new AppSecretSantaException("The participant list must have an even number of elements",
+                        HttpStatus.BAD_REQUEST.value(), HttpStatus.BAD_REQUEST.name()
+                );
+            }
 
-            Integer familyId = participantRequestDTOList.get(i).getTempFamilyId();
-            familyMap.put(participant.getId(), familyId);
+            // 3. Upsert the accepted participants chunk by chunk
+            int[] participantIds = participants.upsert(chunkSize, drawStoreService::upsertParticipants);
+
+            // 4. Read phase: load the pairs of the lookback window
+            DrawSnapshot snapshot = drawStoreService.loadHistory(participantIds,
+                    Arrays.copyOf(participants.names, participants.size),
+                    Arrays.copyOf(participants.emails, participants.size), currentYear);
+
+            return computeAndSave(snapshot, participants.context, currentYear, result -> {
+            });
+        });
+    }
+
+    /**
+     * Runs a draw, recording its duration and outcome.
+     */
+    private DrawResult measured(Supplier<DrawResult> drawing) {
+        DrawMetrics.Draw draw = drawMetrics.startDraw();
+        String outcome = "success";
+        try {
+            DrawResult result = drawing.get();
+            if (result.isRelaxed()) {
+                outcome = "relaxed";
+            }
+            return result;
+        } catch (AppSecretSantaException e) {
+            outcome = e.getStatus().toLowerCase(Locale.ROOT);
+            throw e;
+        } catch (RuntimeException e) {
+            outcome = "error";
+            throw e;
+        } finally {
+            drawMetrics.stopDraw(draw, properties.getSolver().getStrategy(), outcome);
         }
+    }
+
+    /**
+     * Compute and write phases, shared by every way of submitting participants.
+     *
+     * @param beforeCommit called with the result inside the write transaction
+     */
+    private DrawResult computeAndSave(DrawSnapshot snapshot, DrawContext.Builder participants, int currentYear,
+                                      Consumer<DrawResult> beforeCommit) {
+        // Compute phase, without any connection: compile the constraints, fail fast when
+        // they make any draw impossible, then run the configured solver
+        DrawContext draw = participants.build(snapshot.getParticipantIds(), currentYear);
+        CompiledDraw compiled = drawMetrics.time(DrawMetrics.Phase.COMPILE,
+                () -> compile(draw, snapshot.getRecentPairs()));
+        Solution solution = drawMetrics.time(DrawMetrics.Phase.SOLVE, () -> solve(compiled, currentYear));
+
+        // Write phase: save the assignments unless a conflicting draw was committed meanwhile,
+        // one draw at a time per participant and year
+        drawStoreService.ensurePartition(currentYear);
+        List<LogAssignment> saved = drawMetrics.time(DrawMetrics.Phase.PERSIST,
+                () -> drawLocks.withLocks(currentYear, snapshot.getParticipantIds(),
+                        () -> drawStoreService.saveDraw(snapshot, solution.receiverOf(), currentYear,
+                                logs -> beforeCommit.accept(result(logs, solution)))));
+        return result(saved, solution);
+    }
 
-        //4. Perform the backtracking assignment process
-        Map<Integer, Integer> finalAssignments = new HashMap<>();
-        // Shuffle the list to ensure randomness
-        Collections.shuffle(participantIds);
-        boolean success = assignGifts(0, participantIds, finalAssignments, currentYear, familyMap);
+    private static DrawResult result(List<LogAssignment> saved, Solution solution) {
+        return solution.penalties() == null
+                ? DrawResult.strict(saved)
+                : new DrawResult(saved, solution.penalties(), solution.totalPenalty());
+    }
 
-        if (!success) {
-            throw new AppSecretSantaException("No valid assignment found with the current constraints",
-                    HttpStatus.BAD_REQUEST.value(), HttpStatus.BAD_REQUEST.name());
+    /**
+     * Compiles every registered {@link DrawConstraint} and then the history of the draw into one
+     * exclusion matrix, once, so the solver checks any pair with a single bit lookup. The history
+     * goes last so the pairs only it forbids are known, in case the draw has to relax it.
+     */
+    private CompiledDraw compile(DrawContext draw, RecentPairs history) {
+        ExclusionMatrix exclusions = new ExclusionMatrix(draw.size());
+        for (DrawConstraint constraint : constraints) {
+            constraint.compile(draw, exclusions);
         }
+        int[] historyOnlyPairs = history.excludeInto(exclusions);
+        return new CompiledDraw(new DrawProblem(draw.participantIds(), draw.familyIds(), exclusions),
+                history, historyOnlyPairs);
+    }
 
-        // 5. Convert the final assignments to LogAssignment entities and save them
-        List<LogAssignment> logsToSaveList = LogAssignmentMapper.fromFinalAssignments(finalAssignments, currentYear);
-        logAssignmentRepository.saveAll(logsToSaveList);
+    private DrawContext.Builder newContext() {
+        return new DrawContext.Builder(properties.getConstraints().getExcludeSameAttributes());
+    }
 
-        List<AssignmentResponseDTO> assignmentResponseDTOList = LogAssignmentMapper.toDtoList(logsToSaveList);
+    /**
+     * Adds the emails of the list to {@code seen}, returning the first one that was already
+     * there; listing an email twice would make that participant give two gifts.
+     *
+     * @return the first repeated email, null if there is none
+     */
+    private static String firstRepeatedEmail(List<ParticipantRequestDTO> participantRequestDTOList, Set<String> seen) {
+        for (ParticipantRequestDTO participant : participantRequestDTOList) {
+            if (participant.getEmail() != null && !seen.add(participant.getEmail())) {
+                return participant.getEmail();
+            }
+        }
+        return null;
+    }
+
+    private static AppSecretSantaException listedMoreThanOnce(String email) {
+        return new AppSecretSantaException("The participant with email " + email + " is listed more than once",
+                HttpStatus.BAD_REQUEST.value(), HttpStatus.BAD_REQUEST.name());
+    }
+
+    private ApiResponseDTO toResponse(DrawResult result) {
+        List<AssignmentResponseDTO> assignmentResponseDTOList =
+                LogAssignmentMapper.toDtoList(result.getAssignments(), result.getPenalties());
 
         ApiResponseDTO apiResponseDTO = new ApiResponseDTO();
-        apiResponseDTO.setMeta(meta);
+        apiResponseDTO.setMeta(result.isRelaxed()
+                ? new Meta(UUID.randomUUID().toString(), "OK", 200,
+                "No draw avoids every recent pair; total penalty of the repeated pairs: " + result.getTotalPenalty())
+                : meta);
         apiResponseDTO.setData(assignmentResponseDTOList);
 
         return apiResponseDTO;
     }
 
     /**
-     * Checks whether each participant (by email) already exists in the database.
-     * If a participant does not exist, a new record is created.
+     * The problem handed to the solvers and what is needed to relax its history rule.
      *
-     * @param participantRequestDTOList list of potential participants
-     * @return a list of Participant entities with valid IDs
+     * @param historyOnlyPairs the pairs of {@code history} forbidden by no other rule
      */
-    private List<Participant> ensureParticipantsExist(List<ParticipantRequestDTO> participantRequestDTOList) {
-        List<Participant> result = new ArrayList<>();
+    private record CompiledDraw(DrawProblem problem, RecentPairs history, int[] historyOnlyPairs) {
+    }
 
-        for (ParticipantRequestDTO participantRequestDTO : participantRequestDTOList) {
-            Optional<Participant> participantExists = participantRepository.findByEmail(participantRequestDTO.getEmail());
+    /**
+     * @param penalties the penalty of each giver's assignment, null if every rule held
+     */
+    private record Solution(int[] receiverOf, int[] penalties, long totalPenalty) {
+    }
 
-            Participant participant;
-            if (participantExists.isPresent()) {
-                participant = participantExists.get();
+    /**
+     * The solution of one group of a batch, or the error that stopped it.
+     */
+    private record GroupOutcome(Solution solution, AppSecretSantaException failure) {
+    }
 
-                // Optionally update the name if needed
-                if (!Objects.equals(participant.getName(), participantRequestDTO.getName())) {
-                    participant.setName(participantRequestDTO.getName());
-                    participantRepository.save(participant);
-                }
-            } else {
-                // Create a new participant if not found
-                participant = new Participant();
-                participant.setName(participantRequestDTO.getName());
-                participant.setEmail(participantRequestDTO.getEmail());
-                participant = participantRepository.save(participant);
+    /**
+     * Names and emails of a streamed upload, in growable arrays, and the constraint context of
+     * its participants.
+     */
+    private static final class StreamedParticipants {
+
+        private final DrawContext.Builder context;
+        private final Set<String> seenEmails = new HashSet<>();
+        private String[] names = new String[1024];
+        private String[] emails = new String[1024];
+        private int size;
+
+        private StreamedParticipants(DrawContext.Builder context) {
+            this.context = context;
+        }
+
+        private void add(List<ParticipantRequestDTO> chunk) {
+            String repeated = firstRepeatedEmail(chunk, seenEmails);
+            if (repeated != null) {
+                throw listedMoreThanOnce(repeated);
+            }
+            if (size + chunk.size() > names.length) {
+                int capacity = Math.max(size + chunk.size(), names.length * 2);
+                names = Arrays.copyOf(names, capacity);
+                emails = Arrays.copyOf(emails, capacity);
             }
-            result.add(participant);
+            for (ParticipantRequestDTO participant : chunk) {
+                names[size] = participant.getName();
+                emails[size] = participant.getEmail();
+                size++;
+            }
+            context.addAll(chunk);
         }
 
-        return result;
+        /**
+         * Finds or creates the participants in chunks of the given size.
+         *
+         * @return the participant ID of each index
+         */
+        private int[] upsert(int chunkSize, Function<List<ParticipantRequestDTO>, int[]> upsertChunk) {
+            int[] participantIds = new int[size];
+            chunkSize = Math.max(1, chunkSize);
+            for (int from = 0; from < size; from += chunkSize) {
+                List<ParticipantRequestDTO> chunk = new ArrayList<>(Math.min(chunkSize, size - from));
+                for (int i = from; i < Math.min(from + chunkSize, size); i++) {
+                    chunk.add(new ParticipantRequestDTO(names[i], null, emails[i]));
+                }
+                int[] chunkIds = upsertChunk.apply(chunk);
+                System.arraycopy(chunkIds, 0, participantIds, from, chunkIds.length);
+            }
+            return participantIds;
+        }
     }
 
     /**
-     * A backtracking algorithm that assigns a receiver to each giver under the following constraints:
-     * - No self-assignments
-     * - Do not assign a receiver with the same familyId
-     * - Do not repeat the same (giver, receiver) pair from the last 3 years
+     * Checks the feasibility of the draw and solves it with the configured solver. When no draw
+     * exists and {@code secret-santa.solver.optimize-when-infeasible} is set, retries with the
+     * history rule relaxed (see {@link #optimize}).
      *
-     * @param index          current position in the participant list
-     * @param participantIds the list of participant IDs
-     * @param result         a map of final assignments (giver -> receiver)
-     * @param currentYear    the current year for the assignments
-     * @param familyMap      a map linking participantId to familyId
-     * @return true if all participants could be assigned without breaking constraints, false otherwise
+     * @return the receiver index assigned to each giver index, with penalties if relaxed
+     * @throws AppSecretSantaException 400 if no draw exists, 503 if the solve budget runs out
      */
-    private boolean assignGifts(int index,
-                                List<Integer> participantIds,
-                                Map<Integer, Integer> result,
-                                int currentYear,
-                                Map<Integer, Integer> familyMap) {
+    private Solution solve(CompiledDraw draw, int currentYear) {
+        SecretSantaProperties.Solver settings = properties.getSolver();
+        SolveBudget budget = SolveBudget.start(settings.getTimeLimit(), settings.getMaxNodes());
+        AssignmentSolver solver = selectSolver();
+        DrawProblem problem = draw.problem();
+
+        try {
+            Optional<Infeasibility> infeasibility = FeasibilityChecker.check(problem);
+            if (infeasibility.isEmpty() && solver.strategy() != SolverStrategy.MATCHING) {
+                // An exponential search would only find out after exhausting the whole search space
+                infeasibility = FeasibilityChecker.findHallViolation(problem, budget);
+            }
+            if (infeasibility.isEmpty()) {
+                Optional<int[]> receiverOf = solver.solve(problem, budget);
+                if (receiverOf.isPresent()) {
+                    return new Solution(receiverOf.get(), null, 0);
+                }
+                infeasibility = FeasibilityChecker.findHallViolation(problem, budget);
+            }
 
-        // Base case: all participants have been assigned
-        if (index == participantIds.size()) {
-            return true;
+            if (settings.isOptimizeWhenInfeasible() && draw.historyOnlyPairs().length > 0) {
+                return optimize(draw, currentYear, budget);
+            }
+            throw noValidAssignment(infeasibility.orElse(null));
+        } catch (SolveBudgetExceededException e) {
+            throw new AppSecretSantaException("The assignment could not be computed within the solve budget: "
+                    + e.getMessage(), HttpStatus.SERVICE_UNAVAILABLE.value(), HttpStatus.SERVICE_UNAVAILABLE.name());
+        } finally {
+            drawMetrics.recordSolve(solver.strategy(), budget);
         }
+    }
 
-        Integer giverId = participantIds.get(index);
-
-        // Potential candidates for giverId
-        List<Integer> candidatesList = new ArrayList<>();
-
-        for (Integer receiverId : participantIds) {
-
-            Integer giverFamilyId = familyMap.get(giverId);
-            Integer receiverFamilyId = familyMap.get(receiverId);
+    /**
+     * Solves a draw that is impossible with the history rule by turning it into a preference:
+     * the pairs only the history forbids are allowed again, each at its recency penalty (see
+     * {@link PairPenalties#byRecency}), and the {@link HungarianSolver} finds the draw of lowest
+     * total penalty. The other rules are kept, so a draw they alone make impossible still fails.
+     */
+    private Solution optimize(CompiledDraw draw, int currentYear, SolveBudget budget) {
+        DrawProblem problem = draw.problem();
+        draw.history().relax(problem.exclusions(), draw.historyOnlyPairs());
 
-            // Check all constraints in a single if
-            // 1) Not the same person
-            // 2) Not the same family if both familyIds are non-null
-            // 3) Receiver not already used
-            // 4) Not repeated in the last 3 years
-            if (!receiverId.equals(giverId)
-                    && !(giverFamilyId != null && giverFamilyId.equals(receiverFamilyId))
-                    && !result.containsValue(receiverId)
-                    && isNotRepeatedIn3Years(giverId, receiverId, currentYear)) {
+        Optional<Infeasibility> infeasibility = FeasibilityChecker.check(problem);
+        if (infeasibility.isPresent()) {
+            throw noValidAssignment(infeasibility.get());
+        }
 
-                // If we get here, it's a valid candidate
-                candidatesList.add(receiverId);
-            }
+        PairPenalties penalties = PairPenalties.byRecency(problem.size(), draw.history(), currentYear,
+                properties.getConstraints().getLookbackYears());
+        int[] receiverOf = hungarianSolver.solve(problem, penalties, budget)
+                .orElseThrow(() -> noValidAssignment(
+                        FeasibilityChecker.findHallViolation(problem, budget).orElse(null)));
+
+        int[] assignmentPenalties = new int[receiverOf.length];
+        long totalPenalty = 0;
+        for (int giver = 0; giver < receiverOf.length; giver++) {
+            assignmentPenalties[giver] = penalties.penalty(giver, receiverOf[giver]);
+            totalPenalty += assignmentPenalties[giver];
         }
+        return new Solution(receiverOf, assignmentPenalties, totalPenalty);
+    }
 
-        // Try each candidate using backtracking
-        for (Integer candidate : candidatesList) {
-            result.put(giverId, candidate);
-            if (assignGifts(index + 1, participantIds, result, currentYear, familyMap)) {
-                return true;
-            }
-            //Revert this assignment if subsequent steps fail
-            result.remove(giverId);
+    /**
+     * Builds the error returned when no draw satisfies the constraints.
+     *
+     * @param infeasibility the participants that make the draw impossible, if known
+     */
+    private AppSecretSantaException noValidAssignment(Infeasibility infeasibility) {
+        String message = "No valid assignment found with the current constraints";
+        if (infeasibility != null) {
+            message += ": " + infeasibility.describe();
         }
+        return new AppSecretSantaException(message, HttpStatus.BAD_REQUEST.value(), HttpStatus.BAD_REQUEST.name());
+    }
 
-        // No valid assignment found at this stage
-        return false;
+    /**
+     * Returns the solver selected through {@code secret-santa.solver.strategy}.
+     */
+    private AssignmentSolver selectSolver() {
+        SolverStrategy strategy = properties.getSolver().getStrategy();
+        AssignmentSolver solver = solvers.get(strategy);
+        if (solver == null) {
+            throw new IllegalStateException("No solver registered for strategy " + strategy);
+        }
+        return solver;
     }
 
     /**
-     * Checks whether the (giver, receiver) pair has not been used in the last 3 years.
-     * @return True if this pair has not occurred in the last 3 years; false otherwise.
+     * Batch workers with recognizable names, so thread dumps show which draws are running.
      */
-    private boolean isNotRepeatedIn3Years(Integer giverId, Integer receiverId, int currentYear) {
-        int yearLimit = currentYear - 2;
-        int count = logAssignmentRepository.countRecentAssignments(giverId, receiverId, yearLimit);
-        return (count == 0);
+    private static final class BatchThreadFactory implements ForkJoinPool.ForkJoinWorkerThreadFactory {
+
+        private final AtomicInteger counter = new AtomicInteger();
+
+        @Override
+        public ForkJoinWorkerThread newThread(ForkJoinPool pool) {
+            ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+            thread.setName("batch-draw-" + counter.incrementAndGet());
+            return thread;
+        }
     }
 
 }
@@ -0,0 +1,25 @@
+package com.bettercloud.secret_santa.solver;
+
+import java.util.Optional;
+
+/**
+ * Computes a Secret Santa draw: every participant gives exactly one gift and
+ * receives exactly one gift, and every (giver, receiver) pair satisfies
+ * {@link DrawProblem#isAllowed(int, int)}.
+ */
+public interface AssignmentSolver {
+
+    /**
+     * @return the strategy implemented by this solver, used to select it by configuration
+     */
+    SolverStrategy strategy();
+
+    /**
+     * @param problem the draw to solve
+     * @param budget  the time and node limits of this solve
+     * @return the receiver index assigned to each giver index, or empty if no valid assignment exists
+     * @throws SolveBudgetExceededException if the budget runs out before the solver reaches an answer
+     */
+    Optional<int[]> solve(DrawProblem problem, SolveBudget budget);
+
+}
@@ -0,0 +1,151 @@
+package com.bettercloud.secret_santa.solver;
+
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * The original depth-first search: givers are visited in random order and each one
+ * tries every free receiver until the whole list is assigned or the search space is exhausted.
+ * <p>
+ * All state lives in primitive arrays allocated once per solve: the search keeps an explicit
+ * stack of candidate cursors instead of recursing, and receivers in use are tracked in a bitset,
+ * so a search step allocates nothing and checks a receiver in O(1).
+ * <p>
+ * Because the time to solution depends heavily on the initial shuffle, the search uses
+ * randomized restarts: each attempt is capped to a number of nodes, and when the cap is hit
+ * the order is reshuffled and the search starts over with a cap twice as large. The growing
+ * cap keeps the search complete, so an attempt that finishes below its cap proves that no
+ * draw exists. Exponential in the worst case; kept available to compare against {@link MatchingSolver}.
+ */
+@Component
+public class BacktrackingSolver implements AssignmentSolver {
+
+    private static final int UNASSIGNED = -1;
+
+    /**
+     * Node cap of the first attempt, per participant.
+     */
+    private static final long INITIAL_NODES_PER_PARTICIPANT = 16;
+
+    @Override
+    public SolverStrategy strategy() {
+        return SolverStrategy.BACKTRACKING;
+    }
+
+    @Override
+    public Optional<int[]> solve(DrawProblem problem, SolveBudget budget) {
+        return solve(problem, budget, ThreadLocalRandom.current());
+    }
+
+    /**
+     * Runs the restarting search with the given source of randomness.
+     */
+    Optional<int[]> solve(DrawProblem problem, SolveBudget budget, Random random) {
+        int size = problem.size();
+        int[] order = new int[size];
+        int[] receiverOf = new int[size];
+        int[] cursor = new int[size + 1];
+        long[] usedReceivers = new long[(size + 63) >>> 6];
+        for (int i = 0; i < size; i++) {
+            order[i] = i;
+        }
+
+        long nodeCap = Math.max(1, INITIAL_NODES_PER_PARTICIPANT * size);
+        while (true) {
+            // Shuffle the order to ensure randomness, and to escape unlucky orders on restart
+            shuffle(order, random);
+            Arrays.fill(receiverOf, UNASSIGNED);
+            Arrays.fill(usedReceivers, 0L);
+            cursor[0] = 0;
+
+            Outcome outcome = search(problem, budget, order, receiverOf, cursor, usedReceivers,
+                    budget.nodes() + nodeCap);
+            if (outcome == Outcome.FOUND) {
+                return Optional.of(receiverOf);
+            }
+            if (outcome == Outcome.EXHAUSTED) {
+                return Optional.empty();
+            }
+            nodeCap = nodeCap > Long.MAX_VALUE / 2 ? Long.MAX_VALUE : nodeCap * 2;
+        }
+    }
+
+    private enum Outcome {
+        FOUND,
+        EXHAUSTED,
+        CAPPED
+    }
+
+    /**
+     * A single depth-first attempt assigning a receiver to each giver under the following constraints:
+     * - The pair is allowed by the draw problem (see {@link DrawProblem#isAllowed(int, int)})
+     * - Receiver not already used
+     *
+     * @param nodeLimit the node count of the budget at which this attempt gives up
+     */
+    private static Outcome search(DrawProblem problem,
+                                  SolveBudget budget,
+                                  int[] order,
+                                  int[] receiverOf,
+                                  int[] cursor,
+                                  long[] usedReceivers,
+                                  long nodeLimit) {
+        int size = order.length;
+        int depth = 0;
+        while (depth >= 0) {
+            // Base case: all participants have been assigned
+            if (depth == size) {
+                return Outcome.FOUND;
+            }
+            if (budget.nodes() >= nodeLimit) {
+                return Outcome.CAPPED;
+            }
+            budget.tick();
+
+            int giver = order[depth];
+
+            // Revert the previous choice of this giver before trying the next candidate
+            int previous = receiverOf[giver];
+            if (previous != UNASSIGNED) {
+                usedReceivers[previous >>> 6] &= ~(1L << previous);
+                receiverOf[giver] = UNASSIGNED;
+            }
+
+            boolean advanced = false;
+            int rejected = 0;
+            while (cursor[depth] < size) {
+                int receiver = order[cursor[depth]++];
+                if ((usedReceivers[receiver >>> 6] & (1L << receiver)) == 0 && problem.isAllowed(giver, receiver)) {
+                    receiverOf[giver] = receiver;
+                    usedReceivers[receiver >>> 6] |= 1L << receiver;
+                    cursor[++depth] = 0;
+                    advanced = true;
+                    break;
+                }
+                rejected++;
+            }
+            budget.prune(rejected);
+
+            // No valid assignment found at this stage: backtrack
+            if (!advanced) {
+                budget.backtrack();
+                depth--;
+            }
+        }
+        return Outcome.EXHAUSTED;
+    }
+
+    private static void shuffle(int[] order, Random random) {
+        for (int i = order.length - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int tmp = order[i];
+            order[i] = order[j];
+            order[j] = tmp;
+        }
+    }
+
+}
@@ -0,0 +1,102 @@
+package com.bettercloud.secret_santa.solver;
+
+import java.util.Arrays;
+import java.util.Optional;
+import java.util.Random;
+
+/**
+ * Completes a partial draw after participants dropped out or joined, touching as few pairs as
+ * possible instead of drawing again.
+ * <p>
+ * The committed pairs that survive form paths and cycles. Every path ends at a giver without a
+ * receiver (its receiver dropped out, or it just joined) and starts at a receiver without a
+ * giver; a new participant is a path of its own. Linking the open ends back together in any
+ * order yields a valid draw, so each loose giver is first tied to a loose receiver it may give
+ * to: a single dropout is bridged by its former giver and receiver. When no loose receiver is
+ * allowed (the giver and receiver around the dropout are the same person, or the pair breaks
+ * a rule), the giver is spliced into an existing pair c -> d that can become c -> receiver,
+ * giver -> d. Pairs are tried from a random position, so the work depends on the size of the
+ * change, not of the draw.
+ * <p>
+ * This class is not intended for instantiation.
+ */
+public final class CycleRepair {
+
+    private static final int NONE = -1;
+
+    private CycleRepair() {
+        throw new IllegalStateException("This utility class cannot be instantiated.");
+    }
+
+    /**
+     * @param problem    the rules of the draw, over every remaining and new participant
+     * @param receiverOf the surviving receiver index of each giver index, -1 for the loose givers
+     * @return the completed draw, equal to {@code receiverOf} on every pair it kept, or empty if
+     * the loose ends cannot be linked without drawing again
+     */
+    public static Optional<int[]> repair(DrawProblem problem, int[] receiverOf, Random random, SolveBudget budget) {
+        int size = problem.size();
+        int[] result = receiverOf.clone();
+        boolean[] hasGiver = new boolean[size];
+        for (int receiver : receiverOf) {
+            if (receiver != NONE) {
+                hasGiver[receiver] = true;
+            }
+        }
+
+        int[] looseReceivers = new int[size];
+        int looseCount = 0;
+        for (int receiver = 0; receiver < size; receiver++) {
+            if (!hasGiver[receiver]) {
+                looseReceivers[looseCount++] = receiver;
+            }
+        }
+        looseReceivers = Arrays.copyOf(looseReceivers, looseCount);
+
+        for (int giver = 0; giver < size; giver++) {
+            if (result[giver] != NONE) {
+                continue;
+            }
+            int chosen = NONE;
+            for (int k = 0; k < looseCount; k++) {
+                budget.tick();
+                if (problem.isAllowed(giver, looseReceivers[k])) {
+                    chosen = k;
+                    break;
+                }
+            }
+            if (chosen != NONE) {
+                result[giver] = looseReceivers[chosen];
+            } else if (looseCount == 0 || !splice(problem, result, giver, looseReceivers[0], random, budget)) {
+                return Optional.empty();
+            } else {
+                chosen = 0;
+            }
+            looseReceivers[chosen] = looseReceivers[--looseCount];
+        }
+        return Optional.of(result);
+    }
+
+    /**
+     * Looks for a pair c -> d that can become c -> receiver and giver -> d, and rewires it.
+     */
+    private static boolean splice(DrawProblem problem, int[] result, int giver, int receiver,
+                                  Random random, SolveBudget budget) {
+        int size = problem.size();
+        int start = random.nextInt(size);
+        for (int k = 0; k < size; k++) {
+            budget.tick();
+            int candidate = start + k < size ? start + k : start + k - size;
+            int candidateReceiver = result[candidate];
+            if (candidateReceiver != NONE
+                    && problem.isAllowed(candidate, receiver)
+                    && problem.isAllowed(giver, candidateReceiver)) {
+                result[candidate] = receiver;
+                result[giver] = candidateReceiver;
+                return true;
+            }
+        }
+        return false;
+    }
+
+}
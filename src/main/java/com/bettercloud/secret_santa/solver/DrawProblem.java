@@ -0,0 +1,65 @@
+package com.bettercloud.secret_santa.solver;
+
+/**
+ * Read-only description of a draw handed to an {@link AssignmentSolver}.
+ * <p>
+ * Participants are mapped once to dense indices (0..size-1); the same index is used for
+ * {@code participantIds}, {@code familyIds} and the rows and columns of {@code exclusions}.
+ * Family IDs are dense as well, with {@link #NO_FAMILY} for participants without a family,
+ * so solvers work exclusively on primitive arrays.
+ * <p>
+ * Every rule of the draw (family, history, do-not-pair lists...) is compiled into
+ * {@code exclusions} before the problem is built; {@code familyIds} are only kept
+ * to explain infeasible draws.
+ */
+public final class DrawProblem {
+
+    public static final int NO_FAMILY = -1;
+
+    private final int[] participantIds;
+    private final int[] familyIds;
+    private final ExclusionMatrix exclusions;
+
+    public DrawProblem(int[] participantIds, int[] familyIds, ExclusionMatrix exclusions) {
+        if (participantIds.length != familyIds.length || participantIds.length != exclusions.size()) {
+            throw new IllegalArgumentException("Participant, family and exclusion sizes do not match");
+        }
+        this.participantIds = participantIds;
+        this.familyIds = familyIds;
+        this.exclusions = exclusions;
+    }
+
+    public int size() {
+        return participantIds.length;
+    }
+
+    /**
+     * @return the participant IDs indexed by position; must not be modified
+     */
+    public int[] participantIds() {
+        return participantIds;
+    }
+
+    /**
+     * @return the dense family ID of each index, {@link #NO_FAMILY} if none; must not be modified
+     */
+    public int[] familyIds() {
+        return familyIds;
+    }
+
+    /**
+     * @return every forbidden (giver, receiver) pair of the draw; must not be modified
+     */
+    public ExclusionMatrix exclusions() {
+        return exclusions;
+    }
+
+    /**
+     * Checks a single (giver, receiver) pair: not the same person, and not forbidden by
+     * any of the compiled rules. A comparison and a bit lookup, whatever the number of rules.
+     */
+    public boolean isAllowed(int giver, int receiver) {
+        return giver != receiver && !exclusions.isExcluded(giver, receiver);
+    }
+
+}
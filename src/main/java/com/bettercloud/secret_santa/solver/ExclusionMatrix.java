@@ -0,0 +1,216 @@
+package com.bettercloud.secret_santa.solver;
+
+import java.util.Arrays;
+
+/**
+ * Compact giver x receiver matrix of forbidden pairs.
+ * <p>
+ * Participants are addressed by their position in the draw (0..size-1). Each giver
+ * owns a row of bits packed into longs, so a 2,000 participant draw needs about 500 KB
+ * and every lookup is a shift and a mask, with no boxing and no database access.
+ */
+public final class ExclusionMatrix {
+
+    private final int size;
+    private final int wordsPerRow;
+    private final long[] words;
+
+    /**
+     * Bits of the last word of a row that address real receivers.
+     */
+    private final long lastWordMask;
+
+    public ExclusionMatrix(int size) {
+        if (size < 0) {
+            throw new IllegalArgumentException("Matrix size cannot be negative: " + size);
+        }
+        this.size = size;
+        this.wordsPerRow = (size + 63) >>> 6;
+        this.words = new long[size * wordsPerRow];
+        this.lastWordMask = (size & 63) == 0 ? -1L : (1L << size) - 1;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Marks the (giver, receiver) pair as forbidden.
+     */
+    public void exclude(int giver, int receiver) {
+        words[giver * wordsPerRow + (receiver >>> 6)] |= 1L << receiver;
+    }
+
+    /**
+     * @return an independent matrix with the same forbidden pairs
+     */
+    public ExclusionMatrix copy() {
+        ExclusionMatrix copy = new ExclusionMatrix(size);
+        System.arraycopy(words, 0, copy.words, 0, words.length);
+        return copy;
+    }
+
+    /**
+     * Marks the (giver, receiver) pair as allowed again.
+     */
+    public void allow(int giver, int receiver) {
+        words[giver * wordsPerRow + (receiver >>> 6)] &= ~(1L << receiver);
+    }
+
+    /**
+     * @return true if the (giver, receiver) pair has been marked as forbidden
+     */
+    public boolean isExcluded(int giver, int receiver) {
+        return (words[giver * wordsPerRow + (receiver >>> 6)] & (1L << receiver)) != 0;
+    }
+
+    /**
+     * Iterates the forbidden receivers of a giver, skipping empty words, the same way
+     * {@link java.util.BitSet#nextSetBit(int)} does.
+     *
+     * @return the first forbidden receiver at or after {@code fromReceiver}, or -1 if there is none
+     */
+    public int nextExcluded(int giver, int fromReceiver) {
+        if (fromReceiver >= size) {
+            return -1;
+        }
+        int rowStart = giver * wordsPerRow;
+        int wordIndex = fromReceiver >>> 6;
+        long word = words[rowStart + wordIndex] & (-1L << fromReceiver);
+        while (true) {
+            if (word != 0) {
+                return (wordIndex << 6) + Long.numberOfTrailingZeros(word);
+            }
+            if (++wordIndex == wordsPerRow) {
+                return -1;
+            }
+            word = words[rowStart + wordIndex];
+        }
+    }
+
+    /**
+     * Marks every pair of distinct participants that share a group as forbidden, in both directions.
+     * <p>
+     * Small groups are marked pair by pair. A group with more members than a row has words is
+     * marked by OR-ing a mask of its members into each member's row, so a group of k members
+     * costs O(k * size / 64) instead of O(k^2).
+     *
+     * @param groupIds the dense group of each participant (0..groups-1), or a negative value for none
+     */
+    public void excludeWithinGroups(int[] groupIds) {
+        if (groupIds.length != size) {
+            throw new IllegalArgumentException("Expected " + size + " group IDs, got " + groupIds.length);
+        }
+        int groups = 0;
+        for (int groupId : groupIds) {
+            groups = Math.max(groups, groupId + 1);
+        }
+
+        // Members of each group laid out contiguously, as in a counting sort
+        int[] groupStart = new int[groups + 1];
+        for (int groupId : groupIds) {
+            if (groupId >= 0) {
+                groupStart[groupId + 1]++;
+            }
+        }
+        for (int group = 0; group < groups; group++) {
+            groupStart[group + 1] += groupStart[group];
+        }
+        int[] members = new int[groupStart[groups]];
+        int[] next = Arrays.copyOf(groupStart, groups);
+        for (int i = 0; i < size; i++) {
+            if (groupIds[i] >= 0) {
+                members[next[groupIds[i]]++] = i;
+            }
+        }
+
+        long[] mask = null;
+        for (int group = 0; group < groups; group++) {
+            int from = groupStart[group];
+            int to = groupStart[group + 1];
+            if (to - from <= wordsPerRow) {
+                for (int a = from; a < to; a++) {
+                    for (int b = from; b < to; b++) {
+                        if (a != b) {
+                            exclude(members[a], members[b]);
+                        }
+                    }
+                }
+                continue;
+            }
+
+            if (mask == null) {
+                mask = new long[wordsPerRow];
+            } else {
+                Arrays.fill(mask, 0);
+            }
+            for (int m = from; m < to; m++) {
+                mask[members[m] >>> 6] |= 1L << members[m];
+            }
+            for (int m = from; m < to; m++) {
+                int member = members[m];
+                int rowStart = member * wordsPerRow;
+                for (int word = 0; word < wordsPerRow; word++) {
+                    words[rowStart + word] |= mask[word];
+                }
+                // Nobody is excluded from themselves; DrawProblem already rules that pair out
+                words[rowStart + (member >>> 6)] &= ~(1L << member);
+            }
+        }
+    }
+
+    /**
+     * @return true if every receiver other than the giver itself is forbidden for the giver
+     */
+    public boolean excludesAllOthers(int giver) {
+        int rowStart = giver * wordsPerRow;
+        for (int word = 0; word < wordsPerRow; word++) {
+            if (rowWord(giver, rowStart, word) != -1L) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Finds the receivers that are forbidden for every giver other than themselves, by AND-ing
+     * the rows together. Stops early once no receiver can be left, which is usually after a
+     * few rows.
+     *
+     * @return the receivers without any possible giver, as a bitset packed into longs like a row
+     */
+    public long[] receiversExcludedByAllOthers() {
+        long[] column = new long[wordsPerRow];
+        Arrays.fill(column, -1L);
+        for (int giver = 0; giver < size; giver++) {
+            int rowStart = giver * wordsPerRow;
+            long remaining = 0;
+            for (int word = 0; word < wordsPerRow; word++) {
+                column[word] &= words[rowStart + word] | (word == giver >>> 6 ? 1L << giver : 0);
+                remaining |= column[word];
+            }
+            if (remaining == 0) {
+                break;
+            }
+        }
+        if (wordsPerRow > 0) {
+            column[wordsPerRow - 1] &= lastWordMask;
+        }
+        return column;
+    }
+
+    /**
+     * Returns a word of a row with the giver itself and the padding bits beyond the last receiver set.
+     */
+    private long rowWord(int giver, int rowStart, int word) {
+        long bits = words[rowStart + word];
+        if (word == giver >>> 6) {
+            bits |= 1L << giver;
+        }
+        if (word == wordsPerRow - 1) {
+            bits |= ~lastWordMask;
+        }
+        return bits;
+    }
+
+}
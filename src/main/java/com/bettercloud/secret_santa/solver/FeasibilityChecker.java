@@ -0,0 +1,93 @@
+package com.bettercloud.secret_santa.solver;
+
+import java.util.Arrays;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.IntPredicate;
+import java.util.stream.IntStream;
+
+/**
+ * Detects draws that cannot be solved before any search starts, and reports
+ * which participants make them impossible.
+ * <p>
+ * This class is not intended for instantiation.
+ */
+public final class FeasibilityChecker {
+
+    private FeasibilityChecker() {
+        throw new IllegalStateException("This utility class cannot be instantiated.");
+    }
+
+    /**
+     * Runs the checks that read each word of the exclusion matrix at most once:
+     * - A family larger than the rest of the group combined
+     * - A participant with no possible receiver
+     * - A participant nobody can give a gift to
+     *
+     * @return the first problem found, or empty if none of these checks fails
+     */
+    public static Optional<Infeasibility> check(DrawProblem problem) {
+        int size = problem.size();
+        int[] familyIds = problem.familyIds();
+        ExclusionMatrix exclusions = problem.exclusions();
+
+        int[] familySizes = new int[Arrays.stream(familyIds).max().orElse(DrawProblem.NO_FAMILY) + 1];
+        for (int familyId : familyIds) {
+            if (familyId != DrawProblem.NO_FAMILY) {
+                familySizes[familyId]++;
+            }
+        }
+        for (int familyId = 0; familyId < familySizes.length; familyId++) {
+            if (familySizes[familyId] > size - familySizes[familyId]) {
+                int family = familyId;
+                return Optional.of(new Infeasibility("A family is larger than the rest of the group combined",
+                        participantIds(problem, i -> familyIds[i] == family)));
+            }
+        }
+        if (size <= 1) {
+            return Optional.empty();
+        }
+
+        int[] withoutReceiver = participantIds(problem, exclusions::excludesAllOthers);
+        if (withoutReceiver.length > 0) {
+            return Optional.of(new Infeasibility("Participants without any possible receiver", withoutReceiver));
+        }
+        long[] withoutGiver = exclusions.receiversExcludedByAllOthers();
+        int[] unreachable = participantIds(problem, i -> (withoutGiver[i >>> 6] & (1L << i)) != 0);
+        if (unreachable.length > 0) {
+            return Optional.of(new Infeasibility("Participants nobody can give a gift to", unreachable));
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Looks for a Hall condition violation in the compatibility graph: a group of givers
+     * with fewer possible receivers than members. Such a group exists if and only if the
+     * draw has no solution. Runs in O(E * sqrt(V)) using {@link HopcroftKarp}.
+     *
+     * @param budget the time and node limits of the check
+     * @return the group of givers that cannot all be served, or empty if a draw exists
+     * @throws SolveBudgetExceededException if the budget runs out before the check completes
+     */
+    public static Optional<Infeasibility> findHallViolation(DrawProblem problem, SolveBudget budget) {
+        HopcroftKarp matching = new HopcroftKarp(problem, ThreadLocalRandom.current(), budget);
+        if (matching.run() != null) {
+            return Optional.empty();
+        }
+        int[] participantIds = problem.participantIds();
+        int[] violators = Arrays.stream(matching.hallViolators())
+                .sorted()
+                .map(giver -> participantIds[giver])
+                .toArray();
+        return Optional.of(new Infeasibility("These participants have fewer possible receivers than members", violators));
+    }
+
+    private static int[] participantIds(DrawProblem problem, IntPredicate filter) {
+        int[] participantIds = problem.participantIds();
+        return IntStream.range(0, problem.size())
+                .filter(filter)
+                .map(i -> participantIds[i])
+                .toArray();
+    }
+
+}
@@ -0,0 +1,273 @@
+package com.bettercloud.secret_santa.solver;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * State of a single Hopcroft–Karp run over the giver -> receiver compatibility graph
+ * of a {@link DrawProblem}.
+ * <p>
+ * Runs in O(E * sqrt(V)) regardless of how tight the constraints are. Edges are never
+ * materialized: each giver walks a shared random permutation of the receivers starting
+ * at its own random offset, so the matching found is randomized without storing an
+ * adjacency list of N² entries.
+ * <p>
+ * Every giver visited by a search charges one node of the {@link SolveBudget}, so a run
+ * can be bounded in time and cancelled like any other solver.
+ */
+final class HopcroftKarp {
+
+    private static final int UNMATCHED = -1;
+    private static final int INFINITY = Integer.MAX_VALUE;
+
+    private final DrawProblem problem;
+    private final SolveBudget budget;
+    private final int size;
+    // Random permutation of the participants, used as the greedy visiting order
+    // and, shifted by a per-giver offset, as the edge order of every giver
+    private final int[] permutation;
+    private final int[] offset;
+    private final int[] matchOfGiver;
+    private final int[] matchOfReceiver;
+    private final int[] distance;
+    private final int[] nextEdge;
+    private final int[] queue;
+    private final int[] pathGivers;
+    private final int[] pathReceivers;
+
+    HopcroftKarp(DrawProblem problem, Random random, SolveBudget budget) {
+        this.problem = problem;
+        this.budget = budget;
+        this.size = problem.size();
+        this.permutation = new int[size];
+        this.offset = new int[size];
+        this.matchOfGiver = new int[size];
+        this.matchOfReceiver = new int[size];
+        this.distance = new int[size];
+        this.nextEdge = new int[size];
+        this.queue = new int[size];
+        this.pathGivers = new int[size];
+        this.pathReceivers = new int[size];
+
+        for (int i = 0; i < size; i++) {
+            permutation[i] = i;
+            offset[i] = size == 0 ? 0 : random.nextInt(size);
+            matchOfGiver[i] = UNMATCHED;
+            matchOfReceiver[i] = UNMATCHED;
+        }
+        for (int i = size - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int tmp = permutation[i];
+            permutation[i] = permutation[j];
+            permutation[j] = tmp;
+        }
+    }
+
+    /**
+     * @return the receiver matched to each giver, or null if no perfect matching exists
+     */
+    int[] run() {
+        return maximize() == size ? matchOfGiver : null;
+    }
+
+    /**
+     * Finds a maximum matching, perfect or not.
+     *
+     * @return the number of matched givers; the others are {@link #UNMATCHED} in {@link #matchOfGiver()}
+     */
+    int maximize() {
+        int matched = greedyMatch();
+        while (matched < size && buildLayers()) {
+            Arrays.fill(nextEdge, 0);
+            for (int giver = 0; giver < size; giver++) {
+                if (matchOfGiver[giver] == UNMATCHED && augment(giver)) {
+                    matched++;
+                }
+            }
+        }
+        return matched;
+    }
+
+    /**
+     * @return the receiver matched to each giver, -1 if unmatched
+     */
+    int[] matchOfGiver() {
+        return matchOfGiver;
+    }
+
+    /**
+     * After {@link #run()} failed to find a perfect matching, collects a set S of givers
+     * whose compatible receivers N(S) are fewer than |S|, which proves by Hall's theorem that
+     * no draw exists. Following König's construction, S is every giver reachable through an
+     * alternating path from an unmatched giver.
+     *
+     * @return the giver indices of S
+     */
+    int[] hallViolators() {
+        boolean[] visitedGiver = new boolean[size];
+        boolean[] visitedReceiver = new boolean[size];
+        int head = 0;
+        int tail = 0;
+        for (int giver = 0; giver < size; giver++) {
+            if (matchOfGiver[giver] == UNMATCHED) {
+                visitedGiver[giver] = true;
+                queue[tail++] = giver;
+            }
+        }
+
+        while (head < tail) {
+            int giver = queue[head++];
+            budget.tick();
+            for (int receiver = 0; receiver < size; receiver++) {
+                if (visitedReceiver[receiver] || !problem.isAllowed(giver, receiver)) {
+                    continue;
+                }
+                visitedReceiver[receiver] = true;
+                // The matching is maximum, so every reachable receiver is already matched
+                int next = matchOfReceiver[receiver];
+                if (next != UNMATCHED && !visitedGiver[next]) {
+                    visitedGiver[next] = true;
+                    queue[tail++] = next;
+                }
+            }
+        }
+        return Arrays.copyOf(queue, tail);
+    }
+
+    /**
+     * k-th receiver in the randomized edge order of the giver.
+     */
+    private int receiverAt(int giver, int k) {
+        int position = offset[giver] + k;
+        return permutation[position >= size ? position - size : position];
+    }
+
+    /**
+     * Cheap first pass: most givers of a realistic draw are matched here,
+     * leaving only a few augmenting paths for the layered phases.
+     */
+    private int greedyMatch() {
+        int matched = 0;
+        for (int k = 0; k < size; k++) {
+            int giver = permutation[k];
+            budget.tick();
+            int rejected = 0;
+            for (int e = 0; e < size; e++) {
+                int receiver = receiverAt(giver, e);
+                if (matchOfReceiver[receiver] == UNMATCHED && problem.isAllowed(giver, receiver)) {
+                    matchOfGiver[giver] = receiver;
+                    matchOfReceiver[receiver] = giver;
+                    matched++;
+                    break;
+                }
+                rejected++;
+            }
+            budget.prune(rejected);
+        }
+        return matched;
+    }
+
+    /**
+     * Breadth-first search from every free giver, assigning each giver its distance
+     * in the alternating-path graph.
+     *
+     * @return true if at least one augmenting path exists
+     */
+    private boolean buildLayers() {
+        int head = 0;
+        int tail = 0;
+        for (int giver = 0; giver < size; giver++) {
+            if (matchOfGiver[giver] == UNMATCHED) {
+                distance[giver] = 0;
+                queue[tail++] = giver;
+            } else {
+                distance[giver] = INFINITY;
+            }
+        }
+
+        boolean found = false;
+        while (head < tail) {
+            int giver = queue[head++];
+            budget.tick();
+            int rejected = 0;
+            for (int e = 0; e < size; e++) {
+                int receiver = receiverAt(giver, e);
+                if (!problem.isAllowed(giver, receiver)) {
+                    rejected++;
+                    continue;
+                }
+                int next = matchOfReceiver[receiver];
+                if (next == UNMATCHED) {
+                    found = true;
+                } else if (distance[next] == INFINITY) {
+                    distance[next] = distance[giver] + 1;
+                    queue[tail++] = next;
+                }
+            }
+            budget.prune(rejected);
+        }
+        return found;
+    }
+
+    /**
+     * Iterative depth-first search for an augmenting path starting at a free giver,
+     * following only edges that go one layer deeper. Recursion is avoided so that
+     * paths as long as the whole draw cannot overflow the stack.
+     *
+     * @return true if the matching was augmented
+     */
+    private boolean augment(int root) {
+        int depth = 0;
+        pathGivers[depth] = root;
+
+        while (depth >= 0) {
+            int giver = pathGivers[depth];
+            budget.tick();
+            boolean advanced = false;
+            int rejected = 0;
+
+            while (nextEdge[giver] < size) {
+                int receiver = receiverAt(giver, nextEdge[giver]++);
+                if (!problem.isAllowed(giver, receiver)) {
+                    rejected++;
+                    continue;
+                }
+                int next = matchOfReceiver[receiver];
+                if (next == UNMATCHED) {
+                    pathReceivers[depth] = receiver;
+                    budget.prune(rejected);
+                    flip(depth);
+                    return true;
+                }
+                if (distance[next] == distance[giver] + 1) {
+                    pathReceivers[depth] = receiver;
+                    pathGivers[++depth] = next;
+                    advanced = true;
+                    break;
+                }
+            }
+            budget.prune(rejected);
+
+            if (!advanced) {
+                // Dead end: never visit this giver again during the current phase
+                budget.backtrack();
+                distance[giver] = INFINITY;
+                depth--;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Applies the augmenting path stored in pathGivers/pathReceivers[0..depth].
+     */
+    private void flip(int depth) {
+        for (int level = 0; level <= depth; level++) {
+            int giver = pathGivers[level];
+            int receiver = pathReceivers[level];
+            matchOfGiver[giver] = receiver;
+            matchOfReceiver[receiver] = giver;
+        }
+    }
+
+}
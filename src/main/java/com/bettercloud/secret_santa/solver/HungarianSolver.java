@@ -0,0 +1,132 @@
+package com.bettercloud.secret_santa.solver;
+
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Finds the draw of minimal total {@link PairPenalties penalty} among the pairs a
+ * {@link DrawProblem} allows, with the Hungarian method (shortest augmenting paths with
+ * potentials), so the result is optimal.
+ * <p>
+ * Penalized pairs are few (a handful per giver) while the free ones are everywhere, so the
+ * method is warm-started: a {@link HopcroftKarp} maximum matching over the free pairs costs
+ * nothing and, with all potentials at 0, already satisfies the method's invariants. Only the
+ * givers it leaves unmatched need an augmenting path, each found in O(n) per visited receiver
+ * instead of the O(n³) of a cold start. Self-pairs and forbidden pairs are never used.
+ */
+@Component
+public class HungarianSolver {
+
+    private static final int UNMATCHED = -1;
+    private static final long INFINITY = Long.MAX_VALUE;
+
+    /**
+     * @return the receiver index assigned to each giver index, or empty if no draw exists
+     * @throws SolveBudgetExceededException if the budget runs out first
+     */
+    public Optional<int[]> solve(DrawProblem problem, PairPenalties penalties, SolveBudget budget) {
+        int size = problem.size();
+        ExclusionMatrix exclusions = problem.exclusions();
+
+        // Warm start: a maximum matching that only uses free pairs
+        ExclusionMatrix freePairs = exclusions.copy();
+        for (int giver = 0; giver < size; giver++) {
+            for (int k = penalties.rowStart(giver); k < penalties.rowEnd(giver); k++) {
+                freePairs.exclude(giver, penalties.receiverAt(k));
+            }
+        }
+        HopcroftKarp matching = new HopcroftKarp(new DrawProblem(problem.participantIds(), problem.familyIds(),
+                freePairs), ThreadLocalRandom.current(), budget);
+        matching.maximize();
+        int[] matchOfGiver = matching.matchOfGiver();
+
+        // Column "size" is a virtual receiver holding the giver being augmented
+        int[] giverOf = new int[size + 1];
+        Arrays.fill(giverOf, UNMATCHED);
+        for (int giver = 0; giver < size; giver++) {
+            if (matchOfGiver[giver] != UNMATCHED) {
+                giverOf[matchOfGiver[giver]] = giver;
+            }
+        }
+        long[] giverPotential = new long[size];
+        long[] receiverPotential = new long[size + 1];
+        long[] minSlack = new long[size + 1];
+        int[] previous = new int[size + 1];
+        boolean[] visited = new boolean[size + 1];
+
+        for (int root = 0; root < size; root++) {
+            if (matchOfGiver[root] != UNMATCHED) {
+                continue;
+            }
+            giverOf[size] = root;
+            int current = size;
+            Arrays.fill(minSlack, INFINITY);
+            Arrays.fill(visited, false);
+
+            // Dijkstra over reduced costs until a free receiver is reached
+            do {
+                budget.tick();
+                visited[current] = true;
+                int giver = giverOf[current];
+                int penalized = penalties.rowStart(giver);
+                int penalizedEnd = penalties.rowEnd(giver);
+                long delta = INFINITY;
+                int next = UNMATCHED;
+                for (int receiver = 0; receiver < size; receiver++) {
+                    if (visited[receiver]) {
+                        continue;
+                    }
+                    if (receiver != giver && !exclusions.isExcluded(giver, receiver)) {
+                        while (penalized < penalizedEnd && penalties.receiverAt(penalized) < receiver) {
+                            penalized++;
+                        }
+                        long cost = penalized < penalizedEnd && penalties.receiverAt(penalized) == receiver
+                                ? penalties.penaltyAt(penalized) : 0;
+                        long slack = cost - giverPotential[giver] - receiverPotential[receiver];
+                        if (slack < minSlack[receiver]) {
+                            minSlack[receiver] = slack;
+                            previous[receiver] = current;
+                        }
+                    }
+                    // Among the closest receivers prefer a free one, which ends the search
+                    if (minSlack[receiver] < delta || minSlack[receiver] == delta && delta != INFINITY
+                            && giverOf[receiver] == UNMATCHED && giverOf[next] != UNMATCHED) {
+                        delta = minSlack[receiver];
+                        next = receiver;
+                    }
+                }
+                if (next == UNMATCHED) {
+                    // No alternating path reaches a free receiver: no draw exists
+                    return Optional.empty();
+                }
+
+                for (int receiver = 0; receiver <= size; receiver++) {
+                    if (visited[receiver]) {
+                        giverPotential[giverOf[receiver]] += delta;
+                        receiverPotential[receiver] -= delta;
+                    } else if (minSlack[receiver] != INFINITY) {
+                        minSlack[receiver] -= delta;
+                    }
+                }
+                current = next;
+            } while (giverOf[current] != UNMATCHED);
+
+            // Flip the alternating path back to the root
+            do {
+                int before = previous[current];
+                giverOf[current] = giverOf[before];
+                current = before;
+            } while (current != size);
+        }
+
+        int[] receiverOf = new int[size];
+        for (int receiver = 0; receiver < size; receiver++) {
+            receiverOf[giverOf[receiver]] = receiver;
+        }
+        return Optional.of(receiverOf);
+    }
+
+}
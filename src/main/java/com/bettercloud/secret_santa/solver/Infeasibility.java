@@ -0,0 +1,46 @@
+package com.bettercloud.secret_santa.solver;
+
+import java.util.Arrays;
+import java.util.stream.Collectors;
+
+/**
+ * Explains why a draw cannot be solved: a short reason and the IDs of the participants
+ * that cause it.
+ */
+public final class Infeasibility {
+
+    /**
+     * Maximum number of participant IDs listed by {@link #describe()}.
+     */
+    private static final int MAX_LISTED_PARTICIPANTS = 20;
+
+    private final String reason;
+    private final int[] participantIds;
+
+    public Infeasibility(String reason, int[] participantIds) {
+        this.reason = reason;
+        this.participantIds = participantIds;
+    }
+
+    public String getReason() {
+        return reason;
+    }
+
+    public int[] getParticipantIds() {
+        return participantIds;
+    }
+
+    /**
+     * @return a human readable message, listing at most 20 participant IDs
+     */
+    public String describe() {
+        String listed = Arrays.stream(participantIds)
+                .limit(MAX_LISTED_PARTICIPANTS)
+                .mapToObj(String::valueOf)
+                .collect(Collectors.joining(", ", "[", participantIds.length > MAX_LISTED_PARTICIPANTS
+                        ? ", ... " + (participantIds.length - MAX_LISTED_PARTICIPANTS) + " more]"
+                        : "]"));
+        return reason + ": participants " + listed;
+    }
+
+}
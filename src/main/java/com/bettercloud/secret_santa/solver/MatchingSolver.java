@@ -0,0 +1,28 @@
+package com.bettercloud.secret_santa.solver;
+
+import org.springframework.stereotype.Component;
+
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Solves the draw as a perfect matching in the bipartite graph givers -> receivers,
+ * where an edge exists for every pair allowed by the {@link DrawProblem}.
+ * <p>
+ * Uses {@link HopcroftKarp}, which runs in O(E * sqrt(V)) regardless of how tight the
+ * constraints are, with a randomized edge order so results stay unbiased.
+ */
+@Component
+public class MatchingSolver implements AssignmentSolver {
+
+    @Override
+    public SolverStrategy strategy() {
+        return SolverStrategy.MATCHING;
+    }
+
+    @Override
+    public Optional<int[]> solve(DrawProblem problem, SolveBudget budget) {
+        return Optional.ofNullable(new HopcroftKarp(problem, ThreadLocalRandom.current(), budget).run());
+    }
+
+}
@@ -0,0 +1,111 @@
+package com.bettercloud.secret_santa.solver;
+
+/**
+ * Cost of the pairs a relaxed draw may use but would rather avoid; every other allowed pair
+ * costs nothing. Stored by giver in compressed rows, with the receivers of each row sorted.
+ */
+public final class PairPenalties {
+
+    private final int[] rowStart;
+    private final int[] receivers;
+    private final int[] penalties;
+    private final int maxPenalty;
+
+    private PairPenalties(int[] rowStart, int[] receivers, int[] penalties, int maxPenalty) {
+        this.rowStart = rowStart;
+        this.receivers = receivers;
+        this.penalties = penalties;
+        this.maxPenalty = maxPenalty;
+    }
+
+    /**
+     * Scores the pairs of previous draws by recency: a pair from the draw year costs
+     * {@code lookbackYears}, one from the year before costs one less, down to 1 for the oldest
+     * year of the window. A pair repeated in several years costs as much as its most recent one.
+     *
+     * @param size the number of participants of the draw
+     */
+    public static PairPenalties byRecency(int size, RecentPairs history, int currentYear, int lookbackYears) {
+        int[] rowStart = new int[size + 1];
+        for (int pair = 0; pair < history.size(); pair++) {
+            rowStart[history.giver(pair) + 1]++;
+        }
+        for (int giver = 0; giver < size; giver++) {
+            rowStart[giver + 1] += rowStart[giver];
+        }
+
+        int[] receivers = new int[history.size()];
+        int[] penalties = new int[history.size()];
+        int[] rowEnd = new int[size];
+        System.arraycopy(rowStart, 0, rowEnd, 0, size);
+        int maxPenalty = 0;
+        for (int pair = 0; pair < history.size(); pair++) {
+            int penalty = Math.max(1, lookbackYears - (currentYear - history.year(pair)));
+            int giver = history.giver(pair);
+            int receiver = history.receiver(pair);
+
+            // Rows hold a handful of pairs: keep them sorted and merge repeats on insertion
+            int position = rowStart[giver];
+            while (position < rowEnd[giver] && receivers[position] < receiver) {
+                position++;
+            }
+            if (position < rowEnd[giver] && receivers[position] == receiver) {
+                penalties[position] = Math.max(penalties[position], penalty);
+            } else {
+                System.arraycopy(receivers, position, receivers, position + 1, rowEnd[giver] - position);
+                System.arraycopy(penalties, position, penalties, position + 1, rowEnd[giver] - position);
+                receivers[position] = receiver;
+                penalties[position] = penalty;
+                rowEnd[giver]++;
+            }
+            maxPenalty = Math.max(maxPenalty, penalty);
+        }
+
+        // Close the gaps left by merged repeats
+        int[] compactStart = new int[size + 1];
+        int next = 0;
+        for (int giver = 0; giver < size; giver++) {
+            compactStart[giver] = next;
+            for (int k = rowStart[giver]; k < rowEnd[giver]; k++) {
+                receivers[next] = receivers[k];
+                penalties[next] = penalties[k];
+                next++;
+            }
+        }
+        compactStart[size] = next;
+        return new PairPenalties(compactStart, receivers, penalties, maxPenalty);
+    }
+
+    /**
+     * @return the penalty of the pair, 0 if it is not penalized
+     */
+    public int penalty(int giver, int receiver) {
+        for (int k = rowStart[giver]; k < rowStart[giver + 1] && receivers[k] <= receiver; k++) {
+            if (receivers[k] == receiver) {
+                return penalties[k];
+            }
+        }
+        return 0;
+    }
+
+    public int maxPenalty() {
+        return maxPenalty;
+    }
+
+    int rowStart(int giver) {
+        return rowStart[giver];
+    }
+
+    int rowEnd(int giver) {
+        return rowStart[giver + 1];
+    }
+
+    int receiverAt(int k) {
+        return receivers[k];
+    }
+
+    int penaltyAt(int k) {
+        return penalties[k];
+    }
+
+}
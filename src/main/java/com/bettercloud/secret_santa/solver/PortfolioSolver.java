@@ -0,0 +1,170 @@
+package com.bettercloud.secret_santa.solver;
+
+import com.bettercloud.secret_santa.config.SecretSantaProperties;
+import jakarta.annotation.PreDestroy;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Races several independently seeded copies of the {@link BacktrackingSolver}.
+ * <p>
+ * The time to solution of a randomized backtracking search has a heavy tail that depends
+ * on the initial shuffle; running K copies and keeping the first answer cuts that tail.
+ * All copies read the same {@link DrawProblem}, each one with its own fork of the budget.
+ * As soon as one copy finds a draw (or proves none exists) the others are interrupted,
+ * which their budgets turn into a clean stop. The solve returns once every copy has stopped,
+ * so the forks are merged into the caller's budget only after their threads let go of them.
+ * <p>
+ * Small draws are solved by a single copy on the calling thread, so easy inputs behave
+ * exactly like the plain backtracking solver.
+ */
+@Component
+public class PortfolioSolver implements AssignmentSolver {
+
+    private final BacktrackingSolver backtrackingSolver;
+    private final SecretSantaProperties.Portfolio settings;
+    private final ExecutorService executor;
+
+    public PortfolioSolver(BacktrackingSolver backtrackingSolver, SecretSantaProperties properties) {
+        this.backtrackingSolver = backtrackingSolver;
+        this.settings = properties.getSolver().getPortfolio();
+        this.executor = Executors.newFixedThreadPool(Math.max(1, settings.getThreads()), new SolverThreadFactory());
+    }
+
+    @Override
+    public SolverStrategy strategy() {
+        return SolverStrategy.PORTFOLIO;
+    }
+
+    @Override
+    public Optional<int[]> solve(DrawProblem problem, SolveBudget budget) {
+        int copies = Math.max(1, settings.getCopies());
+        if (copies == 1 || problem.size() < settings.getMinParticipants()) {
+            return backtrackingSolver.solve(problem, budget);
+        }
+
+        CompletionService<Optional<int[]>> searches = new ExecutorCompletionService<>(executor);
+        List<Copy> started = new ArrayList<>(copies);
+        List<Future<Optional<int[]>>> futures = new ArrayList<>(copies);
+        for (int i = 0; i < copies; i++) {
+            Copy copy = new Copy(problem, budget.fork(), new Random(ThreadLocalRandom.current().nextLong()));
+            started.add(copy);
+            futures.add(searches.submit(copy));
+        }
+
+        try {
+            ExecutionException failure = null;
+            for (int i = 0; i < copies; i++) {
+                try {
+                    return searches.take().get();
+                } catch (ExecutionException e) {
+                    failure = e;
+                }
+            }
+            // Every copy failed; they share the deadline, so they fail for the same reason
+            if (failure.getCause() instanceof SolveBudgetExceededException budgetExceeded) {
+                throw budgetExceeded;
+            }
+            throw new IllegalStateException("Portfolio search failed", failure.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SolveBudgetExceededException("solve cancelled");
+        } finally {
+            futures.forEach(future -> future.cancel(true));
+            // Interrupted copies stop at their next clock check; only then are their figures final
+            for (Copy copy : started) {
+                copy.awaitStopped();
+                budget.merge(copy.budget);
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * One copy of the search. A copy that was cancelled before a thread picked it up never runs,
+     * so waiting for it to stop must not wait for it to run either.
+     */
+    private final class Copy implements Callable<Optional<int[]>> {
+
+        private final DrawProblem problem;
+        private final SolveBudget budget;
+        private final Random random;
+        private final AtomicBoolean claimed = new AtomicBoolean();
+        private final CountDownLatch stopped = new CountDownLatch(1);
+
+        private Copy(DrawProblem problem, SolveBudget budget, Random random) {
+            this.problem = problem;
+            this.budget = budget;
+            this.random = random;
+        }
+
+        @Override
+        public Optional<int[]> call() {
+            if (!claimed.compareAndSet(false, true)) {
+                throw new SolveBudgetExceededException("solve cancelled");
+            }
+            try {
+                return backtrackingSolver.solve(problem, budget, random);
+            } finally {
+                stopped.countDown();
+            }
+        }
+
+        /**
+         * Returns once the copy has stopped using its budget, or right away if it never started.
+         */
+        private void awaitStopped() {
+            if (claimed.compareAndSet(false, true)) {
+                return;
+            }
+            boolean interrupted = false;
+            while (true) {
+                try {
+                    stopped.await();
+                    break;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Daemon threads with recognizable names, so thread dumps show which searches are running.
+     */
+    private static final class SolverThreadFactory implements ThreadFactory {
+
+        private final AtomicInteger counter = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "portfolio-solver-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+
+}
@@ -0,0 +1,74 @@
+package com.bettercloud.secret_santa.solver;
+
+import java.util.Arrays;
+
+/**
+ * The (giver, receiver) pairs of previous draws within the lookback window, by position in
+ * the draw, with the year of each. Sparse: a few pairs per giver, in growable primitive arrays.
+ * A pair assigned in several years appears once per year.
+ */
+public final class RecentPairs {
+
+    private int[] givers = new int[64];
+    private int[] receivers = new int[64];
+    private int[] years = new int[64];
+    private int size;
+
+    public void add(int giver, int receiver, int year) {
+        if (size == givers.length) {
+            givers = Arrays.copyOf(givers, size * 2);
+            receivers = Arrays.copyOf(receivers, size * 2);
+            years = Arrays.copyOf(years, size * 2);
+        }
+        givers[size] = giver;
+        receivers[size] = receiver;
+        years[size] = year;
+        size++;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int giver(int pair) {
+        return givers[pair];
+    }
+
+    public int receiver(int pair) {
+        return receivers[pair];
+    }
+
+    public int year(int pair) {
+        return years[pair];
+    }
+
+    /**
+     * Marks every pair as forbidden in the matrix.
+     *
+     * @return the pairs that were not forbidden yet, i.e. the ones only the history forbids,
+     * which {@link #relax} allows again
+     */
+    public int[] excludeInto(ExclusionMatrix exclusions) {
+        int[] added = new int[size];
+        int count = 0;
+        for (int pair = 0; pair < size; pair++) {
+            int giver = givers[pair];
+            int receiver = receivers[pair];
+            if (giver != receiver && !exclusions.isExcluded(giver, receiver)) {
+                exclusions.exclude(giver, receiver);
+                added[count++] = pair;
+            }
+        }
+        return Arrays.copyOf(added, count);
+    }
+
+    /**
+     * Allows again the pairs returned by {@link #excludeInto}, leaving the other rules in place.
+     */
+    public void relax(ExclusionMatrix exclusions, int[] addedPairs) {
+        for (int pair : addedPairs) {
+            exclusions.allow(givers[pair], receivers[pair]);
+        }
+    }
+
+}
@@ -0,0 +1,141 @@
+package com.bettercloud.secret_santa.solver;
+
+import java.time.Duration;
+
+/**
+ * Wall-clock and node limits of a single solve.
+ * <p>
+ * Solvers call {@link #tick()} once per search node. The node count is checked on every
+ * tick, while the clock and the interrupt flag (used for cancellation) are only read every
+ * 1024 ticks to keep the check off the hot path. Not thread-safe: each solving thread
+ * uses its own instance.
+ * <p>
+ * Besides the nodes, solvers report backtracks and pruned candidates here, so the work of
+ * a solve can be published as metrics once it is over.
+ */
+public final class SolveBudget {
+
+    private static final long CLOCK_CHECK_MASK = 1024 - 1;
+
+    private final long deadline;
+    private final Duration timeLimit;
+    private final long maxNodes;
+    private long nodes;
+    private long backtracks;
+    private long pruned;
+    private long forkedNodes;
+
+    private SolveBudget(long deadline, Duration timeLimit, long maxNodes) {
+        this.deadline = deadline;
+        this.timeLimit = timeLimit;
+        this.maxNodes = maxNodes;
+    }
+
+    /**
+     * Starts a budget now.
+     *
+     * @param timeLimit wall-clock limit of the solve
+     * @param maxNodes  maximum number of search nodes, or 0 for no node limit
+     */
+    public static SolveBudget start(Duration timeLimit, long maxNodes) {
+        return new SolveBudget(System.nanoTime() + timeLimit.toNanos(), timeLimit,
+                maxNodes > 0 ? maxNodes : Long.MAX_VALUE);
+    }
+
+    /**
+     * @return a budget without limits, still honoring thread interruption
+     */
+    public static SolveBudget unlimited() {
+        return new SolveBudget(Long.MAX_VALUE, null, Long.MAX_VALUE);
+    }
+
+    /**
+     * Creates a budget for another solving thread, sharing this budget's deadline and
+     * granting it the same node limit.
+     */
+    public SolveBudget fork() {
+        return new SolveBudget(deadline, timeLimit, maxNodes);
+    }
+
+    /**
+     * @return the number of search nodes charged so far
+     */
+    public long nodes() {
+        return nodes;
+    }
+
+    /**
+     * @return the nodes charged to this budget and to the forks merged into it
+     */
+    public long totalNodes() {
+        return nodes + forkedNodes;
+    }
+
+    /**
+     * @return the number of times a search undid a choice
+     */
+    public long backtracks() {
+        return backtracks;
+    }
+
+    /**
+     * @return the number of candidates rejected by the constraints
+     */
+    public long pruned() {
+        return pruned;
+    }
+
+    /**
+     * Records that the search undid a choice.
+     */
+    public void backtrack() {
+        backtracks++;
+    }
+
+    /**
+     * Records candidates rejected by the constraints.
+     */
+    public void prune(long candidates) {
+        pruned += candidates;
+    }
+
+    /**
+     * Adds the statistics of a fork to this budget, without charging its nodes against
+     * this budget's node limit. Must only be called once the fork's thread has stopped using
+     * it and that stop happens-before the call, as after joining the thread.
+     */
+    public void merge(SolveBudget fork) {
+        forkedNodes += fork.totalNodes();
+        backtracks += fork.backtracks;
+        pruned += fork.pruned;
+    }
+
+    /**
+     * Charges one search node.
+     *
+     * @throws SolveBudgetExceededException if the budget ran out or the thread was interrupted
+     */
+    public void tick() {
+        if (++nodes > maxNodes) {
+            throw new SolveBudgetExceededException("node limit of " + maxNodes + " exceeded");
+        }
+        if ((nodes & CLOCK_CHECK_MASK) == 0) {
+            checkClock();
+        }
+    }
+
+    /**
+     * Checks the deadline and the interrupt flag without charging a node.
+     *
+     * @throws SolveBudgetExceededException if the deadline passed or the thread was interrupted
+     */
+    public void checkClock() {
+        if (Thread.currentThread().isInterrupted()) {
+            throw new SolveBudgetExceededException("solve cancelled");
+        }
+        if (timeLimit != null && System.nanoTime() - deadline > 0) {
+            throw new SolveBudgetExceededException("time limit of " + timeLimit.toMillis() + " ms exceeded");
+        }
+    }
+
+}
@@ -0,0 +1,18 @@
+package com.bettercloud.secret_santa.solver;
+
+import java.io.Serial;
+
+/**
+ * Thrown by a solver when its {@link SolveBudget} runs out or its thread is interrupted,
+ * before it could either find a draw or prove that none exists.
+ */
+public class SolveBudgetExceededException extends RuntimeException {
+
+    @Serial
+    private static final long serialVersionUID = -4262170383391842247L;
+
+    public SolveBudgetExceededException(String message) {
+        super(message);
+    }
+
+}
@@ -0,0 +1,24 @@
+package com.bettercloud.secret_santa.solver;
+
+/**
+ * Algorithms available to compute a draw.
+ */
+public enum SolverStrategy {
+
+    /**
+     * Depth-first search with backtracking. Exponential in the worst case, kept for comparison.
+     */
+    BACKTRACKING,
+
+    /**
+     * Bipartite perfect matching (Hopcroft–Karp) over the giver -> receiver compatibility graph.
+     */
+    MATCHING,
+
+    /**
+     * Several independently seeded backtracking searches racing on different cores;
+     * the first one to answer wins and the others are cancelled.
+     */
+    PORTFOLIO
+
+}
@@ -0,0 +1,53 @@
+-- Schema as it was created by ddl-auto: update. Every statement only creates what is missing,
+-- so this runs unchanged on a new database and on one that ddl-auto already created.
+
+CREATE SEQUENCE IF NOT EXISTS participants_seq START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE IF NOT EXISTS log_assignments_seq START WITH 1 INCREMENT BY 50;
+
+CREATE TABLE IF NOT EXISTS participants (
+    id    integer NOT NULL,
+    name  varchar(255),
+    email varchar(255),
+    CONSTRAINT participants_pkey PRIMARY KEY (id),
+    CONSTRAINT participants_email_key UNIQUE (email)
+);
+
+CREATE TABLE IF NOT EXISTS log_assignments (
+    id          integer NOT NULL,
+    giver_id    integer,
+    receiver_id integer,
+    year        integer,
+    CONSTRAINT log_assignments_pkey PRIMARY KEY (id)
+);
+
+CREATE INDEX IF NOT EXISTS idx_log_assignments_year_id ON log_assignments (year, id);
+
+CREATE TABLE IF NOT EXISTS draw_jobs (
+    id                varchar(36) NOT NULL,
+    year              integer,
+    participant_count integer,
+    status            varchar(16) CHECK (status IN ('QUEUED', 'RUNNING', 'SUCCEEDED', 'FAILED')),
+    created_at        timestamp(6) with time zone,
+    started_at        timestamp(6) with time zone,
+    finished_at       timestamp(6) with time zone,
+    error_code        integer,
+    error_message     varchar(2000),
+    result            text,
+    CONSTRAINT draw_jobs_pkey PRIMARY KEY (id)
+);
+
+CREATE TABLE IF NOT EXISTS draw_requests (
+    idempotency_key varchar(255) NOT NULL,
+    year            integer,
+    request_hash    varchar(64),
+    created_at      timestamp(6) with time zone,
+    response        text,
+    CONSTRAINT draw_requests_pkey PRIMARY KEY (idempotency_key)
+);
+
+-- Databases created before the pooled sequences existed: move them past the IDs in use
+SELECT setval('participants_seq', (SELECT MAX(id) + 50 FROM participants))
+WHERE (SELECT last_value FROM participants_seq) < (SELECT COALESCE(MAX(id), 0) FROM participants);
+
+SELECT setval('log_assignments_seq', (SELECT MAX(id) + 50 FROM log_assignments))
+WHERE (SELECT last_value FROM log_assignments_seq) < (SELECT COALESCE(MAX(id), 0) FROM log_assignments);
@@ -0,0 +1,90 @@
+-- Range-partitions log_assignments by year, so the lookback checks and history reads of recent
+-- years only scan their own partitions, however many years accumulate, and indexes the table
+-- for them.
+
+ALTER TABLE log_assignments RENAME TO log_assignments_unpartitioned;
+
+-- A partitioned table's primary key must include the partition key
+CREATE TABLE log_assignments (
+    id          integer NOT NULL,
+    giver_id    integer NOT NULL,
+    receiver_id integer NOT NULL,
+    year        integer NOT NULL,
+    CONSTRAINT pk_log_assignments PRIMARY KEY (id, year)
+) PARTITION BY RANGE (year);
+
+-- Catches the rows of any year without a partition of its own, so a write that did not create
+-- its partition first is stored rather than rejected
+CREATE TABLE log_assignments_default PARTITION OF log_assignments DEFAULT;
+
+-- One partition per year, log_assignments_y<year>. Called by the application before it writes
+-- the first draw of a year. Calls for the same year are serialized by a single-key advisory lock,
+-- a key space apart from the (year, slot) locks of the draws. Rows of the year already in the
+-- default partition are moved to the new one, since PostgreSQL refuses to create a partition for
+-- rows the default partition holds.
+CREATE FUNCTION ensure_log_assignments_partition(partition_year integer) RETURNS void
+LANGUAGE plpgsql AS $$
+DECLARE
+    partition_name text := 'log_assignments_y' || partition_year;
+BEGIN
+    PERFORM pg_advisory_xact_lock(partition_year::bigint);
+    IF to_regclass(partition_name) IS NOT NULL THEN
+        RETURN;
+    END IF;
+
+    CREATE TEMPORARY TABLE log_assignments_moved AS
+    SELECT * FROM log_assignments_default WHERE year = partition_year;
+    DELETE FROM log_assignments_default WHERE year = partition_year;
+
+    EXECUTE format('CREATE TABLE %I PARTITION OF log_assignments FOR VALUES FROM (%s) TO (%s)',
+                   partition_name, partition_year, partition_year + 1);
+
+    INSERT INTO log_assignments SELECT * FROM log_assignments_moved;
+    DROP TABLE log_assignments_moved;
+END;
+$$;
+
+SELECT ensure_log_assignments_partition(year)
+FROM (SELECT DISTINCT year FROM log_assignments_unpartitioned WHERE year IS NOT NULL
+      UNION
+      SELECT EXTRACT(YEAR FROM CURRENT_DATE)::integer) AS years;
+
+-- Rows ddl-auto let in that the new table refuses: a missing column, or a participant that no
+-- longer exists. They are kept aside instead of failing the migration or being lost.
+CREATE TABLE log_assignments_orphaned (
+    id          integer NOT NULL,
+    giver_id    integer,
+    receiver_id integer,
+    year        integer,
+    CONSTRAINT pk_log_assignments_orphaned PRIMARY KEY (id)
+);
+
+INSERT INTO log_assignments_orphaned (id, giver_id, receiver_id, year)
+SELECT la.id, la.giver_id, la.receiver_id, la.year
+FROM log_assignments_unpartitioned la
+WHERE la.year IS NULL
+   OR NOT EXISTS (SELECT 1 FROM participants g WHERE g.id = la.giver_id)
+   OR NOT EXISTS (SELECT 1 FROM participants r WHERE r.id = la.receiver_id);
+
+INSERT INTO log_assignments (id, giver_id, receiver_id, year)
+SELECT la.id, la.giver_id, la.receiver_id, la.year
+FROM log_assignments_unpartitioned la
+WHERE NOT EXISTS (SELECT 1 FROM log_assignments_orphaned o WHERE o.id = la.id);
+
+DROP TABLE log_assignments_unpartitioned;
+
+-- Created on the parent, so every partition, current and future, gets them
+
+-- History pages and exports: keyset seek on (year, id)
+CREATE INDEX idx_log_assignments_year_id ON log_assignments (year, id);
+
+-- Lookback checks: covers countRecentAssignments and the recent pairs of a set of givers
+-- (index-only scans), and supports the giver foreign key
+CREATE INDEX idx_log_assignments_giver_receiver_year ON log_assignments (giver_id, receiver_id, year);
+
+-- Supports the receiver foreign key and the repair lookups by receiver
+CREATE INDEX idx_log_assignments_receiver_id ON log_assignments (receiver_id);
+
+ALTER TABLE log_assignments
+    ADD CONSTRAINT fk_log_assignments_giver FOREIGN KEY (giver_id) REFERENCES participants (id),
+    ADD CONSTRAINT fk_log_assignments_receiver FOREIGN KEY (receiver_id) REFERENCES participants (id);
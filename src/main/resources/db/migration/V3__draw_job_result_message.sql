@@ -0,0 +1,4 @@
+-- The message of a finished job's response, such as the total penalty of a draw whose history
+-- rule was relaxed, so its result is returned with the same meta as the synchronous endpoint.
+
+ALTER TABLE draw_jobs ADD COLUMN result_message varchar(2000);
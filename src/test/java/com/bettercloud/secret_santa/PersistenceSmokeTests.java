@@ -0,0 +1,59 @@
+package com.bettercloud.secret_santa;
+
+import com.bettercloud.secret_santa.dto.HistoryPageDTO;
+import com.bettercloud.secret_santa.dto.ParticipantRequestDTO;
+import com.bettercloud.secret_santa.repositories.LogAssignmentPartitions;
+import com.bettercloud.secret_santa.services.HistoryService;
+import com.bettercloud.secret_santa.services.IdempotentDraw;
+import com.bettercloud.secret_santa.services.IdempotentDrawService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs a draw end to end against the in-memory database of the h2 profile: the entity mappings,
+ * the native and generated queries, and the fallbacks of the PostgreSQL-only write paths. The
+ * Flyway migrations and the yearly partitions are PostgreSQL-only and not covered here.
+ */
+@SpringBootTest
+@ActiveProfiles("h2")
+class PersistenceSmokeTests {
+
+    @Autowired
+    private IdempotentDrawService idempotentDrawService;
+
+    @Autowired
+    private HistoryService historyService;
+
+    @Autowired
+    private LogAssignmentPartitions logAssignmentPartitions;
+
+    @Test
+    void drawIsStoredReplayedAndReadBack() {
+        List<ParticipantRequestDTO> participants = List.of(
+                new ParticipantRequestDTO("John Doe", 1, "john@example.com"),
+                new ParticipantRequestDTO("Jane Doe", 2, "jane@example.com"),
+                new ParticipantRequestDTO("Ann Roe", 3, "ann@example.com"),
+                new ParticipantRequestDTO("Bob Roe", 4, "bob@example.com")
+        );
+
+        IdempotentDraw draw = idempotentDrawService.createAssignments("smoke-2024", participants, 2024);
+        IdempotentDraw retry = idempotentDrawService.createAssignments("smoke-2024", participants, 2024);
+        HistoryPageDTO firstPage = historyService.findHistory(2024, null, null, null, 3);
+        HistoryPageDTO lastPage = historyService.findHistory(2024, null, null, firstPage.getNextCursor(), 3);
+
+        assertFalse(draw.isReplayed());
+        assertTrue(retry.isReplayed());
+        assertEquals(3, firstPage.getItems().size());
+        assertEquals(1, lastPage.getItems().size());
+        assertNull(lastPage.getNextCursor());
+        // No partitions outside PostgreSQL
+        assertDoesNotThrow(() -> logAssignmentPartitions.ensureYear(2024));
+    }
+
+}
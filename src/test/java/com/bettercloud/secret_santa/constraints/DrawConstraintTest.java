@@ -0,0 +1,80 @@
+package com.bettercloud.secret_santa.constraints;
+
+import com.bettercloud.secret_santa.dto.ParticipantRequestDTO;
+import com.bettercloud.secret_santa.solver.ExclusionMatrix;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DrawConstraintTest {
+
+    @Test
+    void familyConstraint_ExcludesSameFamily() {
+        DrawContext draw = context(List.of(),
+                participant("a@example.com", 7, null, null),
+                participant("b@example.com", 7, null, null),
+                participant("c@example.com", null, null, null),
+                participant("d@example.com", null, null, null));
+
+        ExclusionMatrix exclusions = compile(new FamilyConstraint(), draw);
+
+        assertTrue(exclusions.isExcluded(0, 1));
+        assertTrue(exclusions.isExcluded(1, 0));
+        // no family is not a family
+        assertFalse(exclusions.isExcluded(2, 3));
+    }
+
+    @Test
+    void sharedAttributeConstraint_OnlyUsesConfiguredAttributes() {
+        DrawContext draw = context(List.of("location"),
+                participant("a@example.com", null, Map.of("location", "NYC", "team", "x"), null),
+                participant("b@example.com", null, Map.of("location", "NYC"), null),
+                participant("c@example.com", null, Map.of("location", "BUE", "team", "x"), null),
+                participant("d@example.com", null, null, null));
+
+        ExclusionMatrix exclusions = compile(new SharedAttributeConstraint(), draw);
+
+        assertTrue(exclusions.isExcluded(0, 1));
+        assertFalse(exclusions.isExcluded(0, 2));
+        assertFalse(exclusions.isExcluded(0, 3));
+    }
+
+    @Test
+    void doNotPairConstraint_ExcludesBothDirectionsAndIgnoresUnknownEmails() {
+        DrawContext draw = context(List.of(),
+                participant("a@example.com", null, null, List.of("c@example.com", "nobody@example.com")),
+                participant("b@example.com", null, null, null),
+                participant("c@example.com", null, null, null),
+                participant("d@example.com", null, null, null));
+
+        ExclusionMatrix exclusions = compile(new DoNotPairConstraint(), draw);
+
+        assertTrue(exclusions.isExcluded(0, 2));
+        assertTrue(exclusions.isExcluded(2, 0));
+        assertFalse(exclusions.isExcluded(0, 1));
+    }
+
+    private static ExclusionMatrix compile(DrawConstraint constraint, DrawContext draw) {
+        ExclusionMatrix exclusions = new ExclusionMatrix(draw.size());
+        constraint.compile(draw, exclusions);
+        return exclusions;
+    }
+
+    private static DrawContext context(List<String> groupingAttributes, ParticipantRequestDTO... participants) {
+        DrawContext.Builder builder = new DrawContext.Builder(groupingAttributes).addAll(List.of(participants));
+        int[] participantIds = new int[participants.length];
+        for (int i = 0; i < participantIds.length; i++) {
+            participantIds[i] = i + 1;
+        }
+        return builder.build(participantIds, 2024);
+    }
+
+    private static ParticipantRequestDTO participant(String email, Integer familyId, Map<String, String> attributes,
+                                                     List<String> doNotPairWith) {
+        return new ParticipantRequestDTO(email, familyId, email, attributes, doNotPairWith);
+    }
+
+}
@@ -0,0 +1,117 @@
+package com.bettercloud.secret_santa.filters;
+
+import com.bettercloud.secret_santa.config.SecretSantaProperties;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.util.ContentCachingRequestWrapper;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class LoggingFilterTest {
+
+    @Mock
+    private AccessLogAppender appender;
+
+    @Test
+    void doFilter_LogsAllowedHeadersWithoutBufferingBodies() throws ServletException, IOException {
+        LoggingFilter filter = new LoggingFilter(appender, new SecretSantaProperties());
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/v1/secret-santa/generate/2024");
+        request.addHeader("X-Track-Id", "trace-1");
+        request.addHeader("User-Agent", "curl");
+        request.addHeader("Authorization", "Bearer token-1");
+        MockFilterChain chain = new MockFilterChain();
+
+        filter.doFilter(request, new MockHttpServletResponse(), chain);
+
+        assertSame(request, chain.getRequest());
+        ArgumentCaptor<AccessLogEvent> event = ArgumentCaptor.forClass(AccessLogEvent.class);
+        verify(appender).append(event.capture());
+        assertEquals("trace-1", event.getValue().getTraceId());
+        assertArrayEquals(new String[]{"x-track-id", "trace-1", "user-agent", "curl"}, event.getValue().getHeaders());
+        assertEquals(200, event.getValue().getStatus());
+        assertNull(event.getValue().getRequestBody());
+
+        String message = AccessLogAppender.format(event.getValue());
+        assertTrue(message.startsWith("Request URL: http://localhost/api/v1/secret-santa/generate/2024 | Method: POST"));
+        assertFalse(message.contains("token-1"));
+    }
+
+    @Test
+    void doFilter_SampledOut_StillLogsErrors() throws ServletException, IOException {
+        SecretSantaProperties properties = new SecretSantaProperties();
+        properties.getAccessLog().setSampleRate(0);
+        LoggingFilter filter = new LoggingFilter(appender, properties);
+
+        filter.doFilter(new MockHttpServletRequest("GET", "/ok"), new MockHttpServletResponse(), new MockFilterChain());
+        verify(appender, never()).append(any());
+
+        MockHttpServletResponse errorResponse = new MockHttpServletResponse();
+        errorResponse.setStatus(409);
+        filter.doFilter(new MockHttpServletRequest("GET", "/conflict"), errorResponse, new MockFilterChain());
+        verify(appender, times(1)).append(any());
+    }
+
+    @Test
+    void doFilter_ChainThrows_LogsServerError() {
+        SecretSantaProperties properties = new SecretSantaProperties();
+        properties.getAccessLog().setSampleRate(0);
+        LoggingFilter filter = new LoggingFilter(appender, properties);
+        MockFilterChain chain = new MockFilterChain(new HttpServlet() {
+            @Override
+            protected void service(HttpServletRequest req, HttpServletResponse res) {
+                throw new IllegalStateException("boom");
+            }
+        });
+
+        assertThrows(IllegalStateException.class, () ->
+                filter.doFilter(new MockHttpServletRequest("GET", "/fails"), new MockHttpServletResponse(), chain));
+
+        ArgumentCaptor<AccessLogEvent> event = ArgumentCaptor.forClass(AccessLogEvent.class);
+        verify(appender).append(event.capture());
+        assertEquals(500, event.getValue().getStatus());
+    }
+
+    @Test
+    void doFilter_BodiesEnabled_LogsTruncatedBodies() throws ServletException, IOException {
+        SecretSantaProperties properties = new SecretSantaProperties();
+        properties.getAccessLog().setIncludeBodies(true);
+        properties.getAccessLog().setMaxBodyLength(5);
+        LoggingFilter filter = new LoggingFilter(appender, properties);
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/echo");
+        request.setContent("[1,2,3,4]".getBytes(StandardCharsets.UTF_8));
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        MockFilterChain chain = new MockFilterChain(new HttpServlet() {
+            @Override
+            protected void service(HttpServletRequest req, HttpServletResponse res) throws IOException {
+                req.getInputStream().readAllBytes();
+                res.getWriter().write("{\"ok\":true}");
+            }
+        });
+
+        filter.doFilter(request, response, chain);
+
+        assertInstanceOf(ContentCachingRequestWrapper.class, chain.getRequest());
+        ArgumentCaptor<AccessLogEvent> event = ArgumentCaptor.forClass(AccessLogEvent.class);
+        verify(appender).append(event.capture());
+        assertEquals("[1,2,", event.getValue().getRequestBody());
+        assertEquals("{\"ok\"", event.getValue().getResponseBody());
+        assertEquals("{\"ok\":true}", response.getContentAsString());
+    }
+
+}
@@ -0,0 +1,115 @@
+package com.bettercloud.secret_santa.ingest;
+
+import com.bettercloud.secret_santa.dto.ParticipantRequestDTO;
+import com.bettercloud.secret_santa.exceptions.AppSecretSantaException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ParticipantStreamParserTest {
+
+    private final ParticipantStreamParser parser = new ParticipantStreamParser(new ObjectMapper());
+
+    @Test
+    void parse_Ndjson_ReturnsChunksInOrder() {
+        List<List<ParticipantRequestDTO>> chunks = parse(MediaType.APPLICATION_NDJSON, 2, """
+                {"name": "John Doe", "tempFamilyId": 1, "email": "john@example.com"}
+                {"name": "Jane Doe", "tempFamilyId": null, "email": "jane@example.com", "extra": {"a": [1]}}
+
+                {"name": "Jim Doe", "email": "jim@example.com"}
+                """);
+
+        assertEquals(2, chunks.size());
+        assertEquals(List.of(
+                new ParticipantRequestDTO("John Doe", 1, "john@example.com"),
+                new ParticipantRequestDTO("Jane Doe", null, "jane@example.com")
+        ), chunks.get(0));
+        assertEquals(List.of(new ParticipantRequestDTO("Jim Doe", null, "jim@example.com")), chunks.get(1));
+    }
+
+    @Test
+    void parse_CsvWithHeader_ReadsColumnsByName() {
+        List<List<ParticipantRequestDTO>> chunks = parse(ParticipantStreamParser.TEXT_CSV, 10, """
+                email,name,tempFamilyId
+                john@example.com,John Doe,1
+                jane@example.com, Jane Doe ,
+                """);
+
+        assertEquals(List.of(List.of(
+                new ParticipantRequestDTO("John Doe", 1, "john@example.com"),
+                new ParticipantRequestDTO("Jane Doe", null, "jane@example.com")
+        )), chunks);
+    }
+
+    @Test
+    void parse_ConstraintFields_NdjsonAndCsv() {
+        List<List<ParticipantRequestDTO>> ndjson = parse(MediaType.APPLICATION_NDJSON, 10, """
+                {"name": "John Doe", "email": "john@example.com", "attributes": {"location": "NYC"}, "doNotPairWith": ["jane@example.com"]}
+                """);
+        List<List<ParticipantRequestDTO>> csv = parse(ParticipantStreamParser.TEXT_CSV, 10, """
+                name,email,location,doNotPairWith
+                John Doe,john@example.com,NYC,jane@example.com
+                """);
+
+        ParticipantRequestDTO expected = new ParticipantRequestDTO("John Doe", null, "john@example.com",
+                Map.of("location", "NYC"), List.of("jane@example.com"));
+        assertEquals(List.of(List.of(expected)), ndjson);
+        assertEquals(List.of(List.of(expected)), csv);
+    }
+
+    @Test
+    void parse_MissingEmail_ThrowsWithLine() {
+        AppSecretSantaException exception = assertThrows(
+                AppSecretSantaException.class,
+                () -> parse(MediaType.APPLICATION_NDJSON, 10, """
+                        {"name": "John Doe", "email": "john@example.com"}
+                        {"name": "Jane Doe"}
+                        """)
+        );
+
+        assertEquals(HttpStatus.BAD_REQUEST.value(), exception.getCode());
+        assertEquals("Participant without email at line 2", exception.getMessage());
+    }
+
+    @Test
+    void parse_InvalidFamilyId_ThrowsBadRequest() {
+        AppSecretSantaException exception = assertThrows(
+                AppSecretSantaException.class,
+                () -> parse(ParticipantStreamParser.TEXT_CSV, 10, """
+                        name,email,tempFamilyId
+                        John Doe,john@example.com,one
+                        """)
+        );
+
+        assertEquals(HttpStatus.BAD_REQUEST.value(), exception.getCode());
+        assertTrue(exception.getMessage().contains("tempFamilyId"));
+    }
+
+    @Test
+    void parse_MalformedJson_ThrowsBadRequest() {
+        AppSecretSantaException exception = assertThrows(
+                AppSecretSantaException.class,
+                () -> parse(MediaType.APPLICATION_NDJSON, 10, "{\"email\": \"john@example.com\"\n{\"email\"")
+        );
+
+        assertEquals(HttpStatus.BAD_REQUEST.value(), exception.getCode());
+        assertTrue(exception.getMessage().startsWith("Malformed participant upload"));
+    }
+
+    private List<List<ParticipantRequestDTO>> parse(MediaType contentType, int chunkSize, String content) {
+        List<List<ParticipantRequestDTO>> chunks = new ArrayList<>();
+        parser.parse(new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8)), contentType, chunkSize,
+                chunks::add);
+        return chunks;
+    }
+
+}
@@ -0,0 +1,37 @@
+package com.bettercloud.secret_santa.mappers;
+
+import com.bettercloud.secret_santa.dto.AssignmentResponseDTO;
+import com.bettercloud.secret_santa.entities.LogAssignment;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LogAssignmentMapperTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    void writeNdjson_WritesOneDtoPerLine() throws IOException {
+        List<LogAssignment> assignments = List.of(
+                new LogAssignment(10, 1, 2, 2023),
+                new LogAssignment(11, 2, 1, 2023)
+        );
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        LogAssignmentMapper.writeNdjson(assignments, objectMapper.getFactory(), out);
+
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\n", -1);
+        assertEquals(3, lines.length);
+        assertTrue(lines[1].startsWith("{"));
+        assertEquals("", lines[2]);
+        assertEquals(new AssignmentResponseDTO(10, 1, 2), objectMapper.readValue(lines[0], AssignmentResponseDTO.class));
+        assertEquals(new AssignmentResponseDTO(11, 2, 1), objectMapper.readValue(lines[1], AssignmentResponseDTO.class));
+    }
+
+}
@@ -0,0 +1,333 @@
+package com.bettercloud.secret_santa.services.impl;
+
+import com.bettercloud.secret_santa.config.SecretSantaProperties;
+import com.bettercloud.secret_santa.dto.ApiResponseDTO;
+import com.bettercloud.secret_santa.dto.AssignmentResponseDTO;
+import com.bettercloud.secret_santa.dto.DrawJobDTO;
+import com.bettercloud.secret_santa.dto.ParticipantRequestDTO;
+import com.bettercloud.secret_santa.entities.DrawJob;
+import com.bettercloud.secret_santa.entities.DrawJobStatus;
+import com.bettercloud.secret_santa.exceptions.AppSecretSantaException;
+import com.bettercloud.secret_santa.repositories.DrawJobRepository;
+import com.bettercloud.secret_santa.services.SecretSantaService;
+import com.bettercloud.secret_santa.util.Meta;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.http.HttpStatus;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class DrawJobServiceImplTest {
+
+    @Mock
+    private SecretSantaService secretSantaService;
+
+    @Mock
+    private DrawJobRepository drawJobRepository;
+
+    private final Map<String, DrawJob> storedJobs = new ConcurrentHashMap<>();
+
+    private DrawJobServiceImpl drawJobService;
+
+    private List<ParticipantRequestDTO> validParticipants;
+
+    @BeforeEach
+    void setUp() {
+        when(drawJobRepository.save(any(DrawJob.class))).thenAnswer(invocation -> {
+            DrawJob job = invocation.getArgument(0);
+            storedJobs.put(job.getId(), job);
+            return job;
+        });
+        when(drawJobRepository.findById(anyString()))
+                .thenAnswer(invocation -> Optional.ofNullable(storedJobs.get(invocation.<String>getArgument(0))));
+
+        drawJobService = createService(new SecretSantaProperties());
+
+        validParticipants = List.of(
+                new ParticipantRequestDTO("John Doe", 1, "john@example.com"),
+                new ParticipantRequestDTO("Jane Doe", 2, "jane@example.com")
+        );
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        drawJobService.shutdown();
+    }
+
+    @Test
+    void submit_RunsDrawInBackgroundAndStoresResult() throws InterruptedException {
+        when(secretSantaService.createAssignments(validParticipants, 2023))
+                .thenReturn(new ApiResponseDTO(new Meta(), List.of(
+                        new AssignmentResponseDTO(10, 1, 2),
+                        new AssignmentResponseDTO(11, 2, 1))));
+
+        DrawJobDTO job = drawJobService.submit(validParticipants, 2023);
+
+        assertNotNull(job.getJobId());
+        awaitStatus(job.getJobId(), DrawJobStatus.SUCCEEDED);
+
+        ApiResponseDTO result = drawJobService.getResult(job.getJobId());
+        List<?> assignments = (List<?>) result.getData();
+        assertEquals(2, assignments.size());
+        assertEquals(new AssignmentResponseDTO(10, 1, 2), assignments.get(0));
+    }
+
+    @Test
+    void submit_FailedDraw_ResultReturnsOriginalError() throws InterruptedException {
+        when(secretSantaService.createAssignments(validParticipants, 2023))
+                .thenThrow(new AppSecretSantaException("No valid assignment found with the current constraints",
+                        HttpStatus.BAD_REQUEST.value(), HttpStatus.BAD_REQUEST.name()));
+
+        DrawJobDTO job = drawJobService.submit(validParticipants, 2023);
+        awaitStatus(job.getJobId(), DrawJobStatus.FAILED);
+
+        DrawJobDTO status = drawJobService.getJob(job.getJobId());
+        assertEquals(HttpStatus.BAD_REQUEST.value(), status.getErrorCode());
+
+        AppSecretSantaException exception = assertThrows(
+                AppSecretSantaException.class,
+                () -> drawJobService.getResult(job.getJobId())
+        );
+        assertEquals(HttpStatus.BAD_REQUEST.value(), exception.getCode());
+        assertTrue(exception.getMessage().contains("No valid assignment found"));
+    }
+
+    @Test
+    void submit_QueueFull_ThrowsTooManyRequests() throws InterruptedException {
+        SecretSantaProperties properties = new SecretSantaProperties();
+        properties.getJobs().setThreads(1);
+        properties.getJobs().setQueueCapacity(1);
+        drawJobService.shutdown();
+        drawJobService = createService(properties);
+
+        CountDownLatch release = new CountDownLatch(1);
+        when(secretSantaService.createAssignments(anyList(), anyInt())).thenAnswer(invocation -> {
+            release.await(5, TimeUnit.SECONDS);
+            return new ApiResponseDTO(new Meta(), List.of());
+        });
+
+        DrawJobDTO running = drawJobService.submit(validParticipants, 2023);
+        awaitStatus(running.getJobId(), DrawJobStatus.RUNNING);
+        DrawJobDTO queued = drawJobService.submit(validParticipants, 2023);
+
+        AppSecretSantaException exception = assertThrows(
+                AppSecretSantaException.class,
+                () -> drawJobService.submit(validParticipants, 2023)
+        );
+        assertEquals(HttpStatus.TOO_MANY_REQUESTS.value(), exception.getCode());
+        verify(drawJobRepository, times(1)).delete(any(DrawJob.class));
+
+        // Unfinished jobs have no result yet
+        AppSecretSantaException notFinished = assertThrows(
+                AppSecretSantaException.class,
+                () -> drawJobService.getResult(queued.getJobId())
+        );
+        assertEquals(HttpStatus.CONFLICT.value(), notFinished.getCode());
+
+        release.countDown();
+        awaitStatus(queued.getJobId(), DrawJobStatus.SUCCEEDED);
+    }
+
+    @Test
+    void submit_ReturnsJobAsQueuedWhileWorkerRunsIt() throws InterruptedException {
+        CountDownLatch release = new CountDownLatch(1);
+        when(secretSantaService.createAssignments(anyList(), anyInt())).thenAnswer(invocation -> {
+            release.await(5, TimeUnit.SECONDS);
+            return new ApiResponseDTO(new Meta(), List.of());
+        });
+
+        DrawJobDTO job = drawJobService.submit(validParticipants, 2023);
+        awaitStatus(job.getJobId(), DrawJobStatus.RUNNING);
+
+        assertEquals(DrawJobStatus.QUEUED, job.getStatus());
+        assertNull(job.getStartedAt());
+        release.countDown();
+        awaitStatus(job.getJobId(), DrawJobStatus.SUCCEEDED);
+    }
+
+    @Test
+    void submit_StoringRunningStateFails_JobEndsFailed() throws InterruptedException {
+        failFirstSaveOf(DrawJobStatus.RUNNING);
+
+        DrawJobDTO job = drawJobService.submit(validParticipants, 2023);
+
+        awaitStatus(job.getJobId(), DrawJobStatus.FAILED);
+        assertEquals(HttpStatus.INTERNAL_SERVER_ERROR.value(), storedJobs.get(job.getJobId()).getErrorCode());
+        verify(secretSantaService, never()).createAssignments(anyList(), anyInt());
+    }
+
+    @Test
+    void submit_StoringResultFails_JobEndsFailed() throws InterruptedException {
+        when(secretSantaService.createAssignments(validParticipants, 2023))
+                .thenReturn(new ApiResponseDTO(new Meta(), List.of(new AssignmentResponseDTO(10, 1, 2))));
+        failFirstSaveOf(DrawJobStatus.SUCCEEDED);
+
+        DrawJobDTO job = drawJobService.submit(validParticipants, 2023);
+
+        awaitStatus(job.getJobId(), DrawJobStatus.FAILED);
+        DrawJob stored = storedJobs.get(job.getJobId());
+        assertNull(stored.getResult());
+        assertNotNull(stored.getFinishedAt());
+    }
+
+    @Test
+    void getResult_RelaxedDraw_KeepsMessageOfSynchronousResponse() throws InterruptedException {
+        String message = "No draw avoids every recent pair; total penalty of the repeated pairs: 3";
+        when(secretSantaService.createAssignments(validParticipants, 2023))
+                .thenReturn(new ApiResponseDTO(new Meta("id", "OK", 200, message),
+                        List.of(new AssignmentResponseDTO(10, 1, 2))));
+
+        DrawJobDTO job = drawJobService.submit(validParticipants, 2023);
+        awaitStatus(job.getJobId(), DrawJobStatus.SUCCEEDED);
+
+        assertEquals(message, drawJobService.getResult(job.getJobId()).getMeta().getMessage());
+    }
+
+    @Test
+    void getJob_RunningLongerThanStaleAfter_FailedWithServiceUnavailable() {
+        DrawJob job = new DrawJob();
+        job.setId("lost");
+        job.setYear(2023);
+        job.setStatus(DrawJobStatus.RUNNING);
+        job.setCreatedAt(Instant.now().minus(Duration.ofHours(2)));
+        job.setStartedAt(Instant.now().minus(Duration.ofHours(1)));
+        storedJobs.put(job.getId(), job);
+
+        DrawJobDTO status = drawJobService.getJob("lost");
+
+        assertEquals(DrawJobStatus.FAILED, status.getStatus());
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE.value(), status.getErrorCode());
+        assertNotNull(storedJobs.get("lost").getFinishedAt());
+    }
+
+    @Test
+    void getJob_RecentlyQueued_LeftQueued() {
+        DrawJob job = new DrawJob();
+        job.setId("waiting");
+        job.setYear(2023);
+        job.setStatus(DrawJobStatus.QUEUED);
+        job.setCreatedAt(Instant.now().minus(Duration.ofMinutes(1)));
+        storedJobs.put(job.getId(), job);
+
+        assertEquals(DrawJobStatus.QUEUED, drawJobService.getJob("waiting").getStatus());
+        verify(drawJobRepository, never()).save(any(DrawJob.class));
+    }
+
+    @Test
+    void shutdown_JobsStillQueuedAfterTimeout_AreFailed() throws InterruptedException {
+        SecretSantaProperties properties = new SecretSantaProperties();
+        properties.getJobs().setThreads(1);
+        properties.getJobs().setShutdownTimeout(Duration.ofMillis(10));
+        drawJobService.shutdown();
+        drawJobService = createService(properties);
+
+        CountDownLatch release = new CountDownLatch(1);
+        when(secretSantaService.createAssignments(anyList(), anyInt())).thenAnswer(invocation -> {
+            release.await(5, TimeUnit.SECONDS);
+            return new ApiResponseDTO(new Meta(), List.of());
+        });
+        DrawJobDTO running = drawJobService.submit(validParticipants, 2023);
+        awaitStatus(running.getJobId(), DrawJobStatus.RUNNING);
+        DrawJobDTO queued = drawJobService.submit(validParticipants, 2023);
+
+        drawJobService.shutdown();
+
+        DrawJob dropped = storedJobs.get(queued.getJobId());
+        assertEquals(DrawJobStatus.FAILED, dropped.getStatus());
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE.value(), dropped.getErrorCode());
+        release.countDown();
+    }
+
+    @Test
+    void submit_OddNumberOfParticipants_ThrowsWithoutCreatingJob() {
+        List<ParticipantRequestDTO> oddParticipants = List.of(
+                new ParticipantRequestDTO("John Doe", 1, "john@example.com")
+        );
+
+        AppSecretSantaException exception = assertThrows(
+                AppSecretSantaException.class,
+                () -> drawJobService.submit(oddParticipants, 2023)
+        );
+
+        assertEquals(HttpStatus.BAD_REQUEST.value(), exception.getCode());
+        verify(drawJobRepository, never()).save(any());
+    }
+
+    @Test
+    void getJob_UnknownJob_ThrowsNotFound() {
+        AppSecretSantaException exception = assertThrows(
+                AppSecretSantaException.class,
+                () -> drawJobService.getJob("missing")
+        );
+
+        assertEquals(HttpStatus.NOT_FOUND.value(), exception.getCode());
+    }
+
+    private DrawJobServiceImpl createService(SecretSantaProperties properties) {
+        return new DrawJobServiceImpl(secretSantaService, drawJobRepository, new ObjectMapper(), properties,
+                new SimpleMeterRegistry());
+    }
+
+    /**
+     * Makes the first save of a job in the given status fail, as if the database was unreachable.
+     */
+    private void failFirstSaveOf(DrawJobStatus status) {
+        AtomicBoolean failed = new AtomicBoolean();
+        when(drawJobRepository.save(any(DrawJob.class))).thenAnswer(invocation -> {
+            DrawJob job = invocation.getArgument(0);
+            if (job.getStatus() == status && failed.compareAndSet(false, true)) {
+                throw new DataAccessResourceFailureException("connection lost");
+            }
+            storedJobs.put(job.getId(), copy(job));
+            return job;
+        });
+    }
+
+    private static DrawJob copy(DrawJob job) {
+        DrawJob copy = new DrawJob();
+        copy.setId(job.getId());
+        copy.setYear(job.getYear());
+        copy.setParticipantCount(job.getParticipantCount());
+        copy.setStatus(job.getStatus());
+        copy.setCreatedAt(job.getCreatedAt());
+        copy.setStartedAt(job.getStartedAt());
+        copy.setFinishedAt(job.getFinishedAt());
+        copy.setErrorCode(job.getErrorCode());
+        copy.setErrorMessage(job.getErrorMessage());
+        copy.setResult(job.getResult());
+        copy.setResultMessage(job.getResultMessage());
+        return copy;
+    }
+
+    private void awaitStatus(String jobId, DrawJobStatus status) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (storedJobs.get(jobId).getStatus() != status) {
+            assertTrue(System.nanoTime() < deadline, "job did not reach " + status);
+            Thread.sleep(10);
+        }
+    }
+
+}
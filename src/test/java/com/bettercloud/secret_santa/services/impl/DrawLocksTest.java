@@ -0,0 +1,119 @@
+package com.bettercloud.secret_santa.services.impl;
+
+import com.bettercloud.secret_santa.config.SecretSantaProperties;
+import com.bettercloud.secret_santa.repositories.DrawAdvisoryLocks;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.AdditionalMatchers.aryEq;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class DrawLocksTest {
+
+    @Mock
+    private DrawAdvisoryLocks drawAdvisoryLocks;
+
+    @Test
+    void withLocks_SameParticipantsAndYear_Serialized() throws Exception {
+        DrawLocks drawLocks = new DrawLocks(drawAdvisoryLocks, new SecretSantaProperties());
+        CountDownLatch firstEntered = new CountDownLatch(1);
+        CountDownLatch releaseFirst = new CountDownLatch(1);
+        CountDownLatch secondEntered = new CountDownLatch(1);
+
+        CompletableFuture<Boolean> first = CompletableFuture.supplyAsync(() -> drawLocks.withLocks(2023,
+                new int[]{1, 2, 3, 4}, () -> {
+                    firstEntered.countDown();
+                    return await(releaseFirst);
+                }));
+        assertTrue(firstEntered.await(5, TimeUnit.SECONDS));
+        // The same participants listed in another order
+        CompletableFuture<Boolean> second = CompletableFuture.supplyAsync(() -> drawLocks.withLocks(2023,
+                new int[]{4, 3, 2, 1}, () -> {
+                    secondEntered.countDown();
+                    return true;
+                }));
+
+        assertFalse(secondEntered.await(200, TimeUnit.MILLISECONDS));
+        releaseFirst.countDown();
+        assertTrue(first.get(5, TimeUnit.SECONDS));
+        assertTrue(second.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void withLocks_GroupsSharingOneParticipant_Serialized() throws Exception {
+        DrawLocks drawLocks = new DrawLocks(drawAdvisoryLocks, new SecretSantaProperties());
+        CountDownLatch firstEntered = new CountDownLatch(1);
+        CountDownLatch releaseFirst = new CountDownLatch(1);
+        CountDownLatch secondEntered = new CountDownLatch(1);
+
+        CompletableFuture<Boolean> first = CompletableFuture.supplyAsync(() -> drawLocks.withLocks(2023,
+                new int[]{1, 2, 3}, () -> {
+                    firstEntered.countDown();
+                    return await(releaseFirst);
+                }));
+        assertTrue(firstEntered.await(5, TimeUnit.SECONDS));
+        CompletableFuture<Boolean> second = CompletableFuture.supplyAsync(() -> drawLocks.withLocks(2023,
+                new int[]{3, 4}, () -> {
+                    secondEntered.countDown();
+                    return true;
+                }));
+
+        assertFalse(secondEntered.await(200, TimeUnit.MILLISECONDS));
+        releaseFirst.countDown();
+        assertTrue(first.get(5, TimeUnit.SECONDS));
+        assertTrue(second.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void withLocks_DisjointGroups_RunInParallel() throws Exception {
+        DrawLocks drawLocks = new DrawLocks(drawAdvisoryLocks, new SecretSantaProperties());
+        CountDownLatch firstEntered = new CountDownLatch(1);
+        CountDownLatch secondEntered = new CountDownLatch(1);
+
+        CompletableFuture<Boolean> first = CompletableFuture.supplyAsync(() -> drawLocks.withLocks(2023,
+                new int[]{1, 2}, () -> {
+                    firstEntered.countDown();
+                    // Only returns once the other draw got in while this one holds its lock
+                    return await(secondEntered);
+                }));
+        assertTrue(firstEntered.await(5, TimeUnit.SECONDS));
+        boolean second = drawLocks.withLocks(2023, new int[]{3, 4}, () -> {
+            secondEntered.countDown();
+            return true;
+        });
+
+        assertTrue(second);
+        assertTrue(first.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void lockInTransaction_OneAdvisoryKeyPerParticipantSlot() {
+        SecretSantaProperties properties = new SecretSantaProperties();
+        properties.getPersistence().setLockStripes(4);
+        DrawLocks drawLocks = new DrawLocks(drawAdvisoryLocks, properties);
+
+        // Two groups sharing participant 2; 6 lands on the slot of 2
+        drawLocks.lockInTransaction(2023, new int[]{3, 2, 1, 2, 6});
+
+        verify(drawAdvisoryLocks).lock(eq(2023), aryEq(new int[]{1, 2, 3}));
+    }
+
+    private static boolean await(CountDownLatch latch) {
+        try {
+            return latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+}
@@ -0,0 +1,135 @@
+package com.bettercloud.secret_santa.services.impl;
+
+import com.bettercloud.secret_santa.config.SecretSantaProperties;
+import com.bettercloud.secret_santa.dto.HistoryPageDTO;
+import com.bettercloud.secret_santa.exceptions.AppSecretSantaException;
+import com.bettercloud.secret_santa.repositories.AssignmentHistoryView;
+import com.bettercloud.secret_santa.repositories.LogAssignmentRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.PageRequest;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class HistoryServiceImplTest {
+
+    @Mock
+    private LogAssignmentRepository logAssignmentRepository;
+
+    private HistoryServiceImpl historyService;
+
+    @BeforeEach
+    void setUp() {
+        historyService = new HistoryServiceImpl(logAssignmentRepository, new SecretSantaProperties(), new ObjectMapper());
+    }
+
+    @Test
+    void findHistory_FullPageReturnsCursorOfLastRow() {
+        when(logAssignmentRepository.findHistoryPage(2024, null, null, 2023, 17, PageRequest.ofSize(2)))
+                .thenReturn(List.of(view(20, 2024), view(21, 2024)));
+
+        HistoryPageDTO page = historyService.findHistory(2024, null, null, "2023:17", 2);
+
+        assertEquals(2, page.getItems().size());
+        assertEquals("Jane Doe", page.getItems().get(0).getReceiverName());
+        assertEquals("2024:21", page.getNextCursor());
+    }
+
+    @Test
+    void findHistory_FirstAndLastPage() {
+        when(logAssignmentRepository.findHistoryPage(isNull(), eq(1), isNull(),
+                eq(Integer.MIN_VALUE), eq(Integer.MIN_VALUE), any()))
+                .thenReturn(List.of(view(20, 2024)));
+
+        HistoryPageDTO page = historyService.findHistory(null, 1, null, null, null);
+
+        assertEquals(1, page.getItems().size());
+        assertNull(page.getNextCursor());
+        verify(logAssignmentRepository).findHistoryPage(null, 1, null, Integer.MIN_VALUE, Integer.MIN_VALUE,
+                PageRequest.ofSize(100));
+    }
+
+    @Test
+    void findHistory_InvalidCursorOrSize() {
+        AppSecretSantaException cursor = assertThrows(AppSecretSantaException.class,
+                () -> historyService.findHistory(null, null, null, "2024-21", null));
+        AppSecretSantaException size = assertThrows(AppSecretSantaException.class,
+                () -> historyService.findHistory(null, null, null, null, 5000));
+
+        assertEquals(400, cursor.getCode());
+        assertEquals(400, size.getCode());
+        verifyNoInteractions(logAssignmentRepository);
+    }
+
+    @Test
+    void exportHistory_WritesOneLinePerRow() throws Exception {
+        when(logAssignmentRepository.streamHistory(2024, null, null))
+                .thenReturn(Stream.of(view(20, 2024), view(21, 2024)));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        historyService.exportHistory(2024, null, null, out);
+
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals(2, lines.length);
+        assertEquals("{\"logId\":21,\"year\":2024,\"giverId\":1,\"giverName\":\"John Doe\","
+                + "\"giverEmail\":\"john@example.com\",\"receiverId\":2,\"receiverName\":\"Jane Doe\","
+                + "\"receiverEmail\":\"jane@example.com\"}", lines[1]);
+    }
+
+    private static AssignmentHistoryView view(Integer id, Integer year) {
+        return new AssignmentHistoryView() {
+            @Override
+            public Integer getId() {
+                return id;
+            }
+
+            @Override
+            public Integer getYear() {
+                return year;
+            }
+
+            @Override
+            public Integer getGiverId() {
+                return 1;
+            }
+
+            @Override
+            public String getGiverName() {
+                return "John Doe";
+            }
+
+            @Override
+            public String getGiverEmail() {
+                return "john@example.com";
+            }
+
+            @Override
+            public Integer getReceiverId() {
+                return 2;
+            }
+
+            @Override
+            public String getReceiverName() {
+                return "Jane Doe";
+            }
+
+            @Override
+            public String getReceiverEmail() {
+                return "jane@example.com";
+            }
+        };
+    }
+
+}
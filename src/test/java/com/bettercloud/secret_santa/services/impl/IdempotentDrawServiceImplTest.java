@@ -0,0 +1,210 @@
+package com.bettercloud.secret_santa.services.impl;
+
+import com.bettercloud.secret_santa.config.SecretSantaProperties;
+import com.bettercloud.secret_santa.dto.ApiResponseDTO;
+import com.bettercloud.secret_santa.dto.AssignmentResponseDTO;
+import com.bettercloud.secret_santa.dto.ParticipantRequestDTO;
+import com.bettercloud.secret_santa.entities.DrawRequest;
+import com.bettercloud.secret_santa.exceptions.AppSecretSantaException;
+import com.bettercloud.secret_santa.repositories.DrawRequestRepository;
+import com.bettercloud.secret_santa.services.IdempotentDraw;
+import com.bettercloud.secret_santa.services.SecretSantaService;
+import com.bettercloud.secret_santa.util.Meta;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpStatus;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class IdempotentDrawServiceImplTest {
+
+    @Mock
+    private SecretSantaService secretSantaService;
+
+    @Mock
+    private DrawRequestRepository drawRequestRepository;
+
+    private final Map<String, DrawRequest> storedRequests = new ConcurrentHashMap<>();
+
+    private IdempotentDrawServiceImpl idempotentDrawService;
+
+    private List<ParticipantRequestDTO> validParticipants;
+
+    @BeforeEach
+    void setUp() {
+        doAnswer(invocation -> {
+            storedRequests.put(invocation.getArgument(0), new DrawRequest(invocation.getArgument(0),
+                    invocation.getArgument(1), invocation.getArgument(2), invocation.getArgument(3),
+                    invocation.getArgument(4)));
+            return null;
+        }).when(drawRequestRepository).insert(anyString(), anyInt(), anyString(), any(), anyString());
+        when(drawRequestRepository.findById(anyString()))
+                .thenAnswer(invocation -> Optional.ofNullable(storedRequests.get(invocation.<String>getArgument(0))));
+        when(secretSantaService.createAssignments(anyList(), anyInt(), any())).thenAnswer(invocation -> committed(
+                invocation.getArgument(2), new ApiResponseDTO(new Meta(), List.of(new AssignmentResponseDTO(10, 1, 2)))));
+        when(secretSantaService.createAssignments(anyList(), anyInt()))
+                .thenReturn(new ApiResponseDTO(new Meta(), List.of(new AssignmentResponseDTO(10, 1, 2))));
+
+        idempotentDrawService = createService(new SecretSantaProperties());
+
+        validParticipants = List.of(
+                new ParticipantRequestDTO("John Doe", 1, "john@example.com"),
+                new ParticipantRequestDTO("Jane Doe", 2, "jane@example.com")
+        );
+    }
+
+    @Test
+    void createAssignments_RetriedWithSameKey_ReplaysStoredResponse() {
+        IdempotentDraw first = idempotentDrawService.createAssignments("retry-me", validParticipants, 2023);
+        IdempotentDraw retry = idempotentDrawService.createAssignments("retry-me", validParticipants, 2023);
+
+        assertFalse(first.isReplayed());
+        assertTrue(retry.isReplayed());
+        assertEquals(10, ((Map<?, ?>) ((List<?>) retry.getResponse().getData()).get(0)).get("logId"));
+        verify(secretSantaService, times(1)).createAssignments(anyList(), anyInt(), any());
+    }
+
+    @Test
+    void createAssignments_NoKey_IdentifiedByContent() {
+        idempotentDrawService.createAssignments(null, validParticipants, 2023);
+        IdempotentDraw retry = idempotentDrawService.createAssignments(null, validParticipants, 2023);
+        IdempotentDraw nextYear = idempotentDrawService.createAssignments(null, validParticipants, 2024);
+
+        assertTrue(retry.isReplayed());
+        assertFalse(nextYear.isReplayed());
+        verify(secretSantaService, times(2)).createAssignments(anyList(), anyInt(), any());
+    }
+
+    @Test
+    void createAssignments_NoKeyAndHashingDisabled_DrawsEveryTime() {
+        SecretSantaProperties properties = new SecretSantaProperties();
+        properties.getIdempotency().setHashWhenNoKey(false);
+        idempotentDrawService = createService(properties);
+
+        idempotentDrawService.createAssignments(null, validParticipants, 2023);
+        idempotentDrawService.createAssignments(null, validParticipants, 2023);
+
+        verify(secretSantaService, times(2)).createAssignments(anyList(), anyInt());
+        verify(drawRequestRepository, never()).insert(anyString(), anyInt(), anyString(), any(), anyString());
+    }
+
+    @Test
+    void createAssignments_KeyReusedForDifferentRequest_ThrowsUnprocessable() {
+        idempotentDrawService.createAssignments("retry-me", validParticipants, 2023);
+
+        AppSecretSantaException exception = assertThrows(AppSecretSantaException.class,
+                () -> idempotentDrawService.createAssignments("retry-me", validParticipants, 2024));
+
+        assertEquals(HttpStatus.UNPROCESSABLE_ENTITY.value(), exception.getCode());
+    }
+
+    @Test
+    void createAssignments_FailedDraw_NotStored() {
+        doThrow(new AppSecretSantaException("No valid assignment found",
+                HttpStatus.BAD_REQUEST.value(), HttpStatus.BAD_REQUEST.name()))
+                .when(secretSantaService).createAssignments(anyList(), anyInt(), any());
+
+        assertThrows(AppSecretSantaException.class,
+                () -> idempotentDrawService.createAssignments("retry-me", validParticipants, 2023));
+
+        verify(drawRequestRepository, never()).insert(anyString(), anyInt(), anyString(), any(), anyString());
+    }
+
+    @Test
+    void createAssignments_StoreFails_DrawFails() {
+        doThrow(new DataAccessResourceFailureException("connection lost"))
+                .when(drawRequestRepository).insert(anyString(), anyInt(), anyString(), any(), anyString());
+
+        // The store runs inside the write transaction of the draw, so its failure rolls the draw back
+        assertThrows(DataAccessResourceFailureException.class,
+                () -> idempotentDrawService.createAssignments("retry-me", validParticipants, 2023));
+    }
+
+    @Test
+    void createAssignments_StoredMeanwhileByAnotherInstance_Replayed() {
+        doAnswer(invocation -> {
+            // The other instance committed first: this insert hits the primary key
+            storedRequests.put("retry-me", new DrawRequest("retry-me", 2023, invocation.getArgument(2),
+                    invocation.getArgument(3), invocation.getArgument(4)));
+            throw new DataIntegrityViolationException("duplicate key");
+        }).when(drawRequestRepository).insert(anyString(), anyInt(), anyString(), any(), anyString());
+
+        IdempotentDraw draw = idempotentDrawService.createAssignments("retry-me", validParticipants, 2023);
+
+        assertTrue(draw.isReplayed());
+    }
+
+    @Test
+    void createAssignments_ConflictingDrawOfSameKey_Replayed() {
+        // The other instance's draw of the same request committed first, so this one fails its conflict check
+        idempotentDrawService.createAssignments("retry-me", validParticipants, 2023);
+        DrawRequest stored = storedRequests.get("retry-me");
+        storedRequests.clear();
+        doAnswer(invocation -> {
+            storedRequests.put("retry-me", stored);
+            throw new AppSecretSantaException("Another draw was committed",
+                    HttpStatus.CONFLICT.value(), HttpStatus.CONFLICT.name());
+        }).when(secretSantaService).createAssignments(anyList(), anyInt(), any());
+
+        IdempotentDraw draw = idempotentDrawService.createAssignments("retry-me", validParticipants, 2023);
+
+        assertTrue(draw.isReplayed());
+    }
+
+    @Test
+    void createAssignments_ConcurrentDuplicates_DrawOnce() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            started.countDown();
+            assertTrue(release.await(5, TimeUnit.SECONDS));
+            return committed(invocation.getArgument(2),
+                    new ApiResponseDTO(new Meta(), List.of(new AssignmentResponseDTO(10, 1, 2))));
+        }).when(secretSantaService).createAssignments(anyList(), anyInt(), any());
+
+        CompletableFuture<IdempotentDraw> first = CompletableFuture.supplyAsync(
+                () -> idempotentDrawService.createAssignments("retry-me", validParticipants, 2023));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        CompletableFuture<IdempotentDraw> duplicate = CompletableFuture.supplyAsync(
+                () -> idempotentDrawService.createAssignments("retry-me", validParticipants, 2023));
+        release.countDown();
+
+        assertFalse(first.get(5, TimeUnit.SECONDS).isReplayed());
+        assertTrue(duplicate.get(5, TimeUnit.SECONDS).isReplayed());
+        verify(secretSantaService, times(1)).createAssignments(anyList(), anyInt(), any());
+    }
+
+    /**
+     * What the draw does with its response before committing.
+     */
+    private static ApiResponseDTO committed(Consumer<ApiResponseDTO> beforeCommit, ApiResponseDTO response) {
+        beforeCommit.accept(response);
+        return response;
+    }
+
+    private IdempotentDrawServiceImpl createService(SecretSantaProperties properties) {
+        return new IdempotentDrawServiceImpl(secretSantaService, drawRequestRepository, new ObjectMapper(), properties);
+    }
+
+}
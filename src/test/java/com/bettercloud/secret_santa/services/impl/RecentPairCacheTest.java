@@ -0,0 +1,118 @@
+package com.bettercloud.secret_santa.services.impl;
+
+import com.bettercloud.secret_santa.config.SecretSantaProperties;
+import com.bettercloud.secret_santa.repositories.AssignmentPairView;
+import com.bettercloud.secret_santa.repositories.LogAssignmentRepository;
+import com.bettercloud.secret_santa.services.DrawCommittedEvent;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class RecentPairCacheTest {
+
+    @Mock
+    private LogAssignmentRepository logAssignmentRepository;
+
+    private RecentPairCache recentPairCache;
+
+    @BeforeEach
+    void setUp() {
+        recentPairCache = new RecentPairCache(logAssignmentRepository, new SecretSantaProperties(),
+                new SimpleMeterRegistry());
+    }
+
+    @Test
+    void forEachRecentPair_SecondDrawIsServedFromCache() {
+        when(logAssignmentRepository.findRecentPairs(anyCollection(), eq(2022)))
+                .thenReturn(List.of(pair(1, 2, 2022), pair(1, 3, 2023)));
+
+        assertEquals(List.of("1->2", "1->3"), pairs(new int[]{1, 2}, 2022));
+        assertEquals(List.of("1->2", "1->3"), pairs(new int[]{1, 2}, 2022));
+        // a later draw only needs the newer pairs
+        assertEquals(List.of("1->3"), pairs(new int[]{1, 2}, 2023));
+
+        verify(logAssignmentRepository, times(1)).findRecentPairs(anyCollection(), anyInt());
+    }
+
+    @Test
+    void forEachRecentPair_LookbackBeforeFloorYearIsReloaded() {
+        when(logAssignmentRepository.findRecentPairs(anyCollection(), anyInt())).thenReturn(List.of());
+
+        pairs(new int[]{1}, 2023);
+        pairs(new int[]{1}, 2021);
+
+        verify(logAssignmentRepository).findRecentPairs(List.of(1), 2023);
+        verify(logAssignmentRepository).findRecentPairs(List.of(1), 2021);
+    }
+
+    @Test
+    void onDrawCommitted_AppendsToCachedGivers() {
+        when(logAssignmentRepository.findRecentPairs(List.of(1), 2022)).thenReturn(List.of());
+        when(logAssignmentRepository.findRecentPairs(List.of(2), 2022)).thenReturn(List.of(pair(2, 1, 2024)));
+        pairs(new int[]{1}, 2022);
+
+        recentPairCache.onDrawCommitted(new DrawCommittedEvent(2024, new int[]{1, 2}, new int[]{2, 1}, true,
+                new String[]{"john@example.com", "jane@example.com"}, new String[]{"Jane Doe", "John Doe"},
+                new String[]{"jane@example.com", "john@example.com"}));
+
+        assertEquals(List.of("1->2"), pairs(new int[]{1}, 2022));
+        verify(logAssignmentRepository, times(1)).findRecentPairs(anyCollection(), anyInt());
+        // giver 2 was not cached, so its pairs are read from the database
+        assertEquals(List.of("2->1"), pairs(new int[]{2}, 2022));
+        verify(logAssignmentRepository).findRecentPairs(List.of(2), 2022);
+    }
+
+    @Test
+    void forEachRecentPair_LoadOverlappingACommitIsNotCached() {
+        when(logAssignmentRepository.findRecentPairs(anyCollection(), anyInt()))
+                .thenAnswer(invocation -> {
+                    // another draw of this instance commits while the history is being read
+                    recentPairCache.onDrawCommitted(new DrawCommittedEvent(2024, new int[]{1}, new int[]{2}, true,
+                            new String[]{"john@example.com"}, new String[]{"Jane Doe"}, new String[]{"jane@example.com"}));
+                    return List.of();
+                });
+
+        pairs(new int[]{1}, 2022);
+        pairs(new int[]{1}, 2022);
+
+        verify(logAssignmentRepository, times(2)).findRecentPairs(anyCollection(), anyInt());
+    }
+
+    private List<String> pairs(int[] giverIds, int yearLimit) {
+        List<String> pairs = new ArrayList<>();
+        recentPairCache.forEachRecentPair(giverIds, yearLimit,
+                (giverId, receiverId, year) -> pairs.add(giverId + "->" + receiverId));
+        return pairs;
+    }
+
+    private static AssignmentPairView pair(Integer giverId, Integer receiverId, Integer year) {
+        return new AssignmentPairView() {
+            @Override
+            public Integer getGiverId() {
+                return giverId;
+            }
+
+            @Override
+            public Integer getReceiverId() {
+                return receiverId;
+            }
+
+            @Override
+            public Integer getYear() {
+                return year;
+            }
+        };
+    }
+
+}
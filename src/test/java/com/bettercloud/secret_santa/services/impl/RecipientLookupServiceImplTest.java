@@ -0,0 +1,153 @@
+package com.bettercloud.secret_santa.services.impl;
+
+import com.bettercloud.secret_santa.config.SecretSantaProperties;
+import com.bettercloud.secret_santa.dto.RecipientDTO;
+import com.bettercloud.secret_santa.repositories.LogAssignmentRepository;
+import com.bettercloud.secret_santa.repositories.RecipientView;
+import com.bettercloud.secret_santa.services.DrawCommittedEvent;
+import com.bettercloud.secret_santa.services.DrawRepairedEvent;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class RecipientLookupServiceImplTest {
+
+    @Mock
+    private LogAssignmentRepository logAssignmentRepository;
+
+    private RecipientLookupServiceImpl recipientLookupService;
+
+    @BeforeEach
+    void setUp() {
+        recipientLookupService = new RecipientLookupServiceImpl(logAssignmentRepository,
+                new SecretSantaProperties(), new SimpleMeterRegistry());
+    }
+
+    @Test
+    void findRecipients_SecondLookupIsServedFromCache() {
+        when(logAssignmentRepository.findRecipients("john@example.com", 2024))
+                .thenReturn(List.of(view(1, 2, "Jane Doe", "jane@example.com")));
+
+        List<RecipientDTO> first = recipientLookupService.findRecipients(2024, "john@example.com");
+        List<RecipientDTO> second = recipientLookupService.findRecipients(2024, "john@example.com");
+
+        assertEquals(List.of(new RecipientDTO(2024, 1, 2, "Jane Doe", "jane@example.com")), first);
+        assertEquals(first, second);
+        verify(logAssignmentRepository, times(1)).findRecipients(anyString(), anyInt());
+    }
+
+    @Test
+    void findRecipients_NoDrawYet_IsNotCached() {
+        when(logAssignmentRepository.findRecipients("john@example.com", 2024))
+                .thenReturn(List.of())
+                .thenReturn(List.of(view(1, 2, "Jane Doe", "jane@example.com")));
+
+        assertTrue(recipientLookupService.findRecipients(2024, "john@example.com").isEmpty());
+
+        assertEquals(List.of(new RecipientDTO(2024, 1, 2, "Jane Doe", "jane@example.com")),
+                recipientLookupService.findRecipients(2024, "john@example.com"));
+    }
+
+    @Test
+    void findRecipients_RepairCommittedDuringLoad_NotCached() {
+        when(logAssignmentRepository.findRecipients("john@example.com", 2024)).thenAnswer(invocation -> {
+            recipientLookupService.onDrawRepaired(
+                    new DrawRepairedEvent(2024, new int[]{1}, new String[]{"john@example.com"}));
+            return List.of(view(1, 2, "Jane Doe", "jane@example.com"));
+        });
+
+        recipientLookupService.findRecipients(2024, "john@example.com");
+        recipientLookupService.findRecipients(2024, "john@example.com");
+
+        verify(logAssignmentRepository, times(2)).findRecipients("john@example.com", 2024);
+    }
+
+    @Test
+    void onDrawCommitted_WarmsCacheWithoutDatabaseLookups() {
+        recipientLookupService.onDrawCommitted(johnAndJane(true));
+
+        assertEquals(List.of(new RecipientDTO(2024, 1, 2, "Jane Doe", "jane@example.com")),
+                recipientLookupService.findRecipients(2024, "john@example.com"));
+        assertEquals(List.of(new RecipientDTO(2024, 2, 1, "John Doe", "john@example.com")),
+                recipientLookupService.findRecipients(2024, "jane@example.com"));
+        verify(logAssignmentRepository, never()).findRecipients(anyString(), anyInt());
+    }
+
+    @Test
+    void onDrawCommitted_GiversWithEarlierDraws_EvictsOnlyTheirEntries() {
+        when(logAssignmentRepository.findRecipients("john@example.com", 2024))
+                .thenReturn(List.of(view(1, 3, "Max Roe", "max@example.com")));
+        when(logAssignmentRepository.findRecipients("mary@example.com", 2024))
+                .thenReturn(List.of(view(4, 5, "Bob Doe", "bob@example.com")));
+        recipientLookupService.findRecipients(2024, "john@example.com");
+        recipientLookupService.findRecipients(2024, "mary@example.com");
+
+        recipientLookupService.onDrawCommitted(johnAndJane(false));
+        recipientLookupService.findRecipients(2024, "john@example.com");
+        recipientLookupService.findRecipients(2024, "mary@example.com");
+
+        verify(logAssignmentRepository, times(2)).findRecipients("john@example.com", 2024);
+        verify(logAssignmentRepository, times(1)).findRecipients("mary@example.com", 2024);
+    }
+
+    @Test
+    void onDrawRepaired_EvictsEntriesOfItsGivers() {
+        when(logAssignmentRepository.findRecipients("john@example.com", 2024))
+                .thenReturn(List.of(view(1, 2, "Jane Doe", "jane@example.com")));
+        recipientLookupService.findRecipients(2024, "john@example.com");
+
+        recipientLookupService.onDrawRepaired(
+                new DrawRepairedEvent(2023, new int[]{1}, new String[]{"john@example.com"}));
+        recipientLookupService.findRecipients(2024, "john@example.com");
+        recipientLookupService.onDrawRepaired(
+                new DrawRepairedEvent(2024, new int[]{1}, new String[]{"john@example.com"}));
+        recipientLookupService.findRecipients(2024, "john@example.com");
+
+        verify(logAssignmentRepository, times(2)).findRecipients("john@example.com", 2024);
+    }
+
+    /**
+     * A committed draw of 2024 between John (1) and Jane (2).
+     */
+    private static DrawCommittedEvent johnAndJane(boolean onlyAssignmentsOfYear) {
+        return new DrawCommittedEvent(2024, new int[]{1, 2}, new int[]{2, 1}, onlyAssignmentsOfYear,
+                new String[]{"john@example.com", "jane@example.com"},
+                new String[]{"Jane Doe", "John Doe"},
+                new String[]{"jane@example.com", "john@example.com"});
+    }
+
+    private static RecipientView view(Integer giverId, Integer receiverId, String receiverName, String receiverEmail) {
+        return new RecipientView() {
+            @Override
+            public Integer getGiverId() {
+                return giverId;
+            }
+
+            @Override
+            public Integer getReceiverId() {
+                return receiverId;
+            }
+
+            @Override
+            public String getReceiverName() {
+                return receiverName;
+            }
+
+            @Override
+            public String getReceiverEmail() {
+                return receiverEmail;
+            }
+        };
+    }
+
+}
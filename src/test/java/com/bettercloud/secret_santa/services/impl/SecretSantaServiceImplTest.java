@@ -1,23 +1,55 @@
 package com.bettercloud.secret_santa.services.impl;
 
+import com.bettercloud.secret_santa.config.SecretSantaProperties;
+import com.bettercloud.secret_santa.constraints.DoNotPairConstraint;
+import com.bettercloud.secret_santa.constraints.DrawConstraint;
+import com.bettercloud.secret_santa.constraints.FamilyConstraint;
+import com.bettercloud.secret_santa.constraints.SharedAttributeConstraint;
 import com.bettercloud.secret_santa.dto.ApiResponseDTO;
+import com.bettercloud.secret_santa.dto.AssignmentResponseDTO;
+import com.bettercloud.secret_santa.dto.GroupDrawRequestDTO;
+import com.bettercloud.secret_santa.dto.GroupDrawResultDTO;
 import com.bettercloud.secret_santa.dto.ParticipantRequestDTO;
+import com.bettercloud.secret_santa.entities.LogAssignment;
 import com.bettercloud.secret_santa.entities.Participant;
 import com.bettercloud.secret_santa.exceptions.AppSecretSantaException;
+import com.bettercloud.secret_santa.ingest.ParticipantStreamParser;
+import com.bettercloud.secret_santa.metrics.DrawMetrics;
+import com.bettercloud.secret_santa.metrics.StatementCounter;
+import com.bettercloud.secret_santa.repositories.AssignmentPairView;
+import com.bettercloud.secret_santa.repositories.DrawAdvisoryLocks;
+import com.bettercloud.secret_santa.repositories.LogAssignmentCopyWriter;
+import com.bettercloud.secret_santa.repositories.LogAssignmentPartitions;
 import com.bettercloud.secret_santa.repositories.LogAssignmentRepository;
 import com.bettercloud.secret_santa.repositories.ParticipantRepository;
+import com.bettercloud.secret_santa.repositories.ParticipantUpsertWriter;
+import com.bettercloud.secret_santa.services.DrawCommittedEvent;
+import com.bettercloud.secret_santa.services.DrawRepairedEvent;
+import com.bettercloud.secret_santa.solver.HungarianSolver;
+import com.bettercloud.secret_santa.solver.BacktrackingSolver;
+import com.bettercloud.secret_santa.solver.MatchingSolver;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
+import org.mockito.InOrder;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.List;
-import java.util.Optional;
+import java.util.Map;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.AdditionalMatchers.aryEq;
 import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.Mockito.*;
 
@@ -30,13 +62,30 @@ class SecretSantaServiceImplTest {
     @Mock
     private LogAssignmentRepository logAssignmentRepository;
 
-    @InjectMocks
+    @Mock
+    private LogAssignmentCopyWriter logAssignmentCopyWriter;
+
+    @Mock
+    private LogAssignmentPartitions logAssignmentPartitions;
+
+    @Mock
+    private ParticipantUpsertWriter participantUpsertWriter;
+
+    @Mock
+    private DrawAdvisoryLocks drawAdvisoryLocks;
+
     private SecretSantaServiceImpl secretSantaService;
 
+    private SimpleMeterRegistry meterRegistry;
+
+    private List<Object> publishedEvents;
+
     private List<ParticipantRequestDTO> validParticipants;
 
     @BeforeEach
     void setUp() {
+        secretSantaService = createService(new SecretSantaProperties());
+
         validParticipants = List.of(
                 new ParticipantRequestDTO("John Doe", 1, "john@example.com"),
                 new ParticipantRequestDTO("Jane Doe", 2, "jane@example.com")
@@ -47,25 +96,67 @@ class SecretSantaServiceImplTest {
     void createAssignments_Successful() {
         // GIVEN
         // Se simula que ninguno de los participantes existe, así que se crean
-        when(participantRepository.findByEmail("john@example.com")).thenReturn(Optional.empty());
-        when(participantRepository.findByEmail("jane@example.com")).thenReturn(Optional.empty());
+        stubNewParticipants();
 
-        when(participantRepository.save(any(Participant.class)))
-                .thenAnswer(invocation -> {
-                    Participant participant = invocation.getArgument(0);
-                    participant.setId(participant.getEmail().equals("john@example.com") ? 1 : 2);
-                    return participant;
-                });
-
-        when(logAssignmentRepository.countRecentAssignments(anyInt(), anyInt(), anyInt()))
-                .thenReturn(0);
+        when(logAssignmentRepository.findRecentPairs(anyCollection(), anyInt()))
+                .thenReturn(List.of());
 
         ApiResponseDTO response = secretSantaService.createAssignments(validParticipants, 2023);
 
         assertNotNull(response);
         assertNotNull(response.getData());
 
-        verify(logAssignmentRepository, times(1)).saveAll(anyList());
+        // The partition is created before the write transaction takes its locks
+        InOrder inOrder = inOrder(logAssignmentPartitions, drawAdvisoryLocks, logAssignmentRepository);
+        inOrder.verify(logAssignmentPartitions).ensureYear(2023);
+        inOrder.verify(drawAdvisoryLocks).lock(eq(2023), any(int[].class));
+        inOrder.verify(logAssignmentRepository, times(1)).saveAll(anyList());
+
+        DrawCommittedEvent event = (DrawCommittedEvent) publishedEvents.get(0);
+        assertEquals(2023, event.getYear());
+        assertArrayEquals(new int[]{1, 2}, event.getGiverIds());
+        assertArrayEquals(new int[]{2, 1}, event.getReceiverIds());
+        assertArrayEquals(new String[]{"john@example.com", "jane@example.com"}, event.getGiverEmails());
+        assertArrayEquals(new String[]{"Jane Doe", "John Doe"}, event.getReceiverNames());
+        assertTrue(event.isOnlyAssignmentsOfYear());
+    }
+
+    @Test
+    void createAssignments_BeforeCommit_RecordsReturnedResponseInWriteTransaction() {
+        stubNewParticipants();
+        when(logAssignmentRepository.findRecentPairs(anyCollection(), anyInt())).thenReturn(List.of());
+        List<ApiResponseDTO> recorded = new ArrayList<>();
+
+        ApiResponseDTO response = secretSantaService.createAssignments(validParticipants, 2023, recorded::add);
+
+        assertEquals(List.of(response), recorded);
+        // A failure while recording rolls the draw back before it is published
+        publishedEvents.clear();
+        assertThrows(IllegalStateException.class, () -> secretSantaService.createAssignments(validParticipants, 2024,
+                drawn -> {
+                    throw new IllegalStateException("store failed");
+                }));
+        assertTrue(publishedEvents.isEmpty());
+    }
+
+    @Test
+    void createAssignments_UsesConfiguredLookbackAndConstraints() {
+        SecretSantaProperties properties = new SecretSantaProperties();
+        properties.getConstraints().setLookbackYears(1);
+        properties.getConstraints().setExcludeSameAttributes(List.of("location"));
+        secretSantaService = createService(properties);
+        stubNewParticipants();
+        when(logAssignmentRepository.findRecentPairs(anyCollection(), anyInt())).thenReturn(List.of());
+
+        List<ParticipantRequestDTO> sameLocation = List.of(
+                new ParticipantRequestDTO("John Doe", null, "john@example.com", Map.of("location", "NYC"), null),
+                new ParticipantRequestDTO("Jane Doe", null, "jane@example.com", Map.of("location", "NYC"), null)
+        );
+        AppSecretSantaException exception = assertThrows(AppSecretSantaException.class,
+                () -> secretSantaService.createAssignments(sameLocation, 2023));
+
+        assertEquals(HttpStatus.BAD_REQUEST.value(), exception.getCode());
+        verify(logAssignmentRepository).findRecentPairs(anyCollection(), eq(2023));
     }
 
     @Test
@@ -87,23 +178,492 @@ class SecretSantaServiceImplTest {
     @Test
     void createAssignments_NoValidAssignment_ThrowsException() {
 
-        when(participantRepository.findByEmail(anyString())).thenReturn(Optional.empty());
-        when(participantRepository.save(any(Participant.class)))
+        stubNewParticipants();
+
+        when(logAssignmentRepository.findRecentPairs(anyCollection(), anyInt()))
+                .thenReturn(List.of(pair(1, 2), pair(2, 1)));
+
+        AppSecretSantaException exception = assertThrows(
+                AppSecretSantaException.class,
+                () -> secretSantaService.createAssignments(validParticipants, 2023)
+        );
+
+        assertTrue(exception.getMessage().contains("No valid assignment found"));
+        assertEquals(HttpStatus.BAD_REQUEST.value(), exception.getCode());
+        verify(logAssignmentRepository, times(1)).findRecentPairs(anyCollection(), eq(2021));
+    }
+
+    @Test
+    void createAssignments_HistoryMakesDrawImpossible_RelaxedWhenOptimizing() {
+        SecretSantaProperties properties = new SecretSantaProperties();
+        properties.getSolver().setOptimizeWhenInfeasible(true);
+        secretSantaService = createService(properties);
+        stubNewParticipants();
+        when(logAssignmentRepository.findRecentPairs(anyCollection(), anyInt()))
+                .thenReturn(List.of(pair(1, 2), pair(2, 1)));
+
+        ApiResponseDTO response = secretSantaService.createAssignments(validParticipants, 2023);
+
+        // Pairs of last year cost 2 out of a 3-year window
+        List<?> assignments = (List<?>) response.getData();
+        assertEquals(2, assignments.size());
+        assertEquals(2, ((AssignmentResponseDTO) assignments.get(0)).getPenalty());
+        assertTrue(response.getMeta().getMessage().endsWith(": 4"));
+        assertEquals(1, meterRegistry.get("secret_santa.draw")
+                .tags("strategy", "matching", "outcome", "relaxed").timer().count());
+    }
+
+    @Test
+    void createAssignments_OtherRulesMakeDrawImpossible_NotRelaxed() {
+        SecretSantaProperties properties = new SecretSantaProperties();
+        properties.getSolver().setOptimizeWhenInfeasible(true);
+        secretSantaService = createService(properties);
+        stubNewParticipants();
+        when(logAssignmentRepository.findRecentPairs(anyCollection(), anyInt()))
+                .thenReturn(List.of(pair(1, 2)));
+
+        List<ParticipantRequestDTO> sameFamily = List.of(
+                new ParticipantRequestDTO("John Doe", 1, "john@example.com"),
+                new ParticipantRequestDTO("Jane Doe", 1, "jane@example.com")
+        );
+        AppSecretSantaException exception = assertThrows(AppSecretSantaException.class,
+                () -> secretSantaService.createAssignments(sameFamily, 2023));
+
+        assertEquals(HttpStatus.BAD_REQUEST.value(), exception.getCode());
+        verify(logAssignmentRepository, never()).saveAll(anyList());
+    }
+
+    @Test
+    void repairAssignments_Dropout_RewritesOnlyTheRowsAroundIt() {
+        stubNewParticipants();
+        when(logAssignmentRepository.findRecentPairs(anyCollection(), anyInt())).thenReturn(List.of());
+        // Committed draw: John (1) -> Max (3) -> Jane (2) -> John, then Max drops out
+        LogAssignment johnToMax = new LogAssignment(10, 1, 3, 2023);
+        LogAssignment maxToJane = new LogAssignment(11, 3, 2, 2023);
+        LogAssignment janeToJohn = new LogAssignment(12, 2, 1, 2023);
+        when(logAssignmentRepository.findByYearAndGiverIdIn(eq(2023), anyCollection()))
+                .thenAnswer(invocation -> {
+                    Collection<Integer> giverIds = invocation.getArgument(1);
+                    return giverIds.contains(3) ? List.of(maxToJane) : List.of(johnToMax, janeToJohn);
+                });
+        when(logAssignmentRepository.findByYearAndReceiverIdIn(eq(2023), anyCollection()))
+                .thenReturn(List.of(maxToJane, janeToJohn));
+        when(logAssignmentRepository.updateReceiver(10, 3, 2)).thenReturn(1);
+        when(logAssignmentRepository.deleteByIdIn(List.of(11))).thenReturn(1);
+        when(participantRepository.findAllById(List.of(3)))
+                .thenReturn(List.of(new Participant(3, "Max Roe", "max@example.com")));
+
+        ApiResponseDTO response = secretSantaService.repairAssignments(validParticipants, 2023);
+
+        assertEquals(1, ((List<?>) response.getData()).size());
+        verify(logAssignmentRepository, times(1)).updateReceiver(anyInt(), anyInt(), anyInt());
+        verify(logAssignmentRepository, never()).saveAll(anyList());
+        DrawRepairedEvent event = (DrawRepairedEvent) publishedEvents.get(0);
+        assertArrayEquals(new int[]{1, 3}, event.getGiverIds());
+        assertArrayEquals(new String[]{"john@example.com", "max@example.com"}, event.getGiverEmails());
+    }
+
+    @Test
+    void repairAssignments_SameEmailTwice_ThrowsWithoutWriting() {
+        List<ParticipantRequestDTO> participants = List.of(
+                new ParticipantRequestDTO("John Doe", 1, "john@example.com"),
+                new ParticipantRequestDTO("John D.", 1, "john@example.com"));
+
+        AppSecretSantaException exception = assertThrows(AppSecretSantaException.class,
+                () -> secretSantaService.repairAssignments(participants, 2023));
+
+        assertEquals(HttpStatus.BAD_REQUEST.value(), exception.getCode());
+        verifyNoInteractions(participantRepository, logAssignmentRepository);
+    }
+
+    @Test
+    void repairAssignments_NoCommittedDraw_ThrowsNotFound() {
+        stubNewParticipants();
+        when(logAssignmentRepository.findRecentPairs(anyCollection(), anyInt())).thenReturn(List.of());
+
+        AppSecretSantaException exception = assertThrows(AppSecretSantaException.class,
+                () -> secretSantaService.repairAssignments(validParticipants, 2023));
+
+        assertEquals(HttpStatus.NOT_FOUND.value(), exception.getCode());
+    }
+
+    @Test
+    void createAssignments_RecordsPhaseAndSolverMetrics() {
+        stubNewParticipants();
+        when(logAssignmentRepository.findRecentPairs(anyCollection(), anyInt()))
+                .thenReturn(List.of());
+
+        secretSantaService.createAssignments(validParticipants, 2023);
+
+        for (String phase : List.of("upsert", "history", "solve", "persist")) {
+            assertEquals(1, meterRegistry.get("secret_santa.draw.phase").tag("phase", phase).timer().count(), phase);
+        }
+        assertEquals(1, meterRegistry.get("secret_santa.draw")
+                .tags("strategy", "matching", "outcome", "success").timer().count());
+        assertTrue(meterRegistry.get("secret_santa.solver.nodes").tag("strategy", "matching")
+                .summary().totalAmount() > 0);
+    }
+
+    @Test
+    void createAssignments_NoValidAssignment_RecordsOutcome() {
+        stubNewParticipants();
+        when(logAssignmentRepository.findRecentPairs(anyCollection(), anyInt()))
+                .thenReturn(List.of(pair(1, 2), pair(2, 1)));
+
+        assertThrows(AppSecretSantaException.class,
+                () -> secretSantaService.createAssignments(validParticipants, 2023));
+
+        assertEquals(1, meterRegistry.get("secret_santa.draw")
+                .tags("strategy", "matching", "outcome", "bad_request").timer().count());
+        assertEquals(0, meterRegistry.get("secret_santa.draw.phase").tag("phase", "persist").timer().count());
+    }
+
+    @Test
+    void createAssignments_StreamedCsv_UpsertsInChunksAndSolves() {
+        SecretSantaProperties properties = new SecretSantaProperties();
+        properties.getIngest().setChunkSize(1);
+        secretSantaService = createService(properties);
+        stubNewParticipants();
+        when(logAssignmentRepository.findRecentPairs(anyCollection(), anyInt()))
+                .thenReturn(List.of());
+
+        ApiResponseDTO response = secretSantaService.createAssignments(stream("""
+                name,email,tempFamilyId
+                John Doe,john@example.com,1
+                Jane Doe,jane@example.com,
+                """), ParticipantStreamParser.TEXT_CSV, 2023);
+
+        assertEquals(2, ((List<?>) response.getData()).size());
+        verify(participantRepository, times(2)).findByEmailIn(anyCollection());
+        verify(logAssignmentRepository, times(1)).saveAll(anyList());
+    }
+
+    @Test
+    void createAssignments_StreamedDuplicateEmail_ThrowsWithoutWriting() {
+        SecretSantaProperties properties = new SecretSantaProperties();
+        properties.getIngest().setChunkSize(1);
+        secretSantaService = createService(properties);
+
+        AppSecretSantaException exception = assertThrows(
+                AppSecretSantaException.class,
+                () -> secretSantaService.createAssignments(stream("""
+                        {"name": "John Doe", "email": "john@example.com"}
+                        {"name": "John D.", "email": "john@example.com"}
+                        """), MediaType.APPLICATION_NDJSON, 2023)
+        );
+
+        assertEquals(HttpStatus.BAD_REQUEST.value(), exception.getCode());
+        verifyNoInteractions(participantRepository, logAssignmentRepository);
+    }
+
+    @Test
+    void createAssignments_StreamedOddUpload_ThrowsWithoutWriting() {
+        SecretSantaProperties properties = new SecretSantaProperties();
+        properties.getIngest().setChunkSize(1);
+        secretSantaService = createService(properties);
+
+        AppSecretSantaException exception = assertThrows(
+                AppSecretSantaException.class,
+                () -> secretSantaService.createAssignments(stream("""
+                        name,email
+                        John Doe,john@example.com
+                        Jane Doe,jane@example.com
+                        Max Roe,max@example.com
+                        """), ParticipantStreamParser.TEXT_CSV, 2023)
+        );
+
+        assertEquals(HttpStatus.BAD_REQUEST.value(), exception.getCode());
+        verifyNoInteractions(participantRepository, logAssignmentRepository);
+    }
+
+    @Test
+    void createAssignments_SolveBudgetExceeded_ThrowsServiceUnavailable() {
+        SecretSantaProperties properties = new SecretSantaProperties();
+        properties.getSolver().setMaxNodes(1);
+        secretSantaService = createService(properties);
+
+        stubNewParticipants();
+        when(logAssignmentRepository.findRecentPairs(anyCollection(), anyInt()))
+                .thenReturn(List.of());
+
+        AppSecretSantaException exception = assertThrows(
+                AppSecretSantaException.class,
+                () -> secretSantaService.createAssignments(validParticipants, 2023)
+        );
+
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE.value(), exception.getCode());
+        verify(logAssignmentRepository, never()).saveAll(anyList());
+    }
+
+    @Test
+    void createAssignments_ExistingParticipants_LoadedAndRenamedInBulk() {
+        Participant john = new Participant(1, "Johnny Doe", "john@example.com");
+        when(participantRepository.findByEmailIn(anyCollection())).thenReturn(List.of(john));
+        when(participantRepository.saveAll(anyList()))
                 .thenAnswer(invocation -> {
-                    Participant p = invocation.getArgument(0);
-                    p.setId(p.getEmail().equals("john@example.com") ? 1 : 2);
-                    return p;
+                    List<Participant> participants = invocation.getArgument(0);
+                    participants.stream().filter(p -> p.getId() == null).forEach(p -> p.setId(2));
+                    return participants;
                 });
+        when(logAssignmentRepository.findRecentPairs(anyCollection(), anyInt()))
+                .thenReturn(List.of());
+
+        secretSantaService.createAssignments(validParticipants, 2023);
+
+        assertEquals("John Doe", john.getName());
+        verify(participantRepository, times(1)).findByEmailIn(anyCollection());
+        verify(participantRepository, times(2)).saveAll(anyList());
+        verify(participantRepository, never()).save(any(Participant.class));
+    }
+
+    @Test
+    void createAssignments_LargeDraw_WrittenWithCopy() {
+        SecretSantaProperties properties = new SecretSantaProperties();
+        properties.getPersistence().setCopyThreshold(2);
+        secretSantaService = createService(properties);
+
+        stubNewParticipants();
+        when(logAssignmentRepository.findRecentPairs(anyCollection(), anyInt()))
+                .thenReturn(List.of());
+        when(logAssignmentCopyWriter.isSupported()).thenReturn(true);
+
+        secretSantaService.createAssignments(validParticipants, 2023);
 
-        when(logAssignmentRepository.countRecentAssignments(anyInt(), anyInt(), anyInt()))
-                .thenReturn(1);
+        verify(logAssignmentCopyWriter, times(1)).copy(anyList());
+        verify(logAssignmentRepository, never()).saveAll(anyList());
+    }
+
+    @Test
+    void createAssignments_ConflictingDrawCommittedMeanwhile_ThrowsConflict() {
+        stubNewParticipants();
+        when(logAssignmentRepository.findRecentPairs(anyCollection(), anyInt()))
+                .thenReturn(List.of());
+        // Read phase sees no draw for the year, write phase finds one committed in between
+        when(logAssignmentRepository.countByYearAndGiverIdIn(eq(2023), anyCollection()))
+                .thenReturn(0L, 2L);
 
         AppSecretSantaException exception = assertThrows(
                 AppSecretSantaException.class,
                 () -> secretSantaService.createAssignments(validParticipants, 2023)
         );
 
-        assertTrue(exception.getMessage().contains("No valid assignment found"));
+        assertEquals(HttpStatus.CONFLICT.value(), exception.getCode());
+        verify(logAssignmentRepository, never()).saveAll(anyList());
+    }
+
+    @Test
+    void createBatchAssignments_ReadsAndWritesAllGroupsAtOnce() {
+        stubNewParticipantsInOrder();
+        // Last year John gave to Jane and Jane to John, so only their group is impossible
+        when(logAssignmentRepository.findRecentPairs(anyCollection(), anyInt()))
+                .thenReturn(List.of(pair(1, 2), pair(2, 1)));
+
+        List<GroupDrawRequestDTO> groups = List.of(
+                new GroupDrawRequestDTO("madrid", validParticipants),
+                new GroupDrawRequestDTO("nyc", List.of(
+                        new ParticipantRequestDTO("Max Roe", null, "max@example.com"),
+                        new ParticipantRequestDTO("Ann Roe", null, "ann@example.com"))),
+                new GroupDrawRequestDTO("odd", List.of(
+                        new ParticipantRequestDTO("Sam Poe", null, "sam@example.com"))));
+
+        ApiResponseDTO response = secretSantaService.createBatchAssignments(groups, 2023);
+
+        List<?> results = (List<?>) response.getData();
+        GroupDrawResultDTO madrid = (GroupDrawResultDTO) results.get(0);
+        GroupDrawResultDTO nyc = (GroupDrawResultDTO) results.get(1);
+        GroupDrawResultDTO odd = (GroupDrawResultDTO) results.get(2);
+        assertEquals(HttpStatus.BAD_REQUEST.value(), madrid.getCode());
+        assertTrue(madrid.getMessage().contains("No valid assignment found"));
+        assertEquals(200, nyc.getCode());
+        assertEquals(2, nyc.getAssignments().size());
+        assertEquals(HttpStatus.BAD_REQUEST.value(), odd.getCode());
+        assertEquals("1 of 3 groups drawn", response.getMeta().getMessage());
+
+        verify(participantRepository, times(1)).findByEmailIn(anyCollection());
+        verify(logAssignmentRepository, times(1)).findRecentPairs(anyCollection(), eq(2021));
+        verify(logAssignmentRepository, times(1)).saveAll(anyList());
+        assertEquals(1, publishedEvents.size());
+    }
+
+    @Test
+    void createAssignments_SameEmailTwice_ThrowsBadRequest() {
+        List<ParticipantRequestDTO> repeated = List.of(
+                new ParticipantRequestDTO("John Doe", 1, "john@example.com"),
+                new ParticipantRequestDTO("Johnny Doe", 2, "john@example.com"));
+
+        AppSecretSantaException exception = assertThrows(AppSecretSantaException.class,
+                () -> secretSantaService.createAssignments(repeated, 2023));
+
         assertEquals(HttpStatus.BAD_REQUEST.value(), exception.getCode());
+        assertTrue(exception.getMessage().contains("john@example.com"));
+        verifyNoInteractions(participantRepository, logAssignmentRepository);
+    }
+
+    @Test
+    void createBatchAssignments_SameEmailTwice_FailsOnlyThoseGroups() {
+        stubNewParticipantsInOrder();
+
+        List<GroupDrawRequestDTO> groups = List.of(
+                new GroupDrawRequestDTO("repeated", List.of(
+                        new ParticipantRequestDTO("Max Roe", null, "max@example.com"),
+                        new ParticipantRequestDTO("Max Roe", null, "max@example.com"))),
+                new GroupDrawRequestDTO("madrid", validParticipants),
+                new GroupDrawRequestDTO("shared", List.of(
+                        new ParticipantRequestDTO("Ann Roe", null, "ann@example.com"),
+                        new ParticipantRequestDTO("John Doe", null, "john@example.com"))));
+
+        ApiResponseDTO response = secretSantaService.createBatchAssignments(groups, 2023);
+
+        List<?> results = (List<?>) response.getData();
+        GroupDrawResultDTO repeated = (GroupDrawResultDTO) results.get(0);
+        GroupDrawResultDTO shared = (GroupDrawResultDTO) results.get(2);
+        assertEquals(HttpStatus.BAD_REQUEST.value(), repeated.getCode());
+        assertTrue(repeated.getMessage().contains("listed more than once"));
+        assertEquals(200, ((GroupDrawResultDTO) results.get(1)).getCode());
+        assertEquals(HttpStatus.BAD_REQUEST.value(), shared.getCode());
+        assertTrue(shared.getMessage().contains("another group"));
+        verify(logAssignmentRepository).saveAll(argThat(logs -> ((List<?>) logs).size() == 2));
+    }
+
+    @Test
+    void createBatchAssignments_UnexpectedErrorInOneGroup_FailsOnlyThatGroup() {
+        // A rule that breaks on the nyc group only
+        DrawConstraint broken = (draw, exclusions) -> {
+            if (Arrays.asList(draw.emails()).contains("max@example.com")) {
+                throw new IllegalStateException("broken rule");
+            }
+        };
+        secretSantaService = createService(new SecretSantaProperties(), List.of(new FamilyConstraint(), broken));
+        stubNewParticipantsInOrder();
+
+        List<GroupDrawRequestDTO> groups = List.of(
+                new GroupDrawRequestDTO("madrid", validParticipants),
+                new GroupDrawRequestDTO("nyc", List.of(
+                        new ParticipantRequestDTO("Max Roe", null, "max@example.com"),
+                        new ParticipantRequestDTO("Ann Roe", null, "ann@example.com"))));
+
+        ApiResponseDTO response = secretSantaService.createBatchAssignments(groups, 2023);
+
+        List<?> results = (List<?>) response.getData();
+        assertEquals(200, ((GroupDrawResultDTO) results.get(0)).getCode());
+        assertEquals(HttpStatus.INTERNAL_SERVER_ERROR.value(), ((GroupDrawResultDTO) results.get(1)).getCode());
+        verify(logAssignmentRepository).saveAll(argThat(logs -> ((List<?>) logs).size() == 2));
+    }
+
+    @Test
+    void createBatchAssignments_ConflictingDrawCommittedMeanwhile_FailsOnlyThatGroup() {
+        stubNewParticipantsInOrder();
+        // Read phase sees no draw for the year, write phase finds one for Jane
+        List<Integer> noGivers = List.of();
+        List<Integer> jane = List.of(2);
+        when(logAssignmentRepository.findGiverIdsByYear(eq(2023), anyCollection()))
+                .thenReturn(noGivers)
+                .thenReturn(jane);
+
+        List<GroupDrawRequestDTO> groups = List.of(
+                new GroupDrawRequestDTO("madrid", validParticipants),
+                new GroupDrawRequestDTO("nyc", List.of(
+                        new ParticipantRequestDTO("Max Roe", null, "max@example.com"),
+                        new ParticipantRequestDTO("Ann Roe", null, "ann@example.com"))));
+
+        ApiResponseDTO response = secretSantaService.createBatchAssignments(groups, 2023);
+
+        List<?> results = (List<?>) response.getData();
+        assertEquals(HttpStatus.CONFLICT.value(), ((GroupDrawResultDTO) results.get(0)).getCode());
+        assertEquals(200, ((GroupDrawResultDTO) results.get(1)).getCode());
+        verify(logAssignmentRepository).saveAll(argThat(logs -> ((List<?>) logs).size() == 2));
+    }
+
+    @Test
+    void createAssignments_OnPostgres_NewParticipantsUpsertedAndWriteLocked() {
+        when(participantUpsertWriter.isSupported()).thenReturn(true);
+        // Nobody exists at first; after the upsert both rows are there, whoever inserted them
+        List<Participant> nobody = List.of();
+        List<Participant> upserted = List.of(new Participant(1, "John Doe", "john@example.com"),
+                new Participant(2, "Jane Doe", "jane@example.com"));
+        when(participantRepository.findByEmailIn(anyCollection()))
+                .thenReturn(nobody)
+                .thenReturn(upserted);
+
+        ApiResponseDTO response = secretSantaService.createAssignments(validParticipants, 2023);
+
+        assertEquals(2, ((List<?>) response.getData()).size());
+        verify(participantUpsertWriter).insertMissing(argThat(participants -> participants.size() == 2));
+        verify(participantRepository, never()).saveAll(anyList());
+        verify(drawAdvisoryLocks).lock(eq(2023), aryEq(new int[]{1, 2}));
+    }
+
+    private SecretSantaServiceImpl createService(SecretSantaProperties properties) {
+        return createService(properties, List.of(new FamilyConstraint(), new SharedAttributeConstraint(),
+                new DoNotPairConstraint()));
+    }
+
+    private SecretSantaServiceImpl createService(SecretSantaProperties properties, List<DrawConstraint> constraints) {
+        meterRegistry = new SimpleMeterRegistry();
+        DrawMetrics drawMetrics = new DrawMetrics(meterRegistry, new StatementCounter());
+        publishedEvents = new ArrayList<>();
+        RecentPairCache recentPairCache = new RecentPairCache(logAssignmentRepository, properties, meterRegistry);
+        DrawLocks drawLocks = new DrawLocks(drawAdvisoryLocks, properties);
+        DrawStoreServiceImpl drawStoreService = new DrawStoreServiceImpl(participantRepository,
+                logAssignmentRepository, logAssignmentCopyWriter, logAssignmentPartitions, participantUpsertWriter, drawLocks,
+                recentPairCache, properties, drawMetrics, publishedEvents::add);
+        return new SecretSantaServiceImpl(drawStoreService, drawLocks,
+                List.of(new BacktrackingSolver(), new MatchingSolver()),
+                new HungarianSolver(),
+                constraints,
+                properties, drawMetrics,
+                new ParticipantStreamParser(new ObjectMapper()));
+    }
+
+    /**
+     * Simulates that none of the participants exists, so they are created with IDs 1 and 2.
+     */
+    private void stubNewParticipants() {
+        when(participantRepository.findByEmailIn(anyCollection())).thenReturn(List.of());
+        when(participantRepository.saveAll(anyList()))
+                .thenAnswer(invocation -> {
+                    List<Participant> participants = invocation.getArgument(0);
+                    participants.forEach(p -> p.setId(p.getEmail().equals("john@example.com") ? 1 : 2));
+                    return participants;
+                });
+    }
+
+    /**
+     * Simulates that none of the participants exists, so they are created with IDs 1, 2, 3...
+     * in the order they are saved.
+     */
+    private void stubNewParticipantsInOrder() {
+        when(participantRepository.findByEmailIn(anyCollection())).thenReturn(List.of());
+        when(participantRepository.saveAll(anyList()))
+                .thenAnswer(invocation -> {
+                    List<Participant> participants = invocation.getArgument(0);
+                    for (int i = 0; i < participants.size(); i++) {
+                        participants.get(i).setId(i + 1);
+                    }
+                    return participants;
+                });
+    }
+
+    private static InputStream stream(String content) {
+        return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static AssignmentPairView pair(Integer giverId, Integer receiverId) {
+        return new AssignmentPairView() {
+            @Override
+            public Integer getGiverId() {
+                return giverId;
+            }
+
+            @Override
+            public Integer getReceiverId() {
+                return receiverId;
+            }
+
+            @Override
+            public Integer getYear() {
+                return 2022;
+            }
+        };
     }
 }
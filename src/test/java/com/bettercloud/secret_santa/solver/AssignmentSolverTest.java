@@ -0,0 +1,165 @@
+package com.bettercloud.secret_santa.solver;
+
+import com.bettercloud.secret_santa.config.SecretSantaProperties;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.Random;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AssignmentSolverTest {
+
+    static Stream<Arguments> solvers() {
+        SecretSantaProperties properties = new SecretSantaProperties();
+        properties.getSolver().getPortfolio().setCopies(4);
+        properties.getSolver().getPortfolio().setThreads(4);
+        properties.getSolver().getPortfolio().setMinParticipants(0);
+
+        return Stream.of(
+                Arguments.of(new BacktrackingSolver()),
+                Arguments.of(new MatchingSolver()),
+                Arguments.of(new PortfolioSolver(new BacktrackingSolver(), properties))
+        );
+    }
+
+    @ParameterizedTest
+    @MethodSource("solvers")
+    void solve_RespectsFamilyAndHistory(AssignmentSolver solver) {
+        // 4 families of 2 members, each giver already gave to a participant of the next family
+        int size = 8;
+        int[] participantIds = new int[size];
+        int[] familyIds = new int[size];
+        ExclusionMatrix recentPairs = new ExclusionMatrix(size);
+        for (int i = 0; i < size; i++) {
+            participantIds[i] = 100 + i;
+            familyIds[i] = i / 2;
+            recentPairs.exclude(i, (i + 2) % size);
+        }
+        DrawProblem problem = problem(participantIds, familyIds, recentPairs);
+
+        Optional<int[]> result = solver.solve(problem, SolveBudget.unlimited());
+
+        assertTrue(result.isPresent());
+        assertValidAssignment(problem, result.get());
+    }
+
+    @ParameterizedTest
+    @MethodSource("solvers")
+    void solve_FamilyLargerThanHalf_ReturnsEmpty(AssignmentSolver solver) {
+        int[] participantIds = {1, 2, 3, 4};
+        int[] familyIds = {0, 0, 0, DrawProblem.NO_FAMILY};
+
+        Optional<int[]> result = solver.solve(problem(participantIds, familyIds, new ExclusionMatrix(4)), SolveBudget.unlimited());
+
+        assertTrue(result.isEmpty());
+    }
+
+    @ParameterizedTest
+    @MethodSource("solvers")
+    void solve_LargeDraw_FindsPerfectAssignment(AssignmentSolver solver) {
+        int size = solver.strategy() == SolverStrategy.MATCHING ? 2_000 : 200;
+        int[] participantIds = new int[size];
+        int[] familyIds = new int[size];
+        for (int i = 0; i < size; i++) {
+            participantIds[i] = i;
+            familyIds[i] = i % 50;
+        }
+        DrawProblem problem = problem(participantIds, familyIds, new ExclusionMatrix(size));
+
+        Optional<int[]> result = solver.solve(problem, SolveBudget.unlimited());
+
+        assertTrue(result.isPresent());
+        assertValidAssignment(problem, result.get());
+    }
+
+    @ParameterizedTest
+    @MethodSource("solvers")
+    void solve_NodeBudgetExceeded_Throws(AssignmentSolver solver) {
+        int size = 200;
+        int[] participantIds = new int[size];
+        int[] familyIds = new int[size];
+        for (int i = 0; i < size; i++) {
+            participantIds[i] = i;
+            familyIds[i] = i % 2;
+        }
+        DrawProblem problem = problem(participantIds, familyIds, new ExclusionMatrix(size));
+
+        assertThrows(SolveBudgetExceededException.class,
+                () -> solver.solve(problem, SolveBudget.start(Duration.ofMinutes(1), 50)));
+    }
+
+    @Test
+    void solve_PortfolioWithMoreCopiesThanThreads_MergesEveryCopyOnceStopped() {
+        SecretSantaProperties properties = new SecretSantaProperties();
+        properties.getSolver().getPortfolio().setCopies(4);
+        properties.getSolver().getPortfolio().setThreads(1);
+        properties.getSolver().getPortfolio().setMinParticipants(0);
+        PortfolioSolver solver = new PortfolioSolver(new BacktrackingSolver(), properties);
+        int size = 200;
+        int[] participantIds = new int[size];
+        int[] familyIds = new int[size];
+        for (int i = 0; i < size; i++) {
+            participantIds[i] = i;
+            familyIds[i] = i % 2;
+        }
+        DrawProblem problem = problem(participantIds, familyIds, new ExclusionMatrix(size));
+        SolveBudget budget = SolveBudget.start(Duration.ofMinutes(1), 50);
+
+        try {
+            assertThrows(SolveBudgetExceededException.class, () -> solver.solve(problem, budget));
+        } finally {
+            solver.shutdown();
+        }
+
+        // Each copy runs in turn on the single thread and charges its own 50 nodes before failing
+        assertEquals(4 * 51, budget.totalNodes());
+    }
+
+    @Test
+    void solve_BacktrackingWithRestarts_SolvesEverySeed() {
+        // A third of the participants share a family and everybody gave to the next one last year
+        int size = 60;
+        int[] participantIds = new int[size];
+        int[] familyIds = new int[size];
+        ExclusionMatrix recentPairs = new ExclusionMatrix(size);
+        for (int i = 0; i < size; i++) {
+            participantIds[i] = i;
+            familyIds[i] = i < size / 3 ? 0 : DrawProblem.NO_FAMILY;
+            recentPairs.exclude(i, (i + 1) % size);
+        }
+        DrawProblem problem = problem(participantIds, familyIds, recentPairs);
+
+        for (long seed = 0; seed < 20; seed++) {
+            Optional<int[]> result = new BacktrackingSolver()
+                    .solve(problem, SolveBudget.start(Duration.ofSeconds(10), 0), new Random(seed));
+
+            assertTrue(result.isPresent());
+            assertValidAssignment(problem, result.get());
+        }
+    }
+
+    /**
+     * Compiles the families into the history, as the family constraint does for real draws.
+     */
+    private static DrawProblem problem(int[] participantIds, int[] familyIds, ExclusionMatrix recentPairs) {
+        recentPairs.excludeWithinGroups(familyIds);
+        return new DrawProblem(participantIds, familyIds, recentPairs);
+    }
+
+    private static void assertValidAssignment(DrawProblem problem, int[] receiverOf) {
+        assertEquals(problem.size(), receiverOf.length);
+        boolean[] received = new boolean[problem.size()];
+        for (int giver = 0; giver < receiverOf.length; giver++) {
+            int receiver = receiverOf[giver];
+            assertTrue(problem.isAllowed(giver, receiver));
+            assertFalse(received[receiver], "Receiver assigned twice: " + receiver);
+            received[receiver] = true;
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package com.bettercloud.secret_santa.solver;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Optional;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CycleRepairTest {
+
+    @Test
+    void repair_SingleDropout_BridgesItsGiverAndReceiver() {
+        // 0 -> 1 -> 2 -> 3 -> (dropout) -> 0
+        int[] receiverOf = {1, 2, 3, -1};
+
+        int[] result = CycleRepair.repair(problem(new ExclusionMatrix(4)), receiverOf, new Random(1),
+                SolveBudget.unlimited()).orElseThrow();
+
+        assertArrayEquals(new int[]{1, 2, 3, 0}, result);
+    }
+
+    @Test
+    void repair_DropoutFromPairOfTwo_SplicedIntoAnotherPair() {
+        // 0 -> 1 -> 2 -> 0, and 3 <-> (dropout): 3 cannot give to itself
+        int[] receiverOf = {1, 2, 0, -1};
+        DrawProblem problem = problem(new ExclusionMatrix(4));
+
+        int[] result = CycleRepair.repair(problem, receiverOf, new Random(1), SolveBudget.unlimited()).orElseThrow();
+
+        assertValidAssignment(problem, result);
+        long changed = Arrays.stream(new int[]{0, 1, 2, 3}).filter(giver -> result[giver] != receiverOf[giver]).count();
+        assertEquals(2, changed);
+    }
+
+    @Test
+    void repair_NewParticipantAllowedNowhere_ReturnsEmpty() {
+        // 0 <-> 1, and 2 joins but may not give to or receive from anyone
+        ExclusionMatrix exclusions = new ExclusionMatrix(3);
+        for (int other = 0; other < 2; other++) {
+            exclusions.exclude(2, other);
+            exclusions.exclude(other, 2);
+        }
+
+        Optional<int[]> result = CycleRepair.repair(problem(exclusions), new int[]{1, 0, -1}, new Random(1),
+                SolveBudget.unlimited());
+
+        assertTrue(result.isEmpty());
+    }
+
+    private static DrawProblem problem(ExclusionMatrix exclusions) {
+        int size = exclusions.size();
+        int[] participantIds = new int[size];
+        int[] familyIds = new int[size];
+        for (int i = 0; i < size; i++) {
+            participantIds[i] = 100 + i;
+            familyIds[i] = DrawProblem.NO_FAMILY;
+        }
+        return new DrawProblem(participantIds, familyIds, exclusions);
+    }
+
+    private static void assertValidAssignment(DrawProblem problem, int[] receiverOf) {
+        boolean[] received = new boolean[problem.size()];
+        for (int giver = 0; giver < problem.size(); giver++) {
+            int receiver = receiverOf[giver];
+            assertTrue(problem.isAllowed(giver, receiver), giver + " -> " + receiver);
+            assertFalse(received[receiver], "receiver " + receiver + " assigned twice");
+            received[receiver] = true;
+        }
+    }
+
+}
@@ -0,0 +1,60 @@
+package com.bettercloud.secret_santa.solver;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ExclusionMatrixTest {
+
+    @Test
+    void excludeWithinGroups_SmallAndLargeGroups() {
+        // 130 participants need 3 words per row: group 0 is marked pair by pair, group 1 with a mask
+        int size = 130;
+        int[] groupIds = new int[size];
+        Arrays.fill(groupIds, -1);
+        groupIds[0] = 0;
+        groupIds[64] = 0;
+        for (int i = 100; i < 110; i++) {
+            groupIds[i] = 1;
+        }
+        ExclusionMatrix matrix = new ExclusionMatrix(size);
+
+        matrix.excludeWithinGroups(groupIds);
+
+        for (int giver = 0; giver < size; giver++) {
+            for (int receiver = 0; receiver < size; receiver++) {
+                boolean sameGroup = giver != receiver && groupIds[giver] >= 0 && groupIds[giver] == groupIds[receiver];
+                assertEquals(sameGroup, matrix.isExcluded(giver, receiver), giver + " -> " + receiver);
+            }
+        }
+    }
+
+    @Test
+    void excludesAllOthers_IgnoresGiverItself() {
+        ExclusionMatrix matrix = new ExclusionMatrix(3);
+        matrix.exclude(0, 1);
+
+        assertFalse(matrix.excludesAllOthers(0));
+        matrix.exclude(0, 2);
+        assertTrue(matrix.excludesAllOthers(0));
+        assertFalse(matrix.excludesAllOthers(1));
+    }
+
+    @Test
+    void receiversExcludedByAllOthers_FindsUnreachableReceivers() {
+        ExclusionMatrix matrix = new ExclusionMatrix(70);
+        for (int giver = 0; giver < 70; giver++) {
+            if (giver != 65) {
+                matrix.exclude(giver, 65);
+            }
+        }
+        matrix.exclude(1, 2);
+
+        long[] unreachable = matrix.receiversExcludedByAllOthers();
+
+        assertArrayEquals(new long[]{0L, 1L << 1}, unreachable);
+    }
+
+}
@@ -0,0 +1,74 @@
+package com.bettercloud.secret_santa.solver;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FeasibilityCheckerTest {
+
+    private static final int[] PARTICIPANT_IDS = {10, 11, 12, 13, 14, 15};
+
+    @Test
+    void check_FamilyLargerThanRest_ReportsFamily() {
+        int[] familyIds = {0, 0, 0, 0, 1, DrawProblem.NO_FAMILY};
+
+        Optional<Infeasibility> result = FeasibilityChecker.check(problem(familyIds, new ExclusionMatrix(6)));
+
+        assertTrue(result.isPresent());
+        assertArrayEquals(new int[]{10, 11, 12, 13}, result.get().getParticipantIds());
+    }
+
+    @Test
+    void check_ParticipantWithoutCandidates_ReportsParticipant() {
+        int[] familyIds = {0, 0, 1, 1, 2, 2};
+        ExclusionMatrix recentPairs = new ExclusionMatrix(6);
+        recentPairs.exclude(0, 2);
+        recentPairs.exclude(0, 3);
+        recentPairs.exclude(0, 4);
+        recentPairs.exclude(0, 5);
+
+        Optional<Infeasibility> result = FeasibilityChecker.check(problem(familyIds, recentPairs));
+
+        assertTrue(result.isPresent());
+        assertArrayEquals(new int[]{10}, result.get().getParticipantIds());
+        assertTrue(result.get().describe().contains("without any possible receiver"));
+    }
+
+    @Test
+    void findHallViolation_TwoGiversSharingOneReceiver_ReportsGroup() {
+        // Participants 0 and 1 can only give to participant 2: every degree is positive,
+        // but the pair {0, 1} has a single possible receiver
+        int[] familyIds = {DrawProblem.NO_FAMILY, DrawProblem.NO_FAMILY, DrawProblem.NO_FAMILY,
+                DrawProblem.NO_FAMILY, DrawProblem.NO_FAMILY, DrawProblem.NO_FAMILY};
+        ExclusionMatrix recentPairs = new ExclusionMatrix(6);
+        for (int giver = 0; giver < 2; giver++) {
+            for (int receiver = 0; receiver < 6; receiver++) {
+                if (receiver != 2) {
+                    recentPairs.exclude(giver, receiver);
+                }
+            }
+        }
+        DrawProblem problem = problem(familyIds, recentPairs);
+
+        assertTrue(FeasibilityChecker.check(problem).isEmpty());
+        Optional<Infeasibility> result = FeasibilityChecker.findHallViolation(problem, SolveBudget.unlimited());
+
+        assertTrue(result.isPresent());
+        assertArrayEquals(new int[]{10, 11}, result.get().getParticipantIds());
+    }
+
+    @Test
+    void findHallViolation_FeasibleDraw_ReturnsEmpty() {
+        int[] familyIds = {0, 0, 1, 1, 2, 2};
+
+        assertTrue(FeasibilityChecker.check(problem(familyIds, new ExclusionMatrix(6))).isEmpty());
+        assertTrue(FeasibilityChecker.findHallViolation(problem(familyIds, new ExclusionMatrix(6)), SolveBudget.unlimited()).isEmpty());
+    }
+
+    private static DrawProblem problem(int[] familyIds, ExclusionMatrix recentPairs) {
+        recentPairs.excludeWithinGroups(familyIds);
+        return new DrawProblem(PARTICIPANT_IDS, familyIds, recentPairs);
+    }
+}
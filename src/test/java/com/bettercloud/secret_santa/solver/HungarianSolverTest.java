@@ -0,0 +1,143 @@
+package com.bettercloud.secret_santa.solver;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Optional;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HungarianSolverTest {
+
+    private static final int YEAR = 2023;
+    private static final int LOOKBACK_YEARS = 3;
+
+    @Test
+    void solve_SmallDraws_MatchBruteForceMinimum() {
+        HungarianSolver solver = new HungarianSolver();
+        Random random = new Random(42);
+
+        for (int round = 0; round < 200; round++) {
+            int size = 2 + random.nextInt(7);
+            ExclusionMatrix exclusions = new ExclusionMatrix(size);
+            RecentPairs history = new RecentPairs();
+            for (int giver = 0; giver < size; giver++) {
+                for (int receiver = 0; receiver < size; receiver++) {
+                    double roll = random.nextDouble();
+                    if (roll < 0.15) {
+                        exclusions.exclude(giver, receiver);
+                    } else if (roll < 0.6) {
+                        history.add(giver, receiver, YEAR - random.nextInt(LOOKBACK_YEARS));
+                    }
+                }
+            }
+            DrawProblem problem = problem(exclusions);
+            PairPenalties penalties = PairPenalties.byRecency(size, history, YEAR, LOOKBACK_YEARS);
+
+            long expected = bruteForceMinimum(problem, penalties, new int[size], new boolean[size], 0);
+            if (expected == Long.MAX_VALUE) {
+                continue;
+            }
+            int[] receiverOf = solver.solve(problem, penalties, SolveBudget.unlimited()).orElseThrow();
+            assertValidAssignment(problem, receiverOf);
+            assertEquals(expected, totalPenalty(penalties, receiverOf), "round " + round);
+        }
+    }
+
+    @Test
+    void solve_LargeDraw_AvoidsRecentPairsWhenPossible() {
+        HungarianSolver solver = new HungarianSolver();
+
+        // Every giver already gave to the next two participants
+        int size = 2000;
+        RecentPairs history = new RecentPairs();
+        for (int giver = 0; giver < size; giver++) {
+            history.add(giver, (giver + 1) % size, YEAR);
+            history.add(giver, (giver + 2) % size, YEAR - 1);
+        }
+        DrawProblem problem = problem(new ExclusionMatrix(size));
+        PairPenalties penalties = PairPenalties.byRecency(size, history, YEAR, LOOKBACK_YEARS);
+
+        Optional<int[]> result = solver.solve(problem, penalties, SolveBudget.unlimited());
+
+        assertTrue(result.isPresent());
+        assertValidAssignment(problem, result.get());
+        assertEquals(0, totalPenalty(penalties, result.get()));
+    }
+
+    @Test
+    void solve_NoDrawExists_ReturnsEmpty() {
+        ExclusionMatrix exclusions = new ExclusionMatrix(4);
+        exclusions.exclude(0, 1);
+        exclusions.exclude(0, 2);
+        exclusions.exclude(0, 3);
+
+        Optional<int[]> result = new HungarianSolver().solve(problem(exclusions),
+                PairPenalties.byRecency(4, new RecentPairs(), YEAR, LOOKBACK_YEARS),
+                        SolveBudget.unlimited());
+
+        assertTrue(result.isEmpty());
+    }
+
+    @Test
+    void byRecency_RepeatedPairCostsItsMostRecentYear() {
+        RecentPairs history = new RecentPairs();
+        history.add(0, 1, YEAR - 2);
+        history.add(0, 1, YEAR);
+        history.add(1, 0, YEAR - 2);
+
+        PairPenalties penalties = PairPenalties.byRecency(2, history, YEAR, LOOKBACK_YEARS);
+
+        assertEquals(3, penalties.penalty(0, 1));
+        assertEquals(1, penalties.penalty(1, 0));
+        assertEquals(0, penalties.penalty(1, 1));
+        assertEquals(3, penalties.maxPenalty());
+    }
+
+    private static long bruteForceMinimum(DrawProblem problem, PairPenalties penalties,
+                                          int[] receiverOf, boolean[] taken, int giver) {
+        if (giver == problem.size()) {
+            return totalPenalty(penalties, receiverOf);
+        }
+        long best = Long.MAX_VALUE;
+        for (int receiver = 0; receiver < problem.size(); receiver++) {
+            if (!taken[receiver] && problem.isAllowed(giver, receiver)) {
+                taken[receiver] = true;
+                receiverOf[giver] = receiver;
+                best = Math.min(best, bruteForceMinimum(problem, penalties, receiverOf, taken, giver + 1));
+                taken[receiver] = false;
+            }
+        }
+        return best;
+    }
+
+    private static long totalPenalty(PairPenalties penalties, int[] receiverOf) {
+        long total = 0;
+        for (int giver = 0; giver < receiverOf.length; giver++) {
+            total += penalties.penalty(giver, receiverOf[giver]);
+        }
+        return total;
+    }
+
+    private static DrawProblem problem(ExclusionMatrix exclusions) {
+        int size = exclusions.size();
+        int[] participantIds = new int[size];
+        int[] familyIds = new int[size];
+        for (int i = 0; i < size; i++) {
+            participantIds[i] = 100 + i;
+            familyIds[i] = DrawProblem.NO_FAMILY;
+        }
+        return new DrawProblem(participantIds, familyIds, exclusions);
+    }
+
+    private static void assertValidAssignment(DrawProblem problem, int[] receiverOf) {
+        boolean[] received = new boolean[problem.size()];
+        for (int giver = 0; giver < problem.size(); giver++) {
+            int receiver = receiverOf[giver];
+            assertTrue(problem.isAllowed(giver, receiver), giver + " -> " + receiver);
+            assertFalse(received[receiver], "receiver " + receiver + " assigned twice");
+            received[receiver] = true;
+        }
+    }
+
+}